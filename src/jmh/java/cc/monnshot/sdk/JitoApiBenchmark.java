@@ -0,0 +1,113 @@
+package cc.monnshot.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.sava.core.accounts.Signer;
+import software.sava.core.tx.Transaction;
+
+/** 发送与确认路径: txId 提取、tip floor / 签名状态 / 账户数据解析 */
+@State(Scope.Benchmark)
+public class JitoApiBenchmark {
+
+  private static final String TIP_FLOOR =
+      """
+      [{"time":"2024-12-30T08:00:00Z",\
+      "landed_tips_25th_percentile":0.000001,\
+      "landed_tips_50th_percentile":0.00001,\
+      "landed_tips_75th_percentile":0.0000365,\
+      "landed_tips_95th_percentile":0.0012,\
+      "landed_tips_99th_percentile":0.0085,\
+      "ema_landed_tips_50th_percentile":0.0000112}]\
+      """;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private String base64SignedTx;
+
+  private JsonNode tipFloorNode;
+
+  private byte[] tipFloorBytes;
+
+  private byte[] signatureStatusBytes;
+
+  private byte[] accountInfoBytes;
+
+  private final RpcDecoders.AccountData accountData = new RpcDecoders.AccountData();
+
+  @Setup
+  public void setup() throws Exception {
+    final Signer signer = Signer.createFromKeyPair(Signer.generatePrivateKeyPairBytes());
+    final Transaction transaction =
+        Transaction.createTx(
+            List.of(
+                Mint._setComputeUnitPrice(200_000L),
+                JitoApi.createJitoTip(signer.publicKey(), 0.00001D)));
+    transaction.setRecentBlockHash("4sGjMW1sUnHzSxGspuhpqLDx6wiyjNtZAMdL4VZHirAn");
+    transaction.sign(signer);
+    base64SignedTx = transaction.base64EncodeToString();
+    tipFloorNode = objectMapper.readTree(TIP_FLOOR).get(0);
+    tipFloorBytes = TIP_FLOOR.getBytes(StandardCharsets.UTF_8);
+    signatureStatusBytes =
+        ("{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":300000000},\"value\":[{\"slot\":"
+                + "300000000,\"confirmations\":null,\"err\":null,\"status\":{\"Ok\":null},"
+                + "\"confirmationStatus\":\"confirmed\"}]},\"id\":1}")
+            .getBytes(StandardCharsets.UTF_8);
+    final byte[] curveAccount = new byte[82];
+    new SecureRandom().nextBytes(curveAccount);
+    accountInfoBytes =
+        ("{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":300000000},"
+                + "\"value\":{\"data\":[\""
+                + Base64.getEncoder().encodeToString(curveAccount)
+                + "\",\"base64\"],\"executable\":false,\"lamports\":1461600,"
+                + "\"owner\":\"MoonCVVNZFSYkqNXP6bxHLPL6QQJiMagDL3qcqUQTrG\",\"space\":82}},\"id\":1}")
+            .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String extractTxId() {
+    return JitoApi.extractTxId(base64SignedTx);
+  }
+
+  @Benchmark
+  public SignedTx signedTxEnvelope() {
+    return SignedTx.fromBase64(base64SignedTx);
+  }
+
+  @Benchmark
+  public byte[] decodeBase64() {
+    return Base64.getDecoder().decode(base64SignedTx);
+  }
+
+  @Benchmark
+  public JitoApi.TipFloor.TipData parseTipFloor() {
+    return JitoApi.TipFloor.parse(tipFloorNode);
+  }
+
+  @Benchmark
+  public JitoApi.TipFloor.TipData readAndParseTipFloor() throws Exception {
+    return JitoApi.TipFloor.parse(objectMapper.readTree(TIP_FLOOR).get(0));
+  }
+
+  @Benchmark
+  public JitoApi.TipFloor.TipData streamTipFloor() {
+    return JitoApi.TipFloor.parse(tipFloorBytes);
+  }
+
+  @Benchmark
+  public Object streamSignatureStatus() {
+    return RpcDecoders.confirmationStatus(signatureStatusBytes);
+  }
+
+  @Benchmark
+  public RpcDecoders.AccountData streamAccountData() {
+    return accountData.decode(accountInfoBytes);
+  }
+}
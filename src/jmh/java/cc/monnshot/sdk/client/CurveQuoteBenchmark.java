@@ -0,0 +1,67 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.client.MonnShotTrade.ConstantProductCurveV1Adapter;
+import cc.monnshot.sdk.client.MonnShotTrade.CurveAdapter;
+import cc.monnshot.sdk.client.MonnShotTrade.GetCollateralAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.GetTokenAmountSyncOptions;
+import cc.monnshot.sdk.client.MoonshotQuoteService.QuoteSide;
+import java.math.BigInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.sava.core.accounts.PublicKey;
+
+/** 曲线报价: 直接计算 vs 报价缓存命中 */
+@State(Scope.Benchmark)
+public class CurveQuoteBenchmark {
+
+  private final CurveAdapter curveAdapter = new ConstantProductCurveV1Adapter();
+
+  private final MoonshotQuoteService quoteService = new MoonshotQuoteService();
+
+  private final PublicKey mint =
+      PublicKey.fromBase58Encoded("6W9U7FMWo8m1jgHyPmZBGF7UfwjeC4yKJPCFNsyCtovw");
+
+  // 曲线已售出 1 亿 token
+  private final BigInteger curvePosition = new BigInteger("100000000000000000");
+
+  // 0.001 SOL
+  private final BigInteger collateralAmount = BigInteger.valueOf(1_000_000L);
+
+  private final BigInteger tokenAmount = new BigInteger("1000000000000");
+
+  @Setup
+  public void setup() {
+    quoteService.quote(
+        mint,
+        curveAdapter,
+        curvePosition,
+        1L,
+        QuoteSide.BUY_TOKENS_BY_COLLATERAL,
+        collateralAmount);
+  }
+
+  @Benchmark
+  public BigInteger tokenAmountByCollateral() {
+    return curveAdapter.getTokenAmountByCollateralSync(
+        new GetTokenAmountSyncOptions(curvePosition, collateralAmount, true));
+  }
+
+  @Benchmark
+  public BigInteger collateralAmountByTokens() {
+    return curveAdapter.getCollateralAmountByTokensSync(
+        new GetCollateralAmountSyncOptions(curvePosition, tokenAmount, false));
+  }
+
+  @Benchmark
+  public BigInteger cachedQuote() {
+    return quoteService.quote(
+        mint,
+        curveAdapter,
+        curvePosition,
+        1L,
+        QuoteSide.BUY_TOKENS_BY_COLLATERAL,
+        collateralAmount);
+  }
+}
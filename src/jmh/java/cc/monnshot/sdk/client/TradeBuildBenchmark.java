@@ -0,0 +1,84 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.Mint;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.sava.anchor.programs.moonshot.anchor.TokenLaunchpadProgram;
+import software.sava.anchor.programs.moonshot.anchor.types.TradeParams;
+import software.sava.core.accounts.ProgramDerivedAddress;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.Signer;
+import software.sava.core.accounts.SolanaAccounts;
+import software.sava.core.accounts.meta.AccountMeta;
+import software.sava.core.tx.Instruction;
+import software.sava.core.tx.Transaction;
+
+/** 信号到发送之间的交易构建路径: PDA、ATA、指令构建、签名与编码 */
+@State(Scope.Benchmark)
+public class TradeBuildBenchmark {
+
+  private static final String BLOCK_HASH = "4sGjMW1sUnHzSxGspuhpqLDx6wiyjNtZAMdL4VZHirAn";
+
+  private final PublicKey mint =
+      PublicKey.fromBase58Encoded("6W9U7FMWo8m1jgHyPmZBGF7UfwjeC4yKJPCFNsyCtovw");
+
+  private final TradeParams tradeParams = new TradeParams(1_000_000_000_000L, 1_000_000L, 0, 500L);
+
+  private Signer signer;
+
+  private PublicKey curveKey;
+
+  private PublicKey mintAssociatedToken;
+
+  private PublicKey curveAssociatedToken;
+
+  private List<Instruction> instructions;
+
+  @Setup
+  public void setup() {
+    signer = Signer.createFromKeyPair(Signer.generatePrivateKeyPairBytes());
+    curveKey = MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint).publicKey();
+    mintAssociatedToken = Mint._associatedToken(signer.publicKey(), mint);
+    curveAssociatedToken = Mint._associatedToken(curveKey, mint);
+    instructions = List.of(Mint._setComputeUnitPrice(200_000L), buyInstruction());
+  }
+
+  @Benchmark
+  public ProgramDerivedAddress bondingCurvePDA() {
+    return MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint);
+  }
+
+  @Benchmark
+  public PublicKey associatedToken() {
+    return Mint._associatedToken(signer.publicKey(), mint);
+  }
+
+  @Benchmark
+  public Instruction buyInstruction() {
+    return TokenLaunchpadProgram.buy(
+        AccountMeta.createInvoked(MonnshotProgram.MOONSHOT),
+        signer.publicKey(),
+        mintAssociatedToken,
+        curveKey,
+        curveAssociatedToken,
+        MonnshotProgram.DEX_FEE,
+        MonnshotProgram.HELIO_FEE,
+        mint,
+        MonnshotProgram.CONFIG,
+        SolanaAccounts.MAIN_NET.tokenProgram(),
+        SolanaAccounts.MAIN_NET.associatedTokenAccountProgram(),
+        SolanaAccounts.MAIN_NET.systemProgram(),
+        tradeParams);
+  }
+
+  @Benchmark
+  public String createSignEncode() {
+    final Transaction transaction = Transaction.createTx(instructions);
+    transaction.setRecentBlockHash(BLOCK_HASH);
+    transaction.sign(signer);
+    return transaction.base64EncodeToString();
+  }
+}
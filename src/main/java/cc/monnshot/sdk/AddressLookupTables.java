@@ -0,0 +1,95 @@
+package cc.monnshot.sdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import software.sava.core.accounts.ProgramDerivedAddress;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.SolanaAccounts;
+import software.sava.core.accounts.meta.AccountMeta;
+import software.sava.core.tx.Instruction;
+
+/**
+ * Address lookup table program 指令
+ *
+ * <p>表地址由 authority 与创建时的 recentSlot 派生；extend 写入的地址要到下一个 slot 才能被 v0 交易引用。
+ */
+public class AddressLookupTables {
+
+  public static final PublicKey ADDRESS_LOOKUP_TABLE_PROGRAM =
+      PublicKey.fromBase58Encoded("AddressLookupTab1e1111111111111111111111111");
+
+  // 单条 extend 指令写入的地址数，保证交易不超过 1232 字节
+  public static final int MAX_EXTEND_ADDRESSES = 20;
+
+  // 指令序号
+  private static final int CREATE_LOOKUP_TABLE = 0;
+
+  private static final int EXTEND_LOOKUP_TABLE = 2;
+
+  /**
+   * @param address 派生出的表地址
+   * @param instruction createLookupTable 指令
+   */
+  public record Create(PublicKey address, Instruction instruction) {}
+
+  /**
+   * @param recentSlot 需在 SlotHashes 内，通常取 finalized slot
+   */
+  public static Create createLookupTable(PublicKey authority, PublicKey payer, long recentSlot) {
+    final ProgramDerivedAddress pda =
+        PublicKey.findProgramAddress(
+            List.of(
+                authority.toByteArray(),
+                ByteBuffer.allocate(8)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putLong(recentSlot)
+                    .array()),
+            ADDRESS_LOOKUP_TABLE_PROGRAM);
+    final ByteBuffer data = instructionData(CREATE_LOOKUP_TABLE, 8 + 1);
+    data.putLong(recentSlot);
+    data.put((byte) pda.nonce());
+    final Instruction instruction =
+        Instruction.createInstruction(
+            AccountMeta.createInvoked(ADDRESS_LOOKUP_TABLE_PROGRAM),
+            List.of(
+                AccountMeta.createWrite(pda.publicKey()),
+                AccountMeta.createReadOnlySigner(authority),
+                AccountMeta.createWritableSigner(payer),
+                AccountMeta.createRead(SolanaAccounts.MAIN_NET.systemProgram())),
+            data.array());
+    return new Create(pda.publicKey(), instruction);
+  }
+
+  /** 超过 {@link #MAX_EXTEND_ADDRESSES} 个地址时拆成多条指令，每条单独一笔交易 */
+  public static List<Instruction> extendLookupTable(
+      PublicKey lookupTable, PublicKey authority, PublicKey payer, List<PublicKey> addresses) {
+    final List<AccountMeta> accounts =
+        List.of(
+            AccountMeta.createWrite(lookupTable),
+            AccountMeta.createReadOnlySigner(authority),
+            AccountMeta.createWritableSigner(payer),
+            AccountMeta.createRead(SolanaAccounts.MAIN_NET.systemProgram()));
+    final int chunks = (addresses.size() + MAX_EXTEND_ADDRESSES - 1) / MAX_EXTEND_ADDRESSES;
+    final Instruction[] instructions = new Instruction[chunks];
+    for (int i = 0; i < chunks; i++) {
+      final List<PublicKey> chunk =
+          addresses.subList(
+              i * MAX_EXTEND_ADDRESSES,
+              Math.min(addresses.size(), (i + 1) * MAX_EXTEND_ADDRESSES));
+      final ByteBuffer data = instructionData(EXTEND_LOOKUP_TABLE, 8 + chunk.size() * 32);
+      data.putLong(chunk.size());
+      chunk.forEach(address -> data.put(address.toByteArray()));
+      instructions[i] =
+          Instruction.createInstruction(
+              AccountMeta.createInvoked(ADDRESS_LOOKUP_TABLE_PROGRAM), accounts, data.array());
+    }
+    return List.of(instructions);
+  }
+
+  private static ByteBuffer instructionData(int instruction, int length) {
+    return ByteBuffer.allocate(4 + length)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(instruction);
+  }
+}
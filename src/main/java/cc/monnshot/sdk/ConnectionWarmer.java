@@ -0,0 +1,151 @@
+package cc.monnshot.sdk;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 提交节点连接保活
+ *
+ * <p>周期性向 RPC 节点发送 getHealth、向各 Jito 区域发送 getTipAccounts，保持 HTTP/2 连接处于已建立状态；
+ * 同时记录每个节点的就绪状态，发送交易时据此区分 warm / cold 并分别统计首个请求的耗时。
+ */
+@Slf4j
+public class ConnectionWarmer {
+
+  private static final Duration INTERVAL =
+      Duration.ofSeconds(
+          Long.parseLong(System.getProperty("MONNSHOT_WARMER_INTERVAL_SECONDS", "15")));
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private static final String BUNDLES_API = "/api/v1/bundles";
+
+  private static final byte[] GET_HEALTH =
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getHealth\"}".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] GET_TIP_ACCOUNTS =
+      "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getTipAccounts\",\"params\":[]}"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private static final Map<String, Readiness> READINESS = new ConcurrentHashMap<>();
+
+  private static volatile ScheduledExecutorService scheduler;
+
+  private static class Readiness {
+    private volatile long lastSuccessNanos;
+    private volatile long lastLatencyNanos;
+    private final AtomicInteger failures = new AtomicInteger();
+  }
+
+  /**
+   * @param endpoint 节点地址
+   * @param warm 连接是否可直接使用
+   * @param lastLatencyMillis 最近一次心跳/请求耗时
+   * @param failures 连续失败次数
+   */
+  public record EndpointState(
+      String endpoint, boolean warm, long lastLatencyMillis, int failures) {}
+
+  private record Heartbeat(String endpoint, URI uri, HttpRequest request) {}
+
+  /** 立即预热一次，之后按间隔发送心跳，重复调用无副作用 */
+  public static synchronized void start() {
+    if (scheduler != null) {
+      return;
+    }
+    final List<Heartbeat> heartbeats =
+        Stream.concat(
+                HttpRpcApi.endpoints().stream().map(e -> heartbeat(e, e, GET_HEALTH)),
+                JitoApi.endpoints().stream()
+                    .map(e -> heartbeat(e, e + BUNDLES_API, GET_TIP_ACCOUNTS)))
+            .toList();
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("connection-warmer").factory());
+    scheduler.scheduleWithFixedDelay(
+        () -> heartbeats.forEach(ConnectionWarmer::beat),
+        0,
+        INTERVAL.toMillis(),
+        TimeUnit.MILLISECONDS);
+    log.info("ConnectionWarmer started, endpoints:{}, interval:{}", heartbeats.size(), INTERVAL);
+  }
+
+  public static synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /** 最近一个保活周期内 (且未超过 keep-alive) 有成功请求即认为连接是热的 */
+  public static boolean isWarm(String endpoint) {
+    final Readiness readiness = READINESS.get(endpoint);
+    if (readiness == null || readiness.failures.get() > 0 || readiness.lastSuccessNanos == 0) {
+      return false;
+    }
+    return System.nanoTime() - readiness.lastSuccessNanos < INTERVAL.toNanos() * 2;
+  }
+
+  /** 业务请求同样可以证明连接可用 */
+  public static void record(String endpoint, boolean success, long latencyNanos) {
+    final Readiness readiness = READINESS.computeIfAbsent(endpoint, _ -> new Readiness());
+    if (success) {
+      readiness.lastSuccessNanos = System.nanoTime();
+      readiness.lastLatencyNanos = latencyNanos;
+      readiness.failures.set(0);
+    } else {
+      readiness.failures.incrementAndGet();
+    }
+  }
+
+  public static List<EndpointState> states() {
+    return READINESS.entrySet().stream()
+        .map(
+            entry ->
+                new EndpointState(
+                    entry.getKey(),
+                    isWarm(entry.getKey()),
+                    entry.getValue().lastLatencyNanos / 1_000_000,
+                    entry.getValue().failures.get()))
+        .toList();
+  }
+
+  private static Heartbeat heartbeat(String endpoint, String url, byte[] body) {
+    final URI uri = URI.create(url);
+    return new Heartbeat(
+        endpoint,
+        uri,
+        HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .timeout(TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build());
+  }
+
+  private static void beat(Heartbeat heartbeat) {
+    final long start = System.nanoTime();
+    HttpTransport.client(heartbeat.uri)
+        .sendAsync(heartbeat.request, HttpResponse.BodyHandlers.discarding())
+        .whenComplete(
+            (response, throwable) -> {
+              // 任何 HTTP 响应 (包括 429) 都说明连接已建立
+              final boolean success = throwable == null;
+              record(heartbeat.endpoint, success, System.nanoTime() - start);
+              if (!success) {
+                log.debug("heartbeat {} failed: {}", heartbeat.endpoint, throwable.toString());
+              }
+            });
+  }
+}
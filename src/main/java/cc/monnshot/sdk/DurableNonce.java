@@ -0,0 +1,106 @@
+package cc.monnshot.sdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.SolanaAccounts;
+import software.sava.core.accounts.meta.AccountMeta;
+import software.sava.core.encoding.Base58;
+import software.sava.core.tx.Instruction;
+
+/**
+ * System program durable nonce 指令
+ *
+ * <p>使用 nonce 的交易以 nonce 值代替 recentBlockhash，且第一条指令必须是 advanceNonceAccount，
+ * 签名后不会随 blockhash 过期。
+ */
+public class DurableNonce {
+
+  public static final PublicKey RECENT_BLOCKHASHES_SYSVAR =
+      PublicKey.fromBase58Encoded("SysvarRecentB1ockHashes11111111111111111111");
+
+  public static final PublicKey RENT_SYSVAR =
+      PublicKey.fromBase58Encoded("SysvarRent111111111111111111111111111111111");
+
+  public static final int NONCE_ACCOUNT_SPACE = 80;
+
+  // System program 指令序号
+  private static final int CREATE_ACCOUNT = 0;
+
+  private static final int ADVANCE_NONCE_ACCOUNT = 4;
+
+  private static final int INITIALIZE_NONCE_ACCOUNT = 6;
+
+  // nonce 账户布局: version u32, state u32, authority 32, nonce 32, lamportsPerSignature u64
+  private static final int STATE_OFFSET = 4;
+
+  private static final int NONCE_OFFSET = 40;
+
+  private static final int STATE_INITIALIZED = 1;
+
+  public static Instruction advanceNonceAccount(PublicKey nonceAccount, PublicKey authority) {
+    return Instruction.createInstruction(
+        SolanaAccounts.MAIN_NET.invokedSystemProgram(),
+        List.of(
+            AccountMeta.createWrite(nonceAccount),
+            AccountMeta.createRead(RECENT_BLOCKHASHES_SYSVAR),
+            AccountMeta.createReadOnlySigner(authority)),
+        instructionData(ADVANCE_NONCE_ACCOUNT, 0).array());
+  }
+
+  /**
+   * 创建并初始化 nonce 账户，nonceAccount 需要一起签名
+   *
+   * @param lamports 免租金额，80 字节账户为 1447680
+   */
+  public static List<Instruction> createNonceAccount(
+      PublicKey payer, PublicKey nonceAccount, PublicKey authority, long lamports) {
+    final ByteBuffer create = instructionData(CREATE_ACCOUNT, 8 + 8 + 32);
+    create.putLong(lamports);
+    create.putLong(NONCE_ACCOUNT_SPACE);
+    create.put(SolanaAccounts.MAIN_NET.systemProgram().toByteArray());
+
+    final ByteBuffer initialize = instructionData(INITIALIZE_NONCE_ACCOUNT, 32);
+    initialize.put(authority.toByteArray());
+
+    return List.of(
+        Instruction.createInstruction(
+            SolanaAccounts.MAIN_NET.invokedSystemProgram(),
+            List.of(
+                AccountMeta.createWritableSigner(payer),
+                AccountMeta.createWritableSigner(nonceAccount)),
+            create.array()),
+        Instruction.createInstruction(
+            SolanaAccounts.MAIN_NET.invokedSystemProgram(),
+            List.of(
+                AccountMeta.createWrite(nonceAccount),
+                AccountMeta.createRead(RECENT_BLOCKHASHES_SYSVAR),
+                AccountMeta.createRead(RENT_SYSVAR)),
+            initialize.array()));
+  }
+
+  /**
+   * 从 nonce 账户数据中读取当前 nonce (base58，可直接作为 recentBlockhash)
+   *
+   * @return 账户不存在或未初始化时返回 null
+   */
+  public static String nonceValue(RpcDecoders.AccountData accountData) {
+    if (!accountData.isExists() || accountData.getLength() < NONCE_OFFSET + 32) {
+      return null;
+    }
+    final ByteBuffer data =
+        ByteBuffer.wrap(accountData.getData(), 0, accountData.getLength())
+            .order(ByteOrder.LITTLE_ENDIAN);
+    if (data.getInt(STATE_OFFSET) != STATE_INITIALIZED) {
+      return null;
+    }
+    return Base58.encode(accountData.getData(), NONCE_OFFSET, NONCE_OFFSET + 32);
+  }
+
+  private static ByteBuffer instructionData(int instruction, int length) {
+    return ByteBuffer.allocate(4 + length)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(instruction);
+  }
+}
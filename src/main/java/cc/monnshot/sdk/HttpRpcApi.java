@@ -1,18 +1,17 @@
 package cc.monnshot.sdk;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import lombok.Getter;
@@ -20,14 +19,12 @@ import lombok.extern.slf4j.Slf4j;
 import software.sava.core.accounts.ProgramDerivedAddress;
 import software.sava.core.accounts.PublicKey;
 import software.sava.core.accounts.lookup.AddressLookupTable;
-import software.sava.core.encoding.Base58;
 import software.sava.rpc.json.http.SolanaNetwork;
 import software.sava.rpc.json.http.client.SolanaRpcClient;
 import software.sava.rpc.json.http.request.Commitment;
 import software.sava.rpc.json.http.response.AccountInfo;
 import software.sava.rpc.json.http.response.TokenAmount;
 import software.sava.rpc.json.http.response.Tx;
-import software.sava.rpc.json.http.response.TxStatus;
 
 @Getter
 @Slf4j
@@ -37,6 +34,8 @@ public class HttpRpcApi {
 
   private final HttpClient httpClient;
 
+  private final URI uri;
+
   private final SolanaRpcClient solanaRpcClient;
 
   private static final int MAX_RETRY = 3;
@@ -45,6 +44,8 @@ public class HttpRpcApi {
 
   private static final int REQUESTS_PER_SECOND = 8;
 
+  private static final Duration RAW_CALL_TIMEOUT = Duration.ofSeconds(5);
+
   private static final int MIN_HOLDER_SIZE = 1000;
 
   private static final int HOLDER_MIN_TOP_SIZE = 50;
@@ -59,28 +60,75 @@ public class HttpRpcApi {
       PublicKey.fromBase58Encoded("metaqbxxUerdq28cj1RbAWkYQm3ybzjb6a8bt518x1s");
 
   private HttpRpcApi(String endpoint) {
-    this.endpoint = endpoint;
-    final String httpRpcProxy = System.getProperty("HTTP_RPC_PROXY", String.valueOf(false));
-    if (Boolean.parseBoolean(httpRpcProxy)) {
-      log.info("Proxy endpoint:{}", endpoint);
-      this.httpClient =
-          HttpClient.newBuilder()
-              .proxy(ProxySelector.of(new InetSocketAddress("127.0.0.1", 7890)))
-              .connectTimeout(Duration.ofSeconds(5))
-              .build();
-    } else {
-      this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
-    }
-    this.solanaRpcClient = SolanaRpcClient.createClient(URI.create(endpoint), httpClient);
+    this(endpoint, HttpTransport.client(endpoint));
   }
 
   private HttpRpcApi(String endpoint, HttpClient httpClient) {
+    this.endpoint = endpoint;
     this.httpClient = httpClient;
-    this.solanaRpcClient = SolanaRpcClient.createClient(URI.create(endpoint), httpClient);
+    this.uri = URI.create(endpoint);
+    this.solanaRpcClient = SolanaRpcClient.createClient(uri, httpClient);
   }
 
+  // -DMONNSHOT_RPC_ENDPOINTS 可替换为本地 stub (逗号分隔)
   private static final List<HttpRpcApi> RPC =
-      List.of(HTTP_RPC_API_DEFAULT, HTTP_RPC_API_PUBLICNODE);
+      System.getProperty("MONNSHOT_RPC_ENDPOINTS") == null
+          ? List.of(HTTP_RPC_API_DEFAULT, HTTP_RPC_API_PUBLICNODE)
+          : endpoints("MONNSHOT_RPC_ENDPOINTS", List.of()).stream()
+              .map(HttpRpcApi::new)
+              .toList();
+
+  // 各节点共用的发送配额，卖出优先于买入，重发排在最后
+  private static final SendScheduler SCHEDULER =
+      new SendScheduler(
+          "rpc",
+          RPC.stream().map(HttpRpcApi::getUri).toList(),
+          REQUESTS_PER_SECOND,
+          HttpRpcApi::sendToZone);
+
+  static List<String> endpoints(String property, List<String> defaults) {
+    final String endpoints = System.getProperty(property);
+    if (endpoints == null || endpoints.isBlank()) {
+      return defaults;
+    }
+    return Arrays.stream(endpoints.split(","))
+        .map(String::strip)
+        .filter(endpoint -> !endpoint.isEmpty())
+        .toList();
+  }
+
+  /** 通过当前节点发起 rpc 调用，并记录耗时/错误 */
+  public <T> CompletableFuture<T> call(
+      String method, Function<SolanaRpcClient, CompletableFuture<T>> call) {
+    return TradeMetrics.rpc("rpc", endpoint, method, () -> call.apply(solanaRpcClient));
+  }
+
+  /** 直接发送已序列化的 JSON-RPC 请求，返回原始响应字节，由调用方流式解析 (见 RpcDecoders) */
+  public CompletableFuture<byte[]> rawCall(String method, byte[] body) {
+    return rawCall(
+        method,
+        HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .timeout(RAW_CALL_TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build());
+  }
+
+  /** 发送预先构建好的请求，重复发送时复用同一个 HttpRequest */
+  public CompletableFuture<byte[]> rawCall(String method, HttpRequest request) {
+    return TradeMetrics.rpc(
+        "rpc",
+        endpoint,
+        method,
+        () ->
+            httpClient
+                .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(HttpResponse::body));
+  }
+
+  public static List<String> endpoints() {
+    return RPC.stream().map(HttpRpcApi::getEndpoint).toList();
+  }
 
   public static HttpRpcApi httpRpcApi() {
     Random random = new Random();
@@ -94,8 +142,11 @@ public class HttpRpcApi {
     Supplier<List<AccountInfo<AddressLookupTable>>> call =
         () ->
             HttpRpcApi.httpRpcApi()
-                .getSolanaRpcClient()
-                .getMultipleAccounts(Arrays.asList(lookupTableAccounts), AddressLookupTable.FACTORY)
+                .call(
+                    "getMultipleAccounts",
+                    client ->
+                        client.getMultipleAccounts(
+                            Arrays.asList(lookupTableAccounts), AddressLookupTable.FACTORY))
                 .join();
     return retry(call, 3);
   }
@@ -111,8 +162,9 @@ public class HttpRpcApi {
                           () -> {
                             final Tx tx =
                                 HttpRpcApi.httpRpcApi()
-                                    .getSolanaRpcClient()
-                                    .getTransaction(commitment, s)
+                                    .call(
+                                        "getTransaction",
+                                        client -> client.getTransaction(commitment, s))
                                     .join();
                             if (tx == null || tx.data() == null) {
                               log.trace("txSignature :{} is empty", s);
@@ -128,15 +180,14 @@ public class HttpRpcApi {
   }
 
   public static HttpRpcApi httpRpcApiDefault() {
-    return HTTP_RPC_API_DEFAULT;
+    return RPC.getFirst();
   }
 
   public Tx getTx(String tx) {
     Supplier<Tx> getTx =
         () ->
             HttpRpcApi.httpRpcApi()
-                .getSolanaRpcClient()
-                .getTransaction(Commitment.CONFIRMED, tx)
+                .call("getTransaction", client -> client.getTransaction(Commitment.CONFIRMED, tx))
                 .join();
     return retryTimeOut(getTx, 3, 1000);
   }
@@ -197,64 +248,146 @@ public class HttpRpcApi {
     suppliers.add((Supplier<TokenAmount>) () -> retry(supplier, MAX_RETRY));
   }
 
+  /**
+   * 拉取账户数据并解码到调用方提供的 AccountData (base64 直接解码进其缓冲区)
+   *
+   * <p>同一个 AccountData 不能同时用于多个在途请求
+   */
+  public static CompletableFuture<RpcDecoders.AccountData> getAccountData(
+      PublicKey publicKey, RpcDecoders.AccountData accountData) {
+    final byte[] body =
+        ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getAccountInfo\",\"params\":[\""
+                + publicKey.toBase58()
+                + "\",{\"encoding\":\"base64\",\"commitment\":\"confirmed\"}]}")
+            .getBytes(StandardCharsets.US_ASCII);
+    return HttpRpcApi.httpRpcApi()
+        .rawCall("getAccountInfo", body)
+        .thenApply(accountData::decode);
+  }
+
   public AccountInfo<byte[]> getAccountInfo(PublicKey publicKey) {
     Supplier<AccountInfo<byte[]>> getaccountInfo =
-        () -> HttpRpcApi.httpRpcApi().getSolanaRpcClient().getAccountInfo(publicKey).join();
+        () ->
+            HttpRpcApi.httpRpcApi()
+                .call("getAccountInfo", client -> client.getAccountInfo(publicKey))
+                .join();
 
     return retry(getaccountInfo, MAX_RETRY);
   }
 
+  /** 只解析余额变化的 getTransaction，尚未查到时 found 为 false */
+  public static CompletableFuture<RpcDecoders.TransactionBalances> getTransactionBalances(
+      String txId) {
+    final byte[] body =
+        ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getTransaction\",\"params\":[\""
+                + txId
+                + "\",{\"encoding\":\"json\",\"commitment\":\"confirmed\","
+                + "\"maxSupportedTransactionVersion\":0}]}")
+            .getBytes(StandardCharsets.US_ASCII);
+    return HttpRpcApi.httpRpcApi()
+        .rawCall("getTransaction", body)
+        .thenApply(new RpcDecoders.TransactionBalances()::decode);
+  }
+
+  /**
+   * 等待确认后读取余额变化，确认后 getTransaction 可能短暂查不到，会重试
+   *
+   * @return 未上链、查不到或链上执行失败时返回 null
+   */
+  public static RpcDecoders.TransactionBalances awaitTransactionBalances(
+      String txId, Duration timeout) {
+    final Commitment status = awaitConfirmation(txId, timeout);
+    if (!Commitment.CONFIRMED.equals(status) && !Commitment.FINALIZED.equals(status)) {
+      log.info("tx {} not landed", txId);
+      return null;
+    }
+    final RpcDecoders.TransactionBalances balances =
+        retry(
+            () -> {
+              final RpcDecoders.TransactionBalances result =
+                  getTransactionBalances(txId).join();
+              if (!result.isFound()) {
+                throw new IllegalStateException("Transaction not found");
+              }
+              return result;
+            },
+            5);
+    if (balances == null || balances.isFailed()) {
+      log.info("tx {} failed or not found", txId);
+      return null;
+    }
+    return balances;
+  }
+
   public static String sendTransactionSkipPreflight(String signAndBase64Encode) {
-    return sendTransactionSkipPreflight(signAndBase64Encode, 10);
+    return sendTransactionSkipPreflight(SignedTx.fromBase64(signAndBase64Encode), 10);
+  }
+
+  public static String sendTransactionSkipPreflight(SignedTx signedTx) {
+    return sendTransactionSkipPreflight(signedTx, 10);
   }
 
   public static String sendTransactionSkipPreflight(
       String signAndBase64Encode, int totalDurationSeconds) {
+    return sendTransactionSkipPreflight(
+        SignedTx.fromBase64(signAndBase64Encode), totalDurationSeconds);
+  }
+
+  /** 未给出截止时间时按刚获取的 blockhash 计算 */
+  public static String sendTransactionSkipPreflight(SignedTx signedTx, int totalDurationSeconds) {
+    return sendTransactionSkipPreflight(
+        signedTx,
+        SendScheduler.Priority.ENTRY,
+        SendScheduler.blockHashDeadline(System.nanoTime()),
+        totalDurationSeconds);
+  }
+
+  public static String sendTransactionSkipPreflight(
+      SignedTx signedTx, SendScheduler.Priority priority) {
+    return sendTransactionSkipPreflight(
+        signedTx, priority, SendScheduler.blockHashDeadline(System.nanoTime()));
+  }
+
+  public static String sendTransactionSkipPreflight(
+      SignedTx signedTx, SendScheduler.Priority priority, long deadline) {
+    return sendTransactionSkipPreflight(signedTx, priority, deadline, 10);
+  }
+
+  /**
+   * 交给 {@link SendScheduler} 向所有节点发送并等待确认，确认、超时或截止后停止重发
+   *
+   * @param priority 卖出用 EXIT，买入用 ENTRY
+   * @param deadline 发送截止的 {@link System#nanoTime()}，同类交易截止早者优先
+   */
+  public static String sendTransactionSkipPreflight(
+      SignedTx signedTx,
+      SendScheduler.Priority priority,
+      long deadline,
+      int totalDurationSeconds) {
     log.info("sendTransactionSkipPreflight");
-    AtomicBoolean shouldContinue = new AtomicBoolean(true); // 用于中断请求的信号
-    final int rpcSize = RPC.size();
-    for (int zoneId = 1; zoneId <= rpcSize; zoneId++) {
-      final int currentZone = zoneId;
-      Thread.ofVirtual()
-          .start(
-              () -> {
-                final HttpRpcApi httpRpcApi = RPC.get(currentZone - 1);
-                try {
-                  for (int i = 0; i < totalDurationSeconds * REQUESTS_PER_SECOND; i++) {
-                    if (!shouldContinue.get()) {
-                      log.debug("Zone {} request interrupted.", currentZone);
-                      break; // 跳出循环，终止请求
-                    }
-                    log.debug("Area:{},SendTransactions", currentZone);
-                    _sendAreaTransactionsRequest(
-                        httpRpcApi.getSolanaRpcClient(), signAndBase64Encode); // 执行请求逻辑
-                    Thread.sleep(Duration.ofMillis(1000 / REQUESTS_PER_SECOND)); // 控制每秒发出5次请求
-                  }
-                } catch (InterruptedException e) {
-                  Thread.currentThread().interrupt();
-                  log.warn("Zone {} was interrupted.", currentZone);
-                }
-              });
-    }
+    final long submitStartNanos = TradeMetrics.start();
+    final SendScheduler.Ticket ticket = SCHEDULER.submit(signedTx, priority, deadline);
+    ticket.firstAck().thenAccept(_ -> TradeMetrics.firstAck("rpc", submitStartNanos));
     log.debug("Http Rpc Confirmed Transaction");
-    final String txId =
-        confirmedTransaction(signAndBase64Encode, shouldContinue, totalDurationSeconds);
+    final String txId;
+    try {
+      txId = confirmedTransaction(signedTx.signature(), totalDurationSeconds, submitStartNanos);
+    } finally {
+      ticket.cancel();
+    }
     log.info("Http Rpc Transaction tx :https://solscan.io/tx/{}", txId);
     return txId;
   }
 
   private static String confirmedTransaction(
-      String sign, AtomicBoolean shouldContinue, int totalDurationSeconds) {
+      String txId, int totalDurationSeconds, long submitStartNanos) {
     long confirmedTotalDurationSeconds =
         System.currentTimeMillis() + Duration.ofSeconds(totalDurationSeconds).toMillis();
-    final String txId = extractTxId(sign);
+    final byte[] statusRequest = signatureStatusesRequest(txId);
     while (System.currentTimeMillis() < confirmedTotalDurationSeconds) {
-      if (!shouldContinue.get()) {
-        break;
-      }
       log.info("wait tx commitment confirmation");
-      final TxStatus txStatus = getSignatureStatuses(txId);
-      if (txStatus == null) {
+      final Commitment confirmationStatus = signatureStatus(statusRequest);
+      if (confirmationStatus == null) {
         try {
           TimeUnit.MILLISECONDS.sleep(200);
         } catch (InterruptedException _) {
@@ -262,37 +395,91 @@ public class HttpRpcApi {
         }
         continue;
       }
-      final Commitment confirmationStatus = txStatus.confirmationStatus();
       if (Commitment.CONFIRMED.equals(confirmationStatus)
           || Commitment.FINALIZED.equals(confirmationStatus)) {
-        shouldContinue.set(false);
         log.info("tx {} confirmed!", txId);
-        break;
+        TradeMetrics.outcome("rpc", true, submitStartNanos);
+        return txId;
       }
       try {
         TimeUnit.MILLISECONDS.sleep(200);
       } catch (InterruptedException _) {
       }
     }
+    TradeMetrics.outcome("rpc", false, submitStartNanos);
     return txId;
   }
 
-  private static TxStatus getSignatureStatuses(String txId) {
-    final Map<String, TxStatus> statusMap =
-        HttpRpcApi.httpRpcApi().getSolanaRpcClient().getSignatureStatuses(List.of(txId)).join();
-    return statusMap.get(txId);
+  /** 轮询期间请求体不变，只构建一次 */
+  static byte[] signatureStatusesRequest(String txId) {
+    return ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"getSignatureStatuses\",\"params\":[[\""
+            + txId
+            + "\"]]}")
+        .getBytes(StandardCharsets.US_ASCII);
   }
 
-  private static String extractTxId(String signAndBase64Encode) {
-    final byte[] data = Base64.getDecoder().decode(signAndBase64Encode);
-    return Base58.encode(data, 1, 1 + 64);
+  /**
+   * @return 交易当前的 confirmationStatus，尚未上链返回 null
+   */
+  static Commitment signatureStatus(byte[] statusRequest) {
+    return HttpRpcApi.httpRpcApi()
+        .rawCall("getSignatureStatuses", statusRequest)
+        .thenApply(RpcDecoders::confirmationStatus)
+        .join();
+  }
+
+  /**
+   * 轮询交易状态直到 confirmed / finalized 或超时，不发送交易
+   *
+   * @return 最后一次读到的 confirmationStatus，始终未上链返回 null
+   */
+  public static Commitment awaitConfirmation(String txId, Duration timeout) {
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    final byte[] statusRequest = signatureStatusesRequest(txId);
+    Commitment confirmationStatus = null;
+    while (System.nanoTime() < deadline) {
+      try {
+        confirmationStatus = signatureStatus(statusRequest);
+      } catch (RuntimeException e) {
+        log.debug("getSignatureStatuses {} failed", txId, e);
+      }
+      if (Commitment.CONFIRMED.equals(confirmationStatus)
+          || Commitment.FINALIZED.equals(confirmationStatus)) {
+        return confirmationStatus;
+      }
+      try {
+        TimeUnit.MILLISECONDS.sleep(400);
+      } catch (InterruptedException _) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return confirmationStatus;
+  }
+
+  private static boolean sendToZone(int zone, HttpRequest request, int attempt) {
+    final HttpRpcApi httpRpcApi = RPC.get(zone);
+    final boolean warm = attempt == 0 && ConnectionWarmer.isWarm(httpRpcApi.getEndpoint());
+    log.debug("Area:{},SendTransactions attempt:{}", zone + 1, attempt);
+    final long sendStart = System.nanoTime();
+    final boolean sent = _sendAreaTransactionsRequest(httpRpcApi, request);
+    if (attempt == 0) {
+      TradeMetrics.firstSend("rpc", warm, System.nanoTime() - sendStart);
+    }
+    return sent;
   }
 
-  private static void _sendAreaTransactionsRequest(SolanaRpcClient solanaRpcClient, String sign) {
+  private static boolean _sendAreaTransactionsRequest(
+      HttpRpcApi httpRpcApi, HttpRequest request) {
+    final long start = System.nanoTime();
     try {
-      solanaRpcClient.sendTransactionSkipPreflight(Commitment.CONFIRMED, sign, 0).join();
+      RpcDecoders.requireResult(httpRpcApi.rawCall("sendTransaction", request).join());
+      ConnectionWarmer.record(httpRpcApi.getEndpoint(), true, System.nanoTime() - start);
+      return true;
     } catch (Exception e) {
       log.error("_sendAreaTransactionsRequest Error", e);
+      ConnectionWarmer.record(httpRpcApi.getEndpoint(), false, System.nanoTime() - start);
+      return false;
     }
   }
 }
@@ -0,0 +1,282 @@
+package cc.monnshot.sdk;
+
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 共享 HTTP 传输层
+ *
+ * <p>HttpRpcApi、JitoApi、MonnShotTrade 共用同一个 JDK HttpClient：HTTP/2 多路复用、连接池与 TLS session 复用；
+ * 按 host 限制并发请求数，启动时可预热连接，避免第一笔交易承担 TCP/TLS 握手。
+ *
+ * <p>空闲连接的保持时间由 JVM 参数 {@code -Djdk.httpclient.keepalive.timeout} / {@code
+ * -Djdk.httpclient.keepalive.timeout.h2} 决定，JDK 只在创建第一个 HttpClient 时读取一次，bootRun 默认设为 120 秒。
+ */
+@Slf4j
+public class HttpTransport {
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+  private static final Duration WARM_UP_TIMEOUT = Duration.ofSeconds(5);
+
+  // 每个 host 同时在途的请求数
+  private static final int MAX_REQUESTS_PER_HOST =
+      Integer.parseInt(System.getProperty("MONNSHOT_HTTP_MAX_PER_HOST", "64"));
+
+  private static final HttpClient SHARED = build();
+
+  private static final Map<String, HostHttpClient> HOSTS = new ConcurrentHashMap<>();
+
+  private static HttpClient build() {
+    final HttpClient.Builder builder =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(Executors.newVirtualThreadPerTaskExecutor());
+    try {
+      // 所有 host 共用同一个 SSLContext，TLS session 可复用
+      builder.sslContext(SSLContext.getDefault());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    final String httpRpcProxy = System.getProperty("HTTP_RPC_PROXY", String.valueOf(false));
+    if (Boolean.parseBoolean(httpRpcProxy)) {
+      log.info("Http transport use proxy");
+      builder.proxy(ProxySelector.of(new InetSocketAddress("127.0.0.1", 7890)));
+    }
+    return builder.build();
+  }
+
+  /** 返回目标 host 对应的客户端，底层连接池共享 */
+  public static HttpClient client(URI uri) {
+    return HOSTS.computeIfAbsent(hostKey(uri), _ -> new HostHttpClient(SHARED));
+  }
+
+  public static HttpClient client(String endpoint) {
+    return client(URI.create(endpoint));
+  }
+
+  /**
+   * 预热连接：对每个 host 发一个 HEAD 请求，完成 DNS、TCP、TLS 与 HTTP/2 协商
+   *
+   * @return 全部完成 (无论成败) 后结束
+   */
+  public static CompletableFuture<Void> warmUp(Collection<URI> uris) {
+    final CompletableFuture<?>[] futures =
+        uris.stream()
+            .map(
+                uri -> {
+                  final long start = System.nanoTime();
+                  return client(uri)
+                      .sendAsync(
+                          HttpRequest.newBuilder(uri)
+                              .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                              .timeout(WARM_UP_TIMEOUT)
+                              .build(),
+                          HttpResponse.BodyHandlers.discarding())
+                      .whenComplete(
+                          (response, throwable) -> {
+                            final long millis = (System.nanoTime() - start) / 1_000_000;
+                            if (throwable == null) {
+                              log.info(
+                                  "warm up {} {} {}ms", uri.getHost(), response.version(), millis);
+                            } else {
+                              log.warn("warm up {} failed: {}", uri.getHost(), throwable.toString());
+                            }
+                          });
+                })
+            .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(futures).exceptionally(_ -> null);
+  }
+
+  private static String hostKey(URI uri) {
+    return uri.getScheme() + "://" + uri.getHost() + ':' + uri.getPort();
+  }
+
+  /**
+   * 按 host 限制并发，其余委托给共享客户端；共享客户端不随调用方关闭
+   *
+   * <p>超出并发上限的异步请求排队，在前一个请求完成时接着发出，不阻塞调用线程。
+   */
+  private static class HostHttpClient extends HttpClient {
+
+    private final HttpClient delegate;
+
+    // inFlight 与 pending 在本对象上同步
+    private final ArrayDeque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+
+    private int inFlight;
+
+    private HostHttpClient(HttpClient delegate) {
+      this.delegate = delegate;
+    }
+
+    /** 有空闲名额时返回已完成的 future，否则排队等待 {@link #release()} */
+    private CompletableFuture<Void> permit() {
+      synchronized (this) {
+        if (inFlight < MAX_REQUESTS_PER_HOST) {
+          inFlight++;
+          return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> permit = new CompletableFuture<>();
+        pending.add(permit);
+        return permit;
+      }
+    }
+
+    /** 名额直接转给下一个仍在等待的请求 */
+    private void release() {
+      while (true) {
+        final CompletableFuture<Void> next;
+        synchronized (this) {
+          next = pending.poll();
+          if (next == null) {
+            inFlight--;
+            return;
+          }
+        }
+        if (next.complete(null)) {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(
+        HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+        throws IOException, InterruptedException {
+      final CompletableFuture<Void> permit = permit();
+      try {
+        permit.get();
+      } catch (InterruptedException e) {
+        // 已拿到名额时归还，否则取消排队
+        if (!permit.cancel(false)) {
+          release();
+        }
+        throw e;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e);
+      }
+      try {
+        return delegate.send(request, responseBodyHandler);
+      } finally {
+        release();
+      }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+        HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+      return sendAsync(request, responseBodyHandler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+        HttpRequest request,
+        HttpResponse.BodyHandler<T> responseBodyHandler,
+        HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+      return permit()
+          .thenCompose(
+              _ -> {
+                try {
+                  return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+                } catch (RuntimeException e) {
+                  return CompletableFuture.failedFuture(e);
+                }
+              })
+          .whenComplete((_, _) -> release());
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+      return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+      return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+      return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+      return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+      return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+      return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+      return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+      return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+      return delegate.executor();
+    }
+
+    @Override
+    public WebSocket.Builder newWebSocketBuilder() {
+      return delegate.newWebSocketBuilder();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(Duration duration) throws InterruptedException {
+      return delegate.awaitTermination(duration);
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public void shutdownNow() {}
+
+    @Override
+    public void close() {}
+  }
+}
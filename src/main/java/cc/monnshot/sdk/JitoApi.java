@@ -1,31 +1,29 @@
 package cc.monnshot.sdk;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.ProxySelector;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import software.sava.core.accounts.PublicKey;
 import software.sava.core.accounts.SolanaAccounts;
 import software.sava.core.encoding.Base58;
 import software.sava.core.tx.Instruction;
 import software.sava.rpc.json.http.request.Commitment;
-import software.sava.rpc.json.http.response.TxStatus;
 import software.sava.solana.programs.system.SystemProgram;
-import software.sava.solana.web2.jito.client.http.JitoClient;
 
 @Slf4j
 public class JitoApi {
@@ -44,52 +42,36 @@ public class JitoApi {
 
   private static final String TRANSACTIONS_API = "/api/v1/transactions";
 
+  private static final String BUNDLES_API = "/api/v1/bundles";
+
   private static final Duration TIMEOUT = Duration.ofMillis(5000);
 
   private static final long LAMPORTS_PER_SOL = 1_000_000_000; // 1 SOL = 10^9 lamports
 
-  private static final ObjectMapper objectMapper = new ObjectMapper();
-
-  private static final JitoClient SLC_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(SLC_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
-
-  private static final JitoClient MAIN_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(MAIN_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
-
-  private static final JitoClient AMSTERDAM_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(AMSTERDAM_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
-
-  private static final JitoClient FRANKFURT_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(FRANKFURT_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
+  private static final Double DEFAULT_TIP_FEE = 0.0025D;
 
-  private static final JitoClient NY_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(NY_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
+  // first 该区域延迟最低; -DMONNSHOT_JITO_ENDPOINTS 可替换为本地 stub (逗号分隔)
+  private static final List<String> JITO_TRANSACTIONS_ENDPOINTS =
+      HttpRpcApi.endpoints(
+          "MONNSHOT_JITO_ENDPOINTS",
+          List.of(SLC_URL, NY_URL, TOKYO_URL, MAIN_URL, AMSTERDAM_URL, FRANKFURT_URL));
 
-  private static final JitoClient TOKYO_RPC_TRANSACTIONS_CLIENT =
-      JitoClient.createHttpClient(
-          buildUrl(TOKYO_URL, TRANSACTIONS_API), httpClient(), TIMEOUT, Commitment.CONFIRMED);
+  private static final String TIP_FLOOR_URL =
+      System.getProperty(
+          "MONNSHOT_JITO_TIP_FLOOR_URL", "https://bundles.jito.wtf/api/v1/bundles/tip_floor");
 
-  private static final Double DEFAULT_TIP_FEE = 0.0025D;
-
-  public static final List<JitoClient> JITO_TRANSACTIONS_CLIENTS =
-      List.of(
-          SLC_RPC_TRANSACTIONS_CLIENT, // first 该区域延迟最低
-          NY_RPC_TRANSACTIONS_CLIENT,
-          TOKYO_RPC_TRANSACTIONS_CLIENT,
-          MAIN_RPC_TRANSACTIONS_CLIENT,
-          AMSTERDAM_RPC_TRANSACTIONS_CLIENT,
-          FRANKFURT_RPC_TRANSACTIONS_CLIENT);
-
-  // requests per second per IP per region. 每个区域每个 IP 每秒 5 个请求。  // 每200ms 等待
+  // requests per second per IP per region. 每个区域每个 IP 每秒 5 个请求。
   private static final double REQUESTS_PER_SECOND = 5d;
 
-  // max zone number
-  private static final int ZONE_COUNT = 6;
+  // 各区域共用的发送配额，卖出优先于买入，重发排在最后
+  private static final SendScheduler SCHEDULER =
+      new SendScheduler(
+          "jito",
+          JITO_TRANSACTIONS_ENDPOINTS.stream()
+              .map(endpoint -> buildUrl(endpoint, TRANSACTIONS_API))
+              .toList(),
+          REQUESTS_PER_SECOND,
+          JitoApi::sendToZone);
 
   // send tx
   private static final int TOTAL_DURATION_SECONDS = 10; // 总共请求的持续时间
@@ -109,23 +91,29 @@ public class JitoApi {
           PublicKey.fromBase58Encoded("3AVi9Tg9Uo68tJfuvoKvqKNWKkC5wPdSSdeBnizKZ6jT"),
           PublicKey.fromBase58Encoded("ADuUkR4vqLUMWXxW9gh6D6L8pMSawimctcNZ5pGwDcEt"));
 
-  private static HttpClient httpClient() {
-    log.debug("create http client");
-    final String httpRpcProxy = System.getProperty("HTTP_RPC_PROXY", String.valueOf(false));
-    if (Boolean.parseBoolean(httpRpcProxy)) {
-      return HttpClient.newBuilder()
-          .version(HttpClient.Version.HTTP_2)
-          .followRedirects(HttpClient.Redirect.NEVER)
-          .proxy(ProxySelector.of(new InetSocketAddress("127.0.0.1", 7890)))
-          .connectTimeout(Duration.ofSeconds(5))
-          .build();
-    } else {
-      return HttpClient.newBuilder()
-          .version(HttpClient.Version.HTTP_2)
-          .followRedirects(HttpClient.Redirect.NEVER)
-          .connectTimeout(Duration.ofSeconds(5))
-          .build();
-    }
+  // 签名 -> 第一个受理该交易的区域，只保留最近的交易
+  private static final Map<String, String> FIRST_ACK =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+              return size() > 4096;
+            }
+          });
+
+  public static List<String> endpoints() {
+    return JITO_TRANSACTIONS_ENDPOINTS;
+  }
+
+  /**
+   * @return 第一个受理该交易的区域地址，未通过 jito 发送或已淘汰时返回 null
+   */
+  public static String firstAckEndpoint(String txId) {
+    return FIRST_ACK.get(txId);
+  }
+
+  public static String tipFloorUrl() {
+    return TIP_FLOOR_URL;
   }
 
   public static PublicKey getTipAccount() {
@@ -143,7 +131,7 @@ public class JitoApi {
     return createJitoTip(publicKey, tipfloor.low.value);
   }
 
-  public static Instruction createJitoTip(PublicKey from, Double tipFee) {
+  public static Instruction createJitoTip(PublicKey from, double tipFee) {
     final double fee = tipFee * LAMPORTS_PER_SOL;
     final PublicKey tipAccount = getTipAccount();
     return SystemProgram.transfer(
@@ -151,53 +139,141 @@ public class JitoApi {
   }
 
   public static String sendTransactions(String base64SignedTx) {
-    return sendTransactions(base64SignedTx, TOTAL_DURATION_SECONDS);
+    return sendTransactions(SignedTx.fromBase64(base64SignedTx), TOTAL_DURATION_SECONDS);
+  }
+
+  public static String sendTransactions(SignedTx signedTx) {
+    return sendTransactions(signedTx, TOTAL_DURATION_SECONDS);
   }
 
   public static String sendTransactions(String base64SignedTx, int totalDurationSeconds) {
+    return sendTransactions(SignedTx.fromBase64(base64SignedTx), totalDurationSeconds);
+  }
+
+  /** 未给出截止时间时按刚获取的 blockhash 计算 */
+  public static String sendTransactions(SignedTx signedTx, int totalDurationSeconds) {
+    return sendTransactions(
+        signedTx,
+        SendScheduler.Priority.ENTRY,
+        SendScheduler.blockHashDeadline(System.nanoTime()),
+        totalDurationSeconds);
+  }
+
+  public static String sendTransactions(SignedTx signedTx, SendScheduler.Priority priority) {
+    return sendTransactions(
+        signedTx, priority, SendScheduler.blockHashDeadline(System.nanoTime()));
+  }
+
+  public static String sendTransactions(
+      SignedTx signedTx, SendScheduler.Priority priority, long deadline) {
+    return sendTransactions(signedTx, priority, deadline, TOTAL_DURATION_SECONDS);
+  }
+
+  /**
+   * 交给 {@link SendScheduler} 向所有区域发送并等待确认，确认、超时或截止后停止重发
+   *
+   * @param priority 卖出用 EXIT，买入用 ENTRY
+   * @param deadline 发送截止的 {@link System#nanoTime()}，同类交易截止早者优先
+   */
+  public static String sendTransactions(
+      SignedTx signedTx,
+      SendScheduler.Priority priority,
+      long deadline,
+      int totalDurationSeconds) {
     log.info("SendTransactions tx");
-    AtomicBoolean shouldContinue = new AtomicBoolean(true);
-    for (int zoneId = 1; zoneId <= ZONE_COUNT; zoneId++) {
-      final int currentZone = zoneId;
-      Thread.ofVirtual()
-          .start(
-              () -> {
-                final JitoClient solanaRpcClient = JITO_TRANSACTIONS_CLIENTS.get(currentZone - 1);
-                try {
-                  for (int i = 0; i < totalDurationSeconds * REQUESTS_PER_SECOND; i++) {
-                    if (!shouldContinue.get()) {
-                      log.debug("Zone {} request interrupted.", currentZone);
-                      break; // 跳出循环，终止请求
-                    }
-                    log.debug("Area:{},SendTransactions", currentZone);
-                    _sendAreaTransactionsRequest(solanaRpcClient, base64SignedTx); // 执行请求逻辑
-                    Thread.sleep(
-                        Duration.ofMillis((long) (1000 / REQUESTS_PER_SECOND))); // 控制每秒发出5次请求
-                  }
-                } catch (InterruptedException e) {
-                  Thread.currentThread().interrupt();
-                  log.warn("Zone {} was interrupted.", currentZone);
-                }
-              });
-    }
+    final long submitStartNanos = TradeMetrics.start();
+    final SendScheduler.Ticket ticket = SCHEDULER.submit(signedTx, priority, deadline);
+    ticket
+        .firstAck()
+        .thenAccept(
+            zone -> {
+              FIRST_ACK.put(signedTx.signature(), JITO_TRANSACTIONS_ENDPOINTS.get(zone));
+              TradeMetrics.firstAck("jito", submitStartNanos);
+            });
     log.info("Confirmed Transaction");
-    final String txId = confirmedTransaction(base64SignedTx, shouldContinue, totalDurationSeconds);
+    final String txId;
+    try {
+      txId = confirmedTransaction(signedTx.signature(), totalDurationSeconds, submitStartNanos);
+    } finally {
+      ticket.cancel();
+    }
     log.info("Transaction tx :https://solscan.io/tx/{}", txId);
     return txId;
   }
 
+  /**
+   * 向所有区域并发发送同一个 bundle，bundle 内交易按顺序原子执行
+   *
+   * <p>各区域对相同 bundle 去重，每个区域只发一次；需包含 tip 指令才会被打包。
+   *
+   * @return 第一个成功响应的区域返回的 bundle id
+   */
+  public static String sendBundle(List<SignedTx> transactions) {
+    final StringBuilder json =
+        new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sendBundle\",\"params\":[[");
+    for (int i = 0; i < transactions.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append('"').append(transactions.get(i).base64()).append('"');
+    }
+    final byte[] body =
+        json.append("],{\"encoding\":\"base64\"}]}").toString().getBytes(StandardCharsets.US_ASCII);
+    final CompletableFuture<String> first = new CompletableFuture<>();
+    final AtomicInteger failures = new AtomicInteger();
+    for (String endpoint : JITO_TRANSACTIONS_ENDPOINTS) {
+      final HttpRequest request =
+          HttpRequest.newBuilder(buildUrl(endpoint, BUNDLES_API))
+              .header("Content-Type", "application/json")
+              .timeout(TIMEOUT)
+              .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+              .build();
+      TradeMetrics.rpc(
+              "jito",
+              endpoint,
+              "sendBundle",
+              () ->
+                  HttpTransport.client(request.uri())
+                      .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                      .thenApply(HttpResponse::body))
+          .thenApply(RpcDecoders::stringResult)
+          .whenComplete(
+              (bundleId, throwable) -> {
+                if (throwable == null) {
+                  first.complete(bundleId);
+                  return;
+                }
+                log.warn("sendBundle {} failed", endpoint, throwable);
+                if (failures.incrementAndGet() == JITO_TRANSACTIONS_ENDPOINTS.size()) {
+                  first.completeExceptionally(throwable);
+                }
+              });
+    }
+    final String bundleId = first.join();
+    log.info("bundle {} with {} transactions sent", bundleId, transactions.size());
+    return bundleId;
+  }
+
+  /**
+   * @param shouldContinue 为 false 时不等待确认
+   */
   public static String confirmedTransaction(
       String sign, AtomicBoolean shouldContinue, int totalDurationSeconds) {
+    final String txId = extractTxId(sign);
+    return shouldContinue.get()
+        ? confirmedTransaction(txId, totalDurationSeconds, TradeMetrics.start())
+        : txId;
+  }
+
+  private static String confirmedTransaction(
+      String txId, int totalDurationSeconds, long submitStartNanos) {
     long confirmedTotalDurationSeconds =
         System.currentTimeMillis() + Duration.ofSeconds(totalDurationSeconds).toMillis();
-    final String txId = extractTxId(sign);
+    final byte[] statusRequest = HttpRpcApi.signatureStatusesRequest(txId);
     while (System.currentTimeMillis() < confirmedTotalDurationSeconds) {
-      if (!shouldContinue.get()) {
-        break;
-      }
       log.info("wait tx commitment confirmation");
-      final TxStatus txStatus = getSignatureStatuses(txId);
-      if (txStatus == null) {
+      final Commitment confirmationStatus = HttpRpcApi.signatureStatus(statusRequest);
+      if (confirmationStatus == null) {
         try {
           TimeUnit.MILLISECONDS.sleep(100);
         } catch (InterruptedException _) {
@@ -205,65 +281,81 @@ public class JitoApi {
         }
         continue;
       }
-      final Commitment confirmationStatus = txStatus.confirmationStatus();
       if (Commitment.CONFIRMED.equals(confirmationStatus)
           || Commitment.FINALIZED.equals(confirmationStatus)) {
-        shouldContinue.set(false);
         log.info("tx {} confirmed!", txId);
-        break;
+        TradeMetrics.outcome("jito", true, submitStartNanos);
+        return txId;
       }
       try {
         TimeUnit.MILLISECONDS.sleep(100);
       } catch (InterruptedException _) {
       }
     }
+    TradeMetrics.outcome("jito", false, submitStartNanos);
     return txId;
   }
 
-  private static TxStatus getSignatureStatuses(String txId) {
-    final Map<String, TxStatus> statusMap =
-        HttpRpcApi.httpRpcApi().getSolanaRpcClient().getSignatureStatuses(List.of(txId)).join();
-    return statusMap.get(txId);
+  static String extractTxId(String signAndBase64Encode) {
+    // 只解码包含第一个签名的前 66 字节 (88 个 base64 字符)
+    final byte[] data = Base64.getDecoder().decode(signAndBase64Encode.substring(0, 88));
+    return Base58.encode(data, 1, 1 + 64);
   }
 
-  private static String extractTxId(String signAndBase64Encode) {
-    final byte[] data = Base64.getDecoder().decode(signAndBase64Encode);
-    return Base58.encode(data, 1, 1 + 64);
+  private static boolean sendToZone(int zone, HttpRequest request, int attempt) {
+    final String endpoint = JITO_TRANSACTIONS_ENDPOINTS.get(zone);
+    final boolean warm = attempt == 0 && ConnectionWarmer.isWarm(endpoint);
+    log.debug("Area:{},SendTransactions attempt:{}", zone + 1, attempt);
+    final long sendStart = System.nanoTime();
+    final boolean sent = _sendAreaTransactionsRequest(endpoint, request);
+    if (attempt == 0) {
+      TradeMetrics.firstSend("jito", warm, System.nanoTime() - sendStart);
+    }
+    return sent;
   }
 
-  private static void _sendAreaTransactionsRequest(JitoClient jitoClient, String base64SignedTx) {
+  private static boolean _sendAreaTransactionsRequest(String endpoint, HttpRequest request) {
+    final long start = System.nanoTime();
     try {
-      jitoClient.sendTransactionSkipPreflight(Commitment.CONFIRMED, base64SignedTx, 0).join();
+      final byte[] body =
+          TradeMetrics.rpc(
+                  "jito",
+                  endpoint,
+                  "sendTransaction",
+                  () ->
+                      HttpTransport.client(request.uri())
+                          .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                          .thenApply(HttpResponse::body))
+              .join();
+      RpcDecoders.requireResult(body);
+      ConnectionWarmer.record(endpoint, true, System.nanoTime() - start);
+      return true;
     } catch (Exception e) {
       log.error("_sendAreaTransactionsRequest Error", e);
+      ConnectionWarmer.record(endpoint, false, System.nanoTime() - start);
+      return false;
     }
   }
 
   public static TipFloor.TipData getTipfloor() throws IOException, InterruptedException {
-    final String body;
-    try (HttpClient httpClient = httpClient()) {
-      body =
-          httpClient
-              .send(
-                  HttpRequest.newBuilder()
-                      .uri(URI.create("https://bundles.jito.wtf/api/v1/bundles/tip_floor"))
-                      .build(),
-                  HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
-              .body();
-    }
-    final JsonNode jsonNode = objectMapper.readTree(body);
-    // 从 JsonNode 中获取各字段并创建 TipFloor 实例
-    return TipFloor.parse(jsonNode.get(0));
+    final URI uri = URI.create(TIP_FLOOR_URL);
+    final byte[] body =
+        HttpTransport.client(uri)
+            .send(
+                HttpRequest.newBuilder().uri(uri).timeout(TIMEOUT).build(),
+                HttpResponse.BodyHandlers.ofByteArray())
+            .body();
+    return TipFloor.parse(body);
   }
 
   public record TipFloor(
       String time,
-      Double landed_tips_25th_percentile,
-      Double landed_tips_50th_percentile,
-      Double landed_tips_75th_percentile,
-      Double landed_tips_95th_percentile,
-      Double landed_tips_99th_percentile,
-      Double ema_landed_tips_50th_percentile) {
+      double landed_tips_25th_percentile,
+      double landed_tips_50th_percentile,
+      double landed_tips_75th_percentile,
+      double landed_tips_95th_percentile,
+      double landed_tips_99th_percentile,
+      double ema_landed_tips_50th_percentile) {
 
     // 枚举类，定义低、中、中高、高、极高五种类型
     public enum TipTypeEnum {
@@ -286,20 +378,29 @@ public class JitoApi {
               jsonNode.get("landed_tips_99th_percentile").asDouble(),
               jsonNode.get("ema_landed_tips_50th_percentile").asDouble());
 
+      return tipFloor.tipData();
+    }
+
+    /** 直接从响应字节流式解析 */
+    public static TipData parse(byte[] body) {
+      return RpcDecoders.tipFloor(body).tipData();
+    }
+
+    public TipData tipData() {
       // 封装低、中、中高、高、极高五种类型
       return new TipData(
-          new TipType(TipTypeEnum.LOW, tipFloor.landed_tips_25th_percentile()),
-          new TipType(TipTypeEnum.MEDIUM, tipFloor.landed_tips_50th_percentile()),
-          new TipType(TipTypeEnum.MEDIUM_HIGH, tipFloor.landed_tips_75th_percentile()),
-          new TipType(TipTypeEnum.HIGH, tipFloor.landed_tips_95th_percentile()),
-          new TipType(TipTypeEnum.EXTREMELY_HIGH, tipFloor.landed_tips_99th_percentile()));
+          new TipType(TipTypeEnum.LOW, landed_tips_25th_percentile),
+          new TipType(TipTypeEnum.MEDIUM, landed_tips_50th_percentile),
+          new TipType(TipTypeEnum.MEDIUM_HIGH, landed_tips_75th_percentile),
+          new TipType(TipTypeEnum.HIGH, landed_tips_95th_percentile),
+          new TipType(TipTypeEnum.EXTREMELY_HIGH, landed_tips_99th_percentile));
     }
 
-    public record TipType(TipTypeEnum type, Double value) {
+    public record TipType(TipTypeEnum type, double value) {
       public static final double S_SO = 0.0001;
 
       @Override
-      public Double value() {
+      public double value() {
         return value;
       }
 
@@ -40,4 +40,9 @@ public class Mint {
     return ComputeBudgetProgram.setComputeUnitPrice(
         SolanaAccounts.MAIN_NET.invokedComputeBudgetProgram(), fee);
   }
+
+  public static Instruction _setComputeUnitLimit(int units) {
+    return ComputeBudgetProgram.setComputeUnitLimit(
+        SolanaAccounts.MAIN_NET.invokedComputeBudgetProgram(), units);
+  }
 }
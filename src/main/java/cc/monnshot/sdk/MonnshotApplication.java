@@ -1,12 +1,39 @@
 package cc.monnshot.sdk;
 
+import cc.monnshot.sdk.client.MonnShotTrade;
+import java.net.URI;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
 
 @SpringBootApplication
 public class MonnshotApplication {
 
+  @Value("${monnshot.http.warmup:true}")
+  private boolean warmUp;
+
   public static void main(String[] args) {
     SpringApplication.run(MonnshotApplication.class, args);
   }
+
+  /** 启动后预热 Moonshot API 连接，并对 RPC、Jito 节点持续保活 */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUpConnections() {
+    if (!warmUp) {
+      return;
+    }
+    HttpTransport.warmUp(
+        List.of(URI.create(JitoApi.tipFloorUrl()), URI.create(MonnShotTrade.API_HOST)));
+    ConnectionWarmer.start();
+  }
+
+  /** 上下文关闭时停止保活心跳 */
+  @EventListener(ContextClosedEvent.class)
+  public void stopWarmer() {
+    ConnectionWarmer.stop();
+  }
 }
@@ -0,0 +1,167 @@
+package cc.monnshot.sdk;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.tx.Instruction;
+import software.sava.core.tx.Transaction;
+import software.sava.rpc.json.http.request.Commitment;
+
+/**
+ * 单个签名者 (nonce authority) 的 nonce 账户池
+ *
+ * <p>预签名交易从池中取出一个 nonce；交易发送后调用 {@link Nonce#consumed(String)} 重新读取链上 nonce 再放回，
+ * 未使用的 nonce 通过 {@link Nonce#release()} 直接放回。durable nonce 交易不会过期，发出后未确认的交易需先用一笔
+ * 单独的 advanceNonceAccount 推进 nonce，使旧交易永远不能上链，之后才复用该 nonce 账户。
+ */
+@Slf4j
+public class NoncePool {
+
+  @Getter private final PublicKey authority;
+
+  @Getter private final List<PublicKey> nonceAccounts;
+
+  private static final long MAX_RETRY_DELAY_MILLIS = Duration.ofSeconds(30).toMillis();
+
+  private final SigningService signingService;
+
+  private final ConcurrentLinkedQueue<Nonce> ready = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param value 当前 nonce，作为交易的 recentBlockhash
+   */
+  public record Nonce(NoncePool pool, PublicKey account, String value) {
+
+    /** 交易第一条指令 */
+    public Instruction advanceInstruction() {
+      return DurableNonce.advanceNonceAccount(account, pool.authority);
+    }
+
+    /**
+     * 交易已发送，确认推进后放回
+     *
+     * @param txId 发送返回的签名，发送失败时为 null
+     */
+    public void consumed(String txId) {
+      pool.consumed(this, txId);
+    }
+
+    /** 预签名交易被丢弃，nonce 未被使用 */
+    public void release() {
+      pool.ready.add(this);
+    }
+  }
+
+  /**
+   * @param signingService 需已注册 authority，用于签名单独的推进交易
+   */
+  public NoncePool(
+      PublicKey authority, List<PublicKey> nonceAccounts, SigningService signingService) {
+    if (!signingService.contains(authority)) {
+      throw new IllegalStateException("Nonce authority not registered: " + authority);
+    }
+    this.authority = authority;
+    this.nonceAccounts = List.copyOf(nonceAccounts);
+    this.signingService = signingService;
+  }
+
+  /** 读取所有 nonce 账户并放入可用队列，启动时调用一次 */
+  public CompletableFuture<Void> load() {
+    ready.clear();
+    return CompletableFuture.allOf(
+        nonceAccounts.stream().map(this::refresh).toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * 取出一个可用 nonce，不访问 RPC
+   *
+   * @return 没有可用 nonce 时返回 null
+   */
+  public Nonce poll() {
+    return ready.poll();
+  }
+
+  public int available() {
+    return ready.size();
+  }
+
+  private void consumed(Nonce nonce, String txId) {
+    Thread.ofVirtual().name("nonce-" + nonce.account).start(() -> settle(nonce, txId));
+  }
+
+  /** 确认 nonce 已推进后重新读取并放回，RPC 失败时退避重试，不会丢失 nonce 账户 */
+  private void settle(Nonce nonce, String txId) {
+    boolean advanced = txId != null && landed(txId);
+    for (int attempt = 0; ; attempt++) {
+      try {
+        if (!advanced) {
+          advance(nonce);
+          advanced = true;
+        }
+        refresh(nonce.account).join();
+        return;
+      } catch (RuntimeException e) {
+        if (e.getCause() instanceof NonceNotInitializedException) {
+          log.error("drop nonce {}", nonce.account, e);
+          return;
+        }
+        final long delay = Math.min(MAX_RETRY_DELAY_MILLIS, 500L << Math.min(attempt, 6));
+        log.warn("settle nonce {} failed, retry in {}ms", nonce.account, delay, e);
+        try {
+          TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException _) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /** 单独发送 advanceNonceAccount，确认后旧 nonce 值失效 */
+  private void advance(Nonce nonce) {
+    final String blockHash =
+        HttpRpcApi.httpRpcApi()
+            .call("getLatestBlockhash", client -> client.getLatestBlockHash(Commitment.CONFIRMED))
+            .join()
+            .blockHash();
+    final Transaction transaction =
+        Transaction.createTx(authority, List.of(nonce.advanceInstruction()));
+    transaction.setRecentBlockHash(blockHash);
+    final SignedTx signedTx =
+        signingService.sign(SigningService.SignRequest.of(authority, transaction)).join();
+    final String txId = HttpRpcApi.sendTransactionSkipPreflight(signedTx);
+    if (!landed(txId)) {
+      throw new IllegalStateException("Advance nonce not confirmed: " + nonce.account);
+    }
+    log.info("nonce {} advanced by {}", nonce.account, txId);
+  }
+
+  private static boolean landed(String txId) {
+    final Commitment status =
+        HttpRpcApi.signatureStatus(HttpRpcApi.signatureStatusesRequest(txId));
+    return Commitment.CONFIRMED.equals(status) || Commitment.FINALIZED.equals(status);
+  }
+
+  private static final class NonceNotInitializedException extends IllegalStateException {
+    private NonceNotInitializedException(PublicKey account) {
+      super("Nonce account not initialized: " + account);
+    }
+  }
+
+  private CompletableFuture<Void> refresh(PublicKey account) {
+    return HttpRpcApi.getAccountData(account, new RpcDecoders.AccountData())
+        .thenAccept(
+            accountData -> {
+              final String value = DurableNonce.nonceValue(accountData);
+              if (value == null) {
+                throw new NonceNotInitializedException(account);
+              }
+              ready.add(new Nonce(this, account, value));
+            });
+  }
+}
@@ -0,0 +1,525 @@
+package cc.monnshot.sdk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import software.sava.rpc.json.http.request.Commitment;
+
+/**
+ * 高频轮询响应的流式解析
+ *
+ * <p>直接从响应 byte[] 读取需要的字段，不生成 String / JsonNode 中间对象：tip floor 解析为 double，
+ * getSignatureStatuses 只取 confirmationStatus，getAccountInfo 的 base64 数据按字节偏移解码到可复用缓冲区。
+ */
+public class RpcDecoders {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final byte[] BASE64_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(BASE64_VALUES, (byte) -1);
+    final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+    }
+  }
+
+  /** getAccountInfo 解析结果，调用方可复用同一个实例，data 缓冲区按需扩容 */
+  @Getter
+  public static class AccountData {
+    private long slot;
+    private boolean exists;
+    private byte[] data = new byte[256];
+    private int length;
+
+    /** 解析 getAccountInfo (encoding=base64) 响应 */
+    public AccountData decode(byte[] body) {
+      exists = false;
+      length = 0;
+      try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        enterResult(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String field = parser.currentName();
+          parser.nextToken();
+          switch (field) {
+            case "context" -> slot = readSlot(parser);
+            case "value" -> {
+              if (parser.currentToken() == JsonToken.START_OBJECT) {
+                readValue(parser, body);
+              }
+            }
+            default -> parser.skipChildren();
+          }
+        }
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void readValue(JsonParser parser, byte[] body) throws IOException {
+      exists = true;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        if ("data".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+          if (parser.nextToken() == JsonToken.VALUE_STRING) {
+            // 字符串 token 的位置指向起始引号，base64 不含转义，字符数即字节数
+            final int start = (int) parser.currentTokenLocation().getByteOffset() + 1;
+            final int base64Length = parser.getTextLength();
+            final int maxLength = base64Length / 4 * 3;
+            if (data.length < maxLength) {
+              data = new byte[maxLength];
+            }
+            length = decodeBase64(body, start, base64Length, data);
+          }
+          while (parser.currentToken() != JsonToken.END_ARRAY) {
+            parser.nextToken();
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /**
+   * @param accountIndex 在 {@link TransactionBalances#getAccountKeys()} 中的下标
+   * @param amount token 数量 (最小单位)
+   */
+  public record TokenBalance(int accountIndex, String mint, String owner, long amount) {}
+
+  /** getTransaction (encoding=json) 的余额变化部分，只取 meta 中的余额与账户列表 */
+  @Getter
+  public static class TransactionBalances {
+    private boolean found;
+    private long slot;
+    private boolean failed;
+    private long fee;
+    // 静态账户 + lookup table 加载的 writable + readonly，与余额数组下标一致
+    private final List<String> accountKeys = new ArrayList<>();
+    private final List<String> loadedWritable = new ArrayList<>();
+    private final List<String> loadedReadonly = new ArrayList<>();
+    private long[] preBalances = new long[0];
+    private long[] postBalances = new long[0];
+    private final List<TokenBalance> preTokenBalances = new ArrayList<>();
+    private final List<TokenBalance> postTokenBalances = new ArrayList<>();
+
+    /** 解析 getTransaction 响应，result 为 null 时 found 为 false */
+    public TransactionBalances decode(byte[] body) {
+      found = false;
+      failed = false;
+      accountKeys.clear();
+      loadedWritable.clear();
+      loadedReadonly.clear();
+      preTokenBalances.clear();
+      postTokenBalances.clear();
+      try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        if (seekResult(parser) != JsonToken.START_OBJECT) {
+          return this;
+        }
+        found = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String field = parser.currentName();
+          parser.nextToken();
+          switch (field) {
+            case "slot" -> slot = parser.getLongValue();
+            case "meta" -> readMeta(parser);
+            case "transaction" -> readTransaction(parser);
+            default -> parser.skipChildren();
+          }
+        }
+        accountKeys.addAll(loadedWritable);
+        accountKeys.addAll(loadedReadonly);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    public int indexOf(String accountKey) {
+      return accountKeys.indexOf(accountKey);
+    }
+
+    /**
+     * @return 账户 lamports 变化，不在交易中为 0
+     */
+    public long lamportDelta(String accountKey) {
+      final int index = indexOf(accountKey);
+      return index < 0 || index >= preBalances.length
+          ? 0L
+          : postBalances[index] - preBalances[index];
+    }
+
+    /** owner 持有的 mint 数量变化，交易前后不存在的 token 账户按 0 计 */
+    public long tokenDelta(String owner, String mint) {
+      return tokenAmount(postTokenBalances, owner, mint)
+          - tokenAmount(preTokenBalances, owner, mint);
+    }
+
+    /**
+     * @return 交易前 token 账户余额，不存在时为 -1
+     */
+    public long preTokenAmount(String tokenAccount) {
+      final int index = indexOf(tokenAccount);
+      for (TokenBalance balance : preTokenBalances) {
+        if (balance.accountIndex() == index) {
+          return balance.amount();
+        }
+      }
+      return -1;
+    }
+
+    private static long tokenAmount(List<TokenBalance> balances, String owner, String mint) {
+      long amount = 0;
+      for (TokenBalance balance : balances) {
+        if (mint.equals(balance.mint()) && owner.equals(balance.owner())) {
+          amount += balance.amount();
+        }
+      }
+      return amount;
+    }
+
+    private void readMeta(JsonParser parser) throws IOException {
+      if (parser.currentToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        final JsonToken token = parser.nextToken();
+        switch (field) {
+          case "err" -> {
+            failed = token != JsonToken.VALUE_NULL;
+            parser.skipChildren();
+          }
+          case "fee" -> fee = parser.getLongValue();
+          case "preBalances" -> preBalances = readLongs(parser);
+          case "postBalances" -> postBalances = readLongs(parser);
+          case "preTokenBalances" -> readTokenBalances(parser, preTokenBalances);
+          case "postTokenBalances" -> readTokenBalances(parser, postTokenBalances);
+          case "loadedAddresses" -> readLoadedAddresses(parser);
+          default -> parser.skipChildren();
+        }
+      }
+    }
+
+    private void readTransaction(JsonParser parser) throws IOException {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        if (!"message".equals(field)) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String messageField = parser.currentName();
+          parser.nextToken();
+          if ("accountKeys".equals(messageField)) {
+            readStrings(parser, accountKeys);
+          } else {
+            parser.skipChildren();
+          }
+        }
+      }
+    }
+
+    private void readLoadedAddresses(JsonParser parser) throws IOException {
+      if (parser.currentToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        switch (field) {
+          case "writable" -> readStrings(parser, loadedWritable);
+          case "readonly" -> readStrings(parser, loadedReadonly);
+          default -> parser.skipChildren();
+        }
+      }
+    }
+
+    private static void readTokenBalances(JsonParser parser, List<TokenBalance> balances)
+        throws IOException {
+      if (parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        return;
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        int accountIndex = -1;
+        String mint = null;
+        String owner = null;
+        long amount = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String field = parser.currentName();
+          parser.nextToken();
+          switch (field) {
+            case "accountIndex" -> accountIndex = parser.getIntValue();
+            case "mint" -> mint = parser.getText();
+            case "owner" -> owner = parser.getText();
+            case "uiTokenAmount" -> amount = readRawAmount(parser);
+            default -> parser.skipChildren();
+          }
+        }
+        balances.add(new TokenBalance(accountIndex, mint, owner, amount));
+      }
+    }
+
+    private static long readRawAmount(JsonParser parser) throws IOException {
+      long amount = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        if ("amount".equals(field)) {
+          amount = Long.parseUnsignedLong(parser.getText());
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return amount;
+    }
+
+    private static long[] readLongs(JsonParser parser) throws IOException {
+      if (parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        return new long[0];
+      }
+      long[] values = new long[64];
+      int size = 0;
+      while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = parser.getLongValue();
+      }
+      return Arrays.copyOf(values, size);
+    }
+
+    private static void readStrings(JsonParser parser, List<String> values) throws IOException {
+      if (parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        return;
+      }
+      while (parser.nextToken() == JsonToken.VALUE_STRING) {
+        values.add(parser.getText());
+      }
+    }
+  }
+
+  /**
+   * 解析 getSignatureStatuses 响应中第一个签名的 confirmationStatus
+   *
+   * @return 尚未上链时返回 null
+   */
+  public static Commitment confirmationStatus(byte[] body) {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      enterResult(parser);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        if (!"value".equals(field)) {
+          parser.skipChildren();
+          continue;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY
+            || parser.nextToken() != JsonToken.START_OBJECT) {
+          return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String statusField = parser.currentName();
+          if (parser.nextToken() == JsonToken.VALUE_STRING
+              && "confirmationStatus".equals(statusField)) {
+            // processed / confirmed / finalized 长度相同，比较首字母即可
+            return switch (parser.getTextCharacters()[parser.getTextOffset()]) {
+              case 'p' -> Commitment.PROCESSED;
+              case 'c' -> Commitment.CONFIRMED;
+              case 'f' -> Commitment.FINALIZED;
+              default -> null;
+            };
+          }
+          parser.skipChildren();
+        }
+        return null;
+      }
+      return null;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 解析 simulateTransaction 响应的 unitsConsumed
+   *
+   * @return 模拟失败 (err 不为 null) 或未返回时为 -1
+   */
+  public static long unitsConsumed(byte[] body) {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      enterResult(parser);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        if (parser.nextToken() != JsonToken.START_OBJECT || !"value".equals(field)) {
+          parser.skipChildren();
+          continue;
+        }
+        long unitsConsumed = -1;
+        boolean failed = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String valueField = parser.currentName();
+          final JsonToken token = parser.nextToken();
+          if ("err".equals(valueField)) {
+            failed = token != JsonToken.VALUE_NULL;
+          } else if ("unitsConsumed".equals(valueField) && token == JsonToken.VALUE_NUMBER_INT) {
+            unitsConsumed = parser.getLongValue();
+          }
+          parser.skipChildren();
+        }
+        return failed ? -1 : unitsConsumed;
+      }
+      return -1;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** 解析 tip floor 接口返回数组的第一个元素 */
+  public static JitoApi.TipFloor tipFloor(byte[] body) {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY
+          || parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalStateException("Unexpected tip floor response");
+      }
+      String time = null;
+      double p25 = 0, p50 = 0, p75 = 0, p95 = 0, p99 = 0, ema50 = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        switch (field) {
+          case "time" -> time = parser.getText();
+          case "landed_tips_25th_percentile" -> p25 = parser.getDoubleValue();
+          case "landed_tips_50th_percentile" -> p50 = parser.getDoubleValue();
+          case "landed_tips_75th_percentile" -> p75 = parser.getDoubleValue();
+          case "landed_tips_95th_percentile" -> p95 = parser.getDoubleValue();
+          case "landed_tips_99th_percentile" -> p99 = parser.getDoubleValue();
+          case "ema_landed_tips_50th_percentile" -> ema50 = parser.getDoubleValue();
+          default -> parser.skipChildren();
+        }
+      }
+      return new JitoApi.TipFloor(time, p25, p50, p75, p95, p99, ema50);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** 只关心成败的调用 (如 sendTransaction)：error 响应直接抛出 */
+  public static void requireResult(byte[] body) {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      seekResult(parser);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** result 为字符串的调用 (如 sendBundle 返回 bundle id)，error 响应直接抛出 */
+  public static String stringResult(byte[] body) {
+    try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+      if (seekResult(parser) != JsonToken.VALUE_STRING) {
+        throw new IllegalStateException("Unexpected rpc result");
+      }
+      return parser.getText();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** 定位到 JSON-RPC 响应的 result 对象内部，error 响应直接抛出 */
+  private static void enterResult(JsonParser parser) throws IOException {
+    if (seekResult(parser) != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Unexpected rpc result");
+    }
+  }
+
+  /**
+   * @return result 字段值的第一个 token
+   */
+  private static JsonToken seekResult(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Unexpected rpc response");
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      final JsonToken token = parser.nextToken();
+      if ("result".equals(field)) {
+        return token;
+      }
+      if ("error".equals(field) && token == JsonToken.START_OBJECT) {
+        throw new IllegalStateException("Rpc error: " + readErrorMessage(parser));
+      }
+      parser.skipChildren();
+    }
+    throw new IllegalStateException("Rpc response without result");
+  }
+
+  private static String readErrorMessage(JsonParser parser) throws IOException {
+    String message = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      if ("message".equals(field)) {
+        message = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return message;
+  }
+
+  private static long readSlot(JsonParser parser) throws IOException {
+    long slot = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      if ("slot".equals(field)) {
+        slot = parser.getLongValue();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return slot;
+  }
+
+  /**
+   * 把 src[offset, offset + length) 中的 base64 解码到 dst
+   *
+   * @return 写入 dst 的字节数
+   */
+  static int decodeBase64(byte[] src, int offset, int length, byte[] dst) {
+    int end = offset + length;
+    while (end > offset && src[end - 1] == '=') {
+      end--;
+    }
+    int written = 0;
+    int bits = 0;
+    int buffered = 0;
+    for (int i = offset; i < end; i++) {
+      final byte c = src[i];
+      final int value = c < 0 ? -1 : BASE64_VALUES[c];
+      if (value < 0) {
+        throw new IllegalStateException("Illegal base64 character: " + (char) c);
+      }
+      bits = (bits << 6) | value;
+      buffered += 6;
+      if (buffered >= 8) {
+        buffered -= 8;
+        dst[written++] = (byte) (bits >> buffered);
+      }
+    }
+    return written;
+  }
+}
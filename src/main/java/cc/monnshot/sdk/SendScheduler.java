@@ -0,0 +1,276 @@
+package cc.monnshot.sdk;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按优先级分配各区域发送配额
+ *
+ * <p>每个区域 (endpoint) 一个令牌桶，速率即该区域每 IP 的限额，由一个调度线程按令牌取出当前最重要的发送：
+ * 先按类别 (卖出 &gt; 买入 &gt; 重发)，同类按截止时间早者优先。交易首次发送使用提交时的类别，之后的重发一律降为
+ * {@link Priority#REBROADCAST}，间隔按 2 的指数增长直到截止或取消。
+ */
+@Slf4j
+public class SendScheduler {
+
+  private static final long RESEND_BASE_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(
+          Long.parseLong(System.getProperty("MONNSHOT_RESEND_BASE_MS", "200")));
+
+  private static final long RESEND_MAX_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(
+          Long.parseLong(System.getProperty("MONNSHOT_RESEND_MAX_MS", "2000")));
+
+  // 令牌桶容量，1 表示严格按速率均匀发送
+  private static final double BURST =
+      Double.parseDouble(System.getProperty("MONNSHOT_SEND_BURST", "1"));
+
+  // blockhash 约 150 个区块后过期，按 400ms 出块约 60s
+  private static final long BLOCKHASH_TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  /** durable nonce 交易不随 blockhash 过期，只在取消时停止 */
+  public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  public enum Priority {
+    /** 卖出 / 止损等退出仓位的交易 */
+    EXIT,
+    /** 买入等建仓交易 */
+    ENTRY,
+    /** 已发送过的交易再次发送 */
+    REBROADCAST
+  }
+
+  /** 发送到某个区域，阻塞直到响应 */
+  @FunctionalInterface
+  public interface Transport {
+
+    /**
+     * @param attempt 该交易在此区域的第几次发送，从 0 开始
+     * @return 节点受理返回 true
+     */
+    boolean send(int zone, HttpRequest request, int attempt);
+  }
+
+  /** 一笔交易在所有区域的发送，确认或放弃后调用 {@link #cancel()} */
+  public static final class Ticket {
+    private final Priority priority;
+    private final long deadline;
+    private final CompletableFuture<Integer> firstAck = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    private Ticket(Priority priority, long deadline) {
+      this.priority = priority;
+      this.deadline = deadline;
+    }
+
+    /**
+     * @return 第一个受理该交易的区域序号
+     */
+    public CompletableFuture<Integer> firstAck() {
+      return firstAck;
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+
+    private boolean expired(long now) {
+      return cancelled || now >= deadline;
+    }
+  }
+
+  private static final class Send {
+    private final Ticket ticket;
+    // 每个区域只构建一次，重发复用
+    private final HttpRequest request;
+    private final long sequence;
+    private int attempts;
+    private long notBefore;
+
+    private Send(Ticket ticket, HttpRequest request, long sequence, long notBefore) {
+      this.ticket = ticket;
+      this.request = request;
+      this.sequence = sequence;
+      this.notBefore = notBefore;
+    }
+
+    private Priority priority() {
+      return attempts == 0 ? ticket.priority : Priority.REBROADCAST;
+    }
+  }
+
+  private static final Comparator<Send> READY_ORDER =
+      Comparator.comparing(Send::priority)
+          .thenComparingLong(send -> send.ticket.deadline)
+          .thenComparingLong(send -> send.sequence);
+
+  private static final Comparator<Send> DELAYED_ORDER =
+      Comparator.<Send>comparingLong(send -> send.notBefore)
+          .thenComparingLong(send -> send.sequence);
+
+  /** 单个区域的队列与令牌桶，所有字段在 lock 内访问 */
+  private final class Zone implements Runnable {
+    private final int index;
+    private final URI uri;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Send> ready = new PriorityQueue<>(READY_ORDER);
+    private final PriorityQueue<Send> delayed = new PriorityQueue<>(DELAYED_ORDER);
+    private double tokens = BURST;
+    private long refilledAt = System.nanoTime();
+
+    private Zone(int index, URI uri) {
+      this.index = index;
+      this.uri = uri;
+    }
+
+    private void add(Send send) {
+      lock.lock();
+      try {
+        ready.add(send);
+        changed.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (!Thread.currentThread().isInterrupted()) {
+        final Send send;
+        lock.lock();
+        try {
+          send = take();
+        } catch (InterruptedException _) {
+          Thread.currentThread().interrupt();
+          return;
+        } finally {
+          lock.unlock();
+        }
+        // attempts 只由本线程修改
+        final int attempt = send.attempts - 1;
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  if (transport.send(index, send.request, attempt)) {
+                    send.ticket.firstAck.complete(index);
+                  }
+                });
+      }
+    }
+
+    /** 等到有令牌且有可发送的交易，取出后按指数间隔放回等待队列 */
+    private Send take() throws InterruptedException {
+      while (true) {
+        final long now = System.nanoTime();
+        promote(now);
+        final Send head = ready.peek();
+        if (head == null) {
+          final Send next = delayed.peek();
+          if (next == null) {
+            changed.await();
+          } else {
+            changed.awaitNanos(next.notBefore - now);
+          }
+          continue;
+        }
+        refill(now);
+        if (tokens < 1D) {
+          // 等待期间可能有更高优先级的交易加入，醒来后重新挑选
+          changed.awaitNanos((long) ((1D - tokens) * nanosPerToken));
+          continue;
+        }
+        tokens -= 1D;
+        ready.poll();
+        final int attempt = head.attempts++;
+        head.notBefore =
+            now + Math.min(RESEND_MAX_NANOS, RESEND_BASE_NANOS << Math.min(attempt, 20));
+        if (head.notBefore < head.ticket.deadline) {
+          delayed.add(head);
+        }
+        return head;
+      }
+    }
+
+    /** 到期的重发移入就绪队列，已取消或过期的丢弃 */
+    private void promote(long now) {
+      while (!delayed.isEmpty() && delayed.peek().notBefore <= now) {
+        final Send send = delayed.poll();
+        if (!send.ticket.expired(now)) {
+          ready.add(send);
+        }
+      }
+      while (!ready.isEmpty() && ready.peek().ticket.expired(now)) {
+        ready.poll();
+      }
+    }
+
+    private void refill(long now) {
+      tokens = Math.min(BURST, tokens + (now - refilledAt) / nanosPerToken);
+      refilledAt = now;
+    }
+  }
+
+  private final String name;
+
+  private final Transport transport;
+
+  private final double nanosPerToken;
+
+  private final List<Zone> zones;
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * @param uris 每个区域的发送地址，序号即 {@link Transport#send} 的 zone
+   * @param requestsPerSecond 每个区域每 IP 的请求限额
+   */
+  public SendScheduler(
+      String name, List<URI> uris, double requestsPerSecond, Transport transport) {
+    this.name = name;
+    this.transport = transport;
+    this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    final List<Zone> zones = new ArrayList<>(uris.size());
+    for (int i = 0; i < uris.size(); i++) {
+      final Zone zone = new Zone(i, uris.get(i));
+      zones.add(zone);
+      Thread.ofVirtual().name(name + "-send-" + i).start(zone);
+    }
+    this.zones = List.copyOf(zones);
+  }
+
+  /**
+   * @param fetchedAt 获取 blockhash 时的 {@link System#nanoTime()}
+   * @return 使用该 blockhash 签名的交易的截止时间
+   */
+  public static long blockHashDeadline(long fetchedAt) {
+    return fetchedAt + BLOCKHASH_TTL_NANOS;
+  }
+
+  /**
+   * 提交到所有区域，立即返回
+   *
+   * @param deadline 截止的 {@link System#nanoTime()}，见 {@link #blockHashDeadline} 与 {@link
+   *     #NO_DEADLINE}
+   */
+  public Ticket submit(SignedTx signedTx, Priority priority, long deadline) {
+    final Ticket ticket = new Ticket(priority, deadline);
+    final long now = System.nanoTime();
+    for (Zone zone : zones) {
+      zone.add(
+          new Send(ticket, signedTx.sendRequest(zone.uri), sequence.incrementAndGet(), now));
+    }
+    log.debug("{} scheduled {} tx:{}", name, priority, signedTx.signature());
+    return ticket;
+  }
+}
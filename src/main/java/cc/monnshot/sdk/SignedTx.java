@@ -0,0 +1,118 @@
+package cc.monnshot.sdk;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import software.sava.core.encoding.Base58;
+import software.sava.core.tx.Transaction;
+
+/**
+ * 已签名交易的不可变封装
+ *
+ * <p>签名、base64 编码、sendTransaction 请求体都只生成一次；RPC 与各 Jito 区域的重复发送共用同一份请求字节，
+ * 每个节点只需构建一次 {@link HttpRequest}。传入的字节在构造时复制，{@link #raw()} 返回副本。
+ */
+public final class SignedTx {
+
+  private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
+  // 序列化后的交易
+  private final byte[] raw;
+
+  private final String base64;
+
+  // skipPreflight 的 sendTransaction JSON-RPC 请求体
+  private final byte[] sendTransactionBody;
+
+  // 第一个签名的 base58，即 txId
+  private final String signature;
+
+  /** 调用方需已完成 sign */
+  public static SignedTx of(Transaction transaction) {
+    // serialized() 每次返回新数组，无需复制
+    return new SignedTx(transaction.serialized());
+  }
+
+  public static SignedTx of(byte[] raw) {
+    return new SignedTx(raw.clone());
+  }
+
+  public static SignedTx fromBase64(String base64) {
+    return new SignedTx(Base64.getDecoder().decode(base64), base64);
+  }
+
+  private SignedTx(byte[] raw) {
+    this(raw, Base64.getEncoder().encodeToString(raw));
+  }
+
+  private SignedTx(byte[] raw, String base64) {
+    this.raw = raw;
+    this.base64 = base64;
+    this.sendTransactionBody =
+        ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"sendTransaction\",\"params\":[\""
+                + base64
+                + "\",{\"encoding\":\"base64\",\"skipPreflight\":true,"
+                + "\"preflightCommitment\":\"confirmed\",\"maxRetries\":0}]}")
+            .getBytes(StandardCharsets.US_ASCII);
+    // 签名数量 (compact-u16) 占 1 字节，之后是第一个签名
+    this.signature = Base58.encode(raw, 1, 1 + 64);
+  }
+
+  /**
+   * @return 序列化交易的副本
+   */
+  public byte[] raw() {
+    return raw.clone();
+  }
+
+  public String base64() {
+    return base64;
+  }
+
+  public String signature() {
+    return signature;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof SignedTx other && Arrays.equals(raw, other.raw));
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(raw);
+  }
+
+  @Override
+  public String toString() {
+    return "SignedTx{signature=" + signature + ", length=" + raw.length + '}';
+  }
+
+  /** 签名区之后消息的起始位置，签名数不超过 127 时签名数量占 1 字节 */
+  public static int messageOffset(byte[] raw) {
+    return 1 + (raw[0] & 0x7f) * 64;
+  }
+
+  /** 消息头 (numRequiredSignatures) 的位置，跳过 v0 版本前缀 */
+  public static int messageHeaderOffset(byte[] raw) {
+    final int offset = messageOffset(raw);
+    return (raw[offset] & 0x80) != 0 ? offset + 1 : offset;
+  }
+
+  /** compact-u16 占用的字节数，值不超过 16383 */
+  public static int compactLength(byte[] raw, int offset) {
+    return (raw[offset] & 0x80) == 0 ? 1 : 2;
+  }
+
+  /** 发往指定节点的 sendTransaction 请求，HttpRequest 不可变，可重复发送 */
+  public HttpRequest sendRequest(URI uri) {
+    return HttpRequest.newBuilder(uri)
+        .header("Content-Type", "application/json")
+        .timeout(SEND_TIMEOUT)
+        .POST(HttpRequest.BodyPublishers.ofByteArray(sendTransactionBody))
+        .build();
+  }
+}
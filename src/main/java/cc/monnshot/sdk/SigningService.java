@@ -0,0 +1,159 @@
+package cc.monnshot.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.Signer;
+import software.sava.core.tx.Transaction;
+
+/**
+ * 集中保管私钥并批量签名
+ *
+ * <p>私钥只在注册时交给本组件，调用方按公钥请求签名。签名在固定大小的平台线程池上按核数分片并行执行；
+ * 直接对序列化交易中的消息区签名并把签名写回原数组，不复制消息。
+ */
+public class SigningService implements AutoCloseable {
+
+  private static final int THREADS =
+      Integer.parseInt(
+          System.getProperty(
+              "MONNSHOT_SIGNING_THREADS",
+              String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+  private final Map<PublicKey, Signer> signers = new ConcurrentHashMap<>();
+
+  private final int threads;
+
+  private final ExecutorService executorService;
+
+  /**
+   * @param signer 签名者公钥，必须在交易的 required signers 中
+   * @param transaction 已设置 recentBlockhash 的未签名序列化交易，签名直接写入该数组
+   */
+  public record SignRequest(PublicKey signer, byte[] transaction) {
+
+    public static SignRequest of(PublicKey signer, Transaction transaction) {
+      return new SignRequest(signer, transaction.serialized());
+    }
+  }
+
+  public SigningService() {
+    this(THREADS);
+  }
+
+  public SigningService(int threads) {
+    this.threads = Math.max(1, threads);
+    this.executorService =
+        Executors.newFixedThreadPool(
+            this.threads, Thread.ofPlatform().daemon().name("signer-", 0).factory());
+  }
+
+  /**
+   * @return 签名者公钥
+   */
+  public PublicKey register(Signer signer) {
+    signers.put(signer.publicKey(), signer);
+    return signer.publicKey();
+  }
+
+  public PublicKey register(byte[] privateKey) {
+    return register(Signer.createFromPrivateKey(privateKey));
+  }
+
+  public boolean contains(PublicKey publicKey) {
+    return signers.containsKey(publicKey);
+  }
+
+  /** 在调用线程上签名，单笔交易的热路径不切换线程 */
+  public SignedTx signNow(SignRequest request) {
+    return sign(signer(request.signer()), request);
+  }
+
+  public CompletableFuture<SignedTx> sign(SignRequest request) {
+    final Signer signer = signer(request.signer());
+    return CompletableFuture.supplyAsync(() -> sign(signer, request), executorService);
+  }
+
+  /**
+   * 批量签名，按线程数切成连续分片并行执行
+   *
+   * @return 与 requests 一一对应
+   */
+  public List<SignedTx> signAll(List<SignRequest> requests) {
+    if (requests.isEmpty()) {
+      return List.of();
+    }
+    final Signer[] resolved = new Signer[requests.size()];
+    for (int i = 0; i < resolved.length; i++) {
+      resolved[i] = signer(requests.get(i).signer());
+    }
+    if (requests.size() == 1) {
+      return List.of(sign(resolved[0], requests.getFirst()));
+    }
+    final SignedTx[] signed = new SignedTx[requests.size()];
+    final int chunk = (requests.size() + threads - 1) / threads;
+    final List<CompletableFuture<Void>> futures = new ArrayList<>(threads);
+    for (int from = 0; from < requests.size(); from += chunk) {
+      final int start = from;
+      final int end = Math.min(requests.size(), from + chunk);
+      futures.add(
+          CompletableFuture.runAsync(
+              () -> {
+                for (int i = start; i < end; i++) {
+                  signed[i] = sign(resolved[i], requests.get(i));
+                }
+              },
+              executorService));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    return List.of(signed);
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdown();
+  }
+
+  private Signer signer(PublicKey publicKey) {
+    final Signer signer = signers.get(publicKey);
+    if (signer == null) {
+      throw new IllegalStateException("Unknown signer: " + publicKey);
+    }
+    return signer;
+  }
+
+  private static SignedTx sign(Signer signer, SignRequest request) {
+    final byte[] transaction = request.transaction();
+    final int index = signerIndex(transaction, signer.publicKey());
+    final int message = SignedTx.messageOffset(transaction);
+    final byte[] signature = signer.sign(transaction, message, transaction.length - message);
+    System.arraycopy(signature, 0, transaction, 1 + index * 64, signature.length);
+    return SignedTx.of(transaction);
+  }
+
+  /** 签名者在 required signers 中的位置，即签名区中的槽位 */
+  private static int signerIndex(byte[] transaction, PublicKey publicKey) {
+    final int header = SignedTx.messageHeaderOffset(transaction);
+    final int numRequiredSignatures = transaction[header] & 0xff;
+    final int keys = header + 3 + SignedTx.compactLength(transaction, header + 3);
+    final byte[] expected = publicKey.toByteArray();
+    for (int i = 0; i < numRequiredSignatures; i++) {
+      if (Arrays.equals(
+          transaction,
+          keys + i * PublicKey.PUBLIC_KEY_LENGTH,
+          keys + (i + 1) * PublicKey.PUBLIC_KEY_LENGTH,
+          expected,
+          0,
+          expected.length)) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Not a required signer: " + publicKey);
+  }
+}
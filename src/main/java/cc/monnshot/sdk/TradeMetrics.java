@@ -0,0 +1,218 @@
+package cc.monnshot.sdk;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 交易链路耗时统计
+ *
+ * <p>指标注册在 {@link Metrics#globalRegistry}，Spring Boot Actuator 启动后会把 Prometheus registry 加入其中； 未启动 Spring
+ * 时 globalRegistry 为空实现。{@code -DMONNSHOT_METRICS=false} 可完全关闭计时。
+ */
+@Slf4j
+public class TradeMetrics {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("MONNSHOT_METRICS", String.valueOf(true)));
+
+  private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+
+  private static final Map<String, Timer> PHASE_TIMERS = new ConcurrentHashMap<>();
+
+  private static final Map<RpcKey, RpcMeters> RPC_METERS = new ConcurrentHashMap<>();
+
+  private static final Map<String, Counter> OUTCOME_COUNTERS = new ConcurrentHashMap<>();
+
+  private static final Map<String, Timer> TX_TIMERS = new ConcurrentHashMap<>();
+
+  public enum Phase {
+    PDA,
+    CURVE_FETCH,
+    BLOCKHASH_FETCH,
+    QUOTE,
+    BUILD,
+    SIGN,
+    SUBMIT,
+    TOTAL
+  }
+
+  private record RpcKey(String client, String endpoint, String method) {}
+
+  private record RpcMeters(Timer success, Timer failure, Counter errors) {}
+
+  public static boolean enabled() {
+    return ENABLED;
+  }
+
+  /** 返回计时起点，关闭时返回 0 */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * 记录交易阶段耗时
+   *
+   * @param side buy / sell
+   */
+  public static void phase(String side, Phase phase, long startNanos) {
+    if (!ENABLED) {
+      return;
+    }
+    PHASE_TIMERS
+        .computeIfAbsent(
+            side + ':' + phase,
+            _ ->
+                Timer.builder("monnshot.trade.phase")
+                    .tag("side", side)
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(REGISTRY))
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** 异步阶段 (如并发拉取曲线和 blockhash) 在 future 完成时计时 */
+  public static <T> CompletableFuture<T> phase(
+      String side, Phase phase, CompletableFuture<T> future) {
+    if (!ENABLED) {
+      return future;
+    }
+    final long startNanos = System.nanoTime();
+    return future.whenComplete((_, _) -> phase(side, phase, startNanos));
+  }
+
+  /**
+   * 记录一次 RPC 调用的耗时与错误
+   *
+   * @param client rpc / jito
+   * @param endpoint 请求地址
+   * @param method rpc 方法
+   */
+  public static <T> CompletableFuture<T> rpc(
+      String client, String endpoint, String method, Supplier<CompletableFuture<T>> call) {
+    if (!ENABLED) {
+      return call.get();
+    }
+    final RpcMeters meters = rpcMeters(client, endpoint, method);
+    final long startNanos = System.nanoTime();
+    final CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      recordRpc(meters, startNanos, e);
+      throw e;
+    }
+    return future.whenComplete((_, throwable) -> recordRpc(meters, startNanos, throwable));
+  }
+
+  /**
+   * 交易从第一次发送到被确认 (landed) 或超时 (expired)
+   *
+   * @param path rpc / jito
+   */
+  public static void outcome(String path, boolean landed, long submitStartNanos) {
+    if (!ENABLED) {
+      return;
+    }
+    final String outcome = landed ? "landed" : "expired";
+    OUTCOME_COUNTERS
+        .computeIfAbsent(
+            path + ':' + outcome,
+            _ ->
+                Counter.builder("monnshot.tx.outcome")
+                    .tag("path", path)
+                    .tag("outcome", outcome)
+                    .register(REGISTRY))
+        .increment();
+    if (landed) {
+      txTimer("monnshot.tx.confirm", path)
+          .record(System.nanoTime() - submitStartNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** 从开始发送到任一节点第一次返回 */
+  public static void firstAck(String path, long submitStartNanos) {
+    if (!ENABLED) {
+      return;
+    }
+    txTimer("monnshot.tx.first-ack", path)
+        .record(System.nanoTime() - submitStartNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * 每个节点第一次发送的耗时，按连接是否已预热区分
+   *
+   * @param warm 发送前 ConnectionWarmer 是否认为连接可用
+   */
+  public static void firstSend(String path, boolean warm, long elapsedNanos) {
+    if (!ENABLED) {
+      return;
+    }
+    final String connection = warm ? "warm" : "cold";
+    TX_TIMERS
+        .computeIfAbsent(
+            "monnshot.tx.first-send:" + path + ':' + connection,
+            _ ->
+                Timer.builder("monnshot.tx.first-send")
+                    .tag("path", path)
+                    .tag("connection", connection)
+                    .register(REGISTRY))
+        .record(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static Timer txTimer(String name, String path) {
+    return TX_TIMERS.computeIfAbsent(
+        name + ':' + path, _ -> Timer.builder(name).tag("path", path).register(REGISTRY));
+  }
+
+  private static void recordRpc(RpcMeters meters, long startNanos, Throwable throwable) {
+    final long elapsed = System.nanoTime() - startNanos;
+    if (throwable == null) {
+      meters.success.record(elapsed, TimeUnit.NANOSECONDS);
+    } else {
+      meters.failure.record(elapsed, TimeUnit.NANOSECONDS);
+      meters.errors.increment();
+    }
+  }
+
+  private static RpcMeters rpcMeters(String client, String endpoint, String method) {
+    return RPC_METERS.computeIfAbsent(
+        new RpcKey(client, endpoint, method),
+        key -> {
+          final String host = host(key.endpoint);
+          return new RpcMeters(
+              rpcTimer(key, host, "success"),
+              rpcTimer(key, host, "error"),
+              Counter.builder("monnshot.rpc.errors")
+                  .tag("client", key.client)
+                  .tag("endpoint", host)
+                  .tag("method", key.method)
+                  .register(REGISTRY));
+        });
+  }
+
+  private static Timer rpcTimer(RpcKey key, String host, String outcome) {
+    return Timer.builder("monnshot.rpc.request")
+        .tag("client", key.client)
+        .tag("endpoint", host)
+        .tag("method", key.method)
+        .tag("outcome", outcome)
+        .register(REGISTRY);
+  }
+
+  private static String host(String endpoint) {
+    try {
+      final String host = URI.create(endpoint).getHost();
+      return host == null ? endpoint : host;
+    } catch (IllegalArgumentException e) {
+      return endpoint;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.Mint;
+import cc.monnshot.sdk.RpcDecoders;
+import cc.monnshot.sdk.SignedTx;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveType;
+import software.sava.core.tx.Instruction;
+
+/**
+ * 按交易形态缓存 compute unit 上限
+ *
+ * <p>每个 (曲线类型, 交易形态) 第一次出现时用 simulateTransaction 测出实际消耗，加上余量后缓存；
+ * 之后的交易带上 setComputeUnitLimit，避免按默认 200k CU 预留而多付优先费。买入时 token 账户是否已存在决定了
+ * 是否在程序内创建 ATA，模拟结果无法区分，因此 BUY 始终额外预留创建 ATA 的消耗。
+ * {@code -DMONNSHOT_CU_LIMIT=false} 关闭。
+ */
+@Slf4j
+public class ComputeUnitLimits {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("MONNSHOT_CU_LIMIT", String.valueOf(true)));
+
+  // 模拟结果上浮比例
+  private static final int MARGIN_PERCENT =
+      Integer.parseInt(System.getProperty("MONNSHOT_CU_MARGIN_PERCENT", "15"));
+
+  // 模拟波动的最低余量，不含 ATA 创建
+  private static final int MIN_HEADROOM = 2_000;
+
+  // 买入时创建 ATA (createIdempotent + initializeAccount) 的消耗上限
+  private static final int ATA_CREATE_UNITS =
+      Integer.parseInt(System.getProperty("MONNSHOT_CU_ATA_CREATE", "30000"));
+
+  private static final int MAX_LIMIT = 1_400_000;
+
+  public enum Shape {
+    BUY(ATA_CREATE_UNITS),
+    SELL(0),
+    SELL_CLOSE(0);
+
+    // 与模拟时账户状态无关的固定余量
+    private final int branchUnits;
+
+    Shape(int branchUnits) {
+      this.branchUnits = branchUnits;
+    }
+  }
+
+  private record Key(CurveType curveType, Shape shape) {}
+
+  private final Map<Key, Integer> limits = new ConcurrentHashMap<>();
+
+  private final Set<Key> simulating = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @return 已缓存的上限，未模拟过时返回 null
+   */
+  public Integer limit(CurveType curveType, Shape shape) {
+    return ENABLED ? limits.get(new Key(curveType, shape)) : null;
+  }
+
+  /**
+   * 已缓存时在指令最前面加上 setComputeUnitLimit
+   *
+   * @return false 表示尚未缓存，调用方签名后应调用 {@link #learn}
+   */
+  public boolean apply(List<Instruction> instructions, CurveType curveType, Shape shape) {
+    final Integer limit = limit(curveType, shape);
+    if (limit == null) {
+      return false;
+    }
+    instructions.addFirst(Mint._setComputeUnitLimit(limit));
+    return true;
+  }
+
+  /** 异步模拟已签名交易并缓存结果，同一形态只模拟一次，不阻塞发送 */
+  public void learn(CurveType curveType, Shape shape, SignedTx signedTx) {
+    final Key key = new Key(curveType, shape);
+    if (!ENABLED || limits.containsKey(key) || !simulating.add(key)) {
+      return;
+    }
+    HttpRpcApi.httpRpcApi()
+        .rawCall("simulateTransaction", simulateRequest(signedTx))
+        .thenApply(RpcDecoders::unitsConsumed)
+        .whenComplete(
+            (unitsConsumed, throwable) -> {
+              simulating.remove(key);
+              if (throwable != null || unitsConsumed < 0) {
+                log.warn("simulate {} failed, keep default compute limit", key, throwable);
+                return;
+              }
+              final int limit = withMargin(shape, unitsConsumed);
+              limits.put(key, limit);
+              log.info("{} unitsConsumed:{}, computeUnitLimit:{}", key, unitsConsumed, limit);
+            });
+  }
+
+  public void invalidate(CurveType curveType, Shape shape) {
+    limits.remove(new Key(curveType, shape));
+  }
+
+  static int withMargin(Shape shape, long unitsConsumed) {
+    final long margin = Math.max(MIN_HEADROOM, unitsConsumed * MARGIN_PERCENT / 100);
+    return (int) Math.min(MAX_LIMIT, unitsConsumed + margin + shape.branchUnits);
+  }
+
+  private static byte[] simulateRequest(SignedTx signedTx) {
+    // 不校验签名并替换 blockhash，预签名/已发送的交易也能模拟
+    return ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"simulateTransaction\",\"params\":[\""
+            + signedTx.base64()
+            + "\",{\"encoding\":\"base64\",\"sigVerify\":false,"
+            + "\"replaceRecentBlockhash\":true,\"commitment\":\"confirmed\"}]}")
+        .getBytes(StandardCharsets.US_ASCII);
+  }
+}
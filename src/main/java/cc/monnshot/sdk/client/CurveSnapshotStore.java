@@ -0,0 +1,295 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.RpcDecoders;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveType;
+import software.sava.core.accounts.PublicKey;
+
+/**
+ * 监听中的 CurveAccount 快照表
+ *
+ * <p>以 32 字节 mint 为 key，曲线字段按固定宽度保存在一个 {@code long[]} 中，不创建 CurveAccount / PublicKey 对象。
+ * 单写多读：只允许一个线程调用 {@code put} / {@code remove}，读线程通过每个槽位的 sequence (seqlock) 无锁读取一致的快照。
+ * 删除的槽位保留 key 并标记为墓碑，探测不会在此中断，之后的写入优先复用。
+ */
+@Slf4j
+public class CurveSnapshotStore {
+
+  private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private static final VarHandle KEY_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final CurveType[] CURVE_TYPES = CurveType.values();
+
+  // 槽位布局: sequence, key(4), totalSupply, curveAmount, curveType, slot
+  private static final int SEQ = 0;
+
+  private static final int KEY = 1;
+
+  private static final int TOTAL_SUPPLY = 5;
+
+  private static final int CURVE_AMOUNT = 6;
+
+  private static final int CURVE_TYPE = 7;
+
+  private static final int SLOT = 8;
+
+  private static final int STRIDE = 9;
+
+  // curveType 字段为该值表示槽位已删除
+  private static final long TOMBSTONE = -1;
+
+  // CurveAccount 账户数据中的偏移 (8 字节 discriminator 之后)
+  private static final int DATA_TOTAL_SUPPLY = 8;
+
+  private static final int DATA_CURVE_AMOUNT = 16;
+
+  private static final int DATA_MINT = 24;
+
+  private static final int DATA_CURVE_TYPE = 58;
+
+  private final long[] table;
+
+  private final int mask;
+
+  @Getter private volatile int size;
+
+  /** 读取结果，调用方可复用同一个实例 */
+  @Getter
+  public static class Snapshot {
+    private long totalSupply;
+    private long curveAmount;
+    private int curveType;
+    private long slot;
+
+    public long curvePosition() {
+      return totalSupply - curveAmount;
+    }
+
+    public CurveType curveTypeEnum() {
+      return CURVE_TYPES[curveType];
+    }
+  }
+
+  /**
+   * @param expectedMints 预计监听的 mint 数量，容量取其两倍向上对齐到 2 的幂
+   */
+  public CurveSnapshotStore(int expectedMints) {
+    final int capacity = Integer.highestOneBit(Math.max(16, expectedMints * 2 - 1)) << 1;
+    this.table = new long[capacity * STRIDE];
+    this.mask = capacity - 1;
+  }
+
+  public boolean put(PublicKey mint, CurveAccount curveAccount, long slot) {
+    return put(
+        mint.toByteArray(),
+        0,
+        curveAccount.totalSupply(),
+        curveAccount.curveAmount(),
+        curveAccount.curveType().ordinal(),
+        slot);
+  }
+
+  /**
+   * 直接从 getAccountInfo 解码后的账户数据写入，不反序列化 CurveAccount
+   *
+   * @return false 表示账户不存在 (已迁移) 或 slot 比已有快照旧
+   */
+  public boolean put(RpcDecoders.AccountData account) {
+    if (!account.isExists() || account.getLength() <= DATA_CURVE_TYPE) {
+      return false;
+    }
+    final byte[] data = account.getData();
+    return put(
+        data,
+        DATA_MINT,
+        (long) KEY_VIEW.get(data, DATA_TOTAL_SUPPLY),
+        (long) KEY_VIEW.get(data, DATA_CURVE_AMOUNT),
+        data[DATA_CURVE_TYPE],
+        account.getSlot());
+  }
+
+  /**
+   * 写入快照，仅限单个写线程调用
+   *
+   * @return false 表示 slot 比已有快照旧被忽略，或表已满
+   */
+  public boolean put(
+      byte[] mint, int offset, long totalSupply, long curveAmount, int curveType, long slot) {
+    final long k0 = (long) KEY_VIEW.get(mint, offset);
+    final long k1 = (long) KEY_VIEW.get(mint, offset + 8);
+    final long k2 = (long) KEY_VIEW.get(mint, offset + 16);
+    final long k3 = (long) KEY_VIEW.get(mint, offset + 24);
+    int index = index(k0, k2);
+    int free = -1;
+    for (int probe = 0; probe <= mask; probe++) {
+      final int base = index * STRIDE;
+      if (table[base + SEQ] == 0) {
+        // 不存在该 key，写入遇到的第一个墓碑或当前空槽
+        final int target = free < 0 ? base : free;
+        return write(target, true, k0, k1, k2, k3, totalSupply, curveAmount, curveType, slot);
+      }
+      final boolean tombstone = table[base + CURVE_TYPE] == TOMBSTONE;
+      if (keyEquals(base, k0, k1, k2, k3)) {
+        if (!tombstone && slot < table[base + SLOT]) {
+          return false;
+        }
+        return write(base, tombstone, k0, k1, k2, k3, totalSupply, curveAmount, curveType, slot);
+      }
+      if (tombstone && free < 0) {
+        free = base;
+      }
+      index = (index + 1) & mask;
+    }
+    if (free >= 0) {
+      return write(free, true, k0, k1, k2, k3, totalSupply, curveAmount, curveType, slot);
+    }
+    log.warn("CurveSnapshotStore is full, size:{}", size);
+    return false;
+  }
+
+  public boolean remove(PublicKey mint) {
+    return remove(mint.toByteArray(), 0);
+  }
+
+  /**
+   * 删除快照，仅限写线程调用
+   *
+   * @return false 表示不存在
+   */
+  public boolean remove(byte[] mint, int offset) {
+    final long k0 = (long) KEY_VIEW.get(mint, offset);
+    final long k1 = (long) KEY_VIEW.get(mint, offset + 8);
+    final long k2 = (long) KEY_VIEW.get(mint, offset + 16);
+    final long k3 = (long) KEY_VIEW.get(mint, offset + 24);
+    int index = index(k0, k2);
+    for (int probe = 0; probe <= mask; probe++) {
+      final int base = index * STRIDE;
+      final long seq = table[base + SEQ];
+      if (seq == 0) {
+        return false;
+      }
+      if (keyEquals(base, k0, k1, k2, k3)) {
+        if (table[base + CURVE_TYPE] == TOMBSTONE) {
+          return false;
+        }
+        LONGS.setOpaque(table, base + SEQ, seq + 1);
+        VarHandle.storeStoreFence();
+        table[base + CURVE_TYPE] = TOMBSTONE;
+        LONGS.setRelease(table, base + SEQ, seq + 2);
+        size--;
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  public boolean read(PublicKey mint, Snapshot snapshot) {
+    return read(mint.toByteArray(), 0, snapshot);
+  }
+
+  /**
+   * 无锁读取快照
+   *
+   * @return false 表示未监听该 mint
+   */
+  public boolean read(byte[] mint, int offset, Snapshot snapshot) {
+    final long k0 = (long) KEY_VIEW.get(mint, offset);
+    final long k1 = (long) KEY_VIEW.get(mint, offset + 8);
+    final long k2 = (long) KEY_VIEW.get(mint, offset + 16);
+    final long k3 = (long) KEY_VIEW.get(mint, offset + 24);
+    int index = index(k0, k2);
+    for (int probe = 0; probe <= mask; ) {
+      final int base = index * STRIDE;
+      final long seq = (long) LONGS.getAcquire(table, base + SEQ);
+      if (seq == 0) {
+        return false;
+      }
+      if ((seq & 1) != 0) {
+        Thread.onSpinWait();
+        continue;
+      }
+      final boolean matches = keyEquals(base, k0, k1, k2, k3);
+      final long totalSupply = table[base + TOTAL_SUPPLY];
+      final long curveAmount = table[base + CURVE_AMOUNT];
+      final long curveType = table[base + CURVE_TYPE];
+      final long slot = table[base + SLOT];
+      VarHandle.acquireFence();
+      if ((long) LONGS.getOpaque(table, base + SEQ) != seq) {
+        continue;
+      }
+      if (matches) {
+        if (curveType == TOMBSTONE) {
+          return false;
+        }
+        snapshot.totalSupply = totalSupply;
+        snapshot.curveAmount = curveAmount;
+        snapshot.curveType = (int) curveType;
+        snapshot.slot = slot;
+        return true;
+      }
+      index = (index + 1) & mask;
+      probe++;
+    }
+    return false;
+  }
+
+  /**
+   * @return 曲线位置 totalSupply - curveAmount，未监听返回 -1
+   */
+  public long curvePosition(byte[] mint, int offset) {
+    final Snapshot snapshot = new Snapshot();
+    return read(mint, offset, snapshot) ? snapshot.curvePosition() : -1;
+  }
+
+  /**
+   * @param added 写入空槽或墓碑，size 加一
+   */
+  private boolean write(
+      int base,
+      boolean added,
+      long k0,
+      long k1,
+      long k2,
+      long k3,
+      long totalSupply,
+      long curveAmount,
+      int curveType,
+      long slot) {
+    final long seq = table[base + SEQ];
+    LONGS.setOpaque(table, base + SEQ, seq + 1);
+    VarHandle.storeStoreFence();
+    table[base + KEY] = k0;
+    table[base + KEY + 1] = k1;
+    table[base + KEY + 2] = k2;
+    table[base + KEY + 3] = k3;
+    table[base + TOTAL_SUPPLY] = totalSupply;
+    table[base + CURVE_AMOUNT] = curveAmount;
+    table[base + CURVE_TYPE] = curveType;
+    table[base + SLOT] = slot;
+    LONGS.setRelease(table, base + SEQ, seq + 2);
+    if (added) {
+      size++;
+    }
+    return true;
+  }
+
+  private boolean keyEquals(int base, long k0, long k1, long k2, long k3) {
+    return table[base + KEY] == k0
+        && table[base + KEY + 1] == k1
+        && table[base + KEY + 2] == k2
+        && table[base + KEY + 3] == k3;
+  }
+
+  private int index(long k0, long k2) {
+    final long h = (k0 ^ k2) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,300 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeResult;
+import cc.monnshot.sdk.client.MoonshotQuoteService.QuoteSide;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+
+/**
+ * 止盈 / 止损 / 移动止损 / 进度触发的自动卖出
+ *
+ * <p>每个 mint 的规则按触发价排序保存，曲线更新时每个 mint 只报价一次，再按当前价格截取已越过的区间，
+ * 评估成本与触发的规则数相关而与规则总数无关。规则触发一次后移除，卖出走 {@link MonnShotTrade#sell}。
+ */
+@Slf4j
+public class ExitRuleEngine implements AutoCloseable {
+
+  // 按 1 个整 token (9 位精度) 的卖出报价计算单价
+  private static final BigInteger PRICE_LOT = BigInteger.valueOf(1_000_000_000L);
+
+  private final MonnShotTrade monnShotTrade;
+
+  private final MoonshotQuoteService quoteService;
+
+  private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final Map<PublicKey, MintRules> mints = new ConcurrentHashMap<>();
+
+  private final Map<Long, Rule> rules = new ConcurrentHashMap<>();
+
+  private final AtomicLong ids = new AtomicLong();
+
+  public enum Trigger {
+    /** 价格 >= threshold */
+    TAKE_PROFIT,
+    /** 价格 <= threshold */
+    STOP_LOSS,
+    /** 价格从注册后的最高价回撤 threshold (0.2 为 20%) */
+    TRAILING_STOP,
+    /** 曲线进度百分比 >= threshold */
+    PROGRESS
+  }
+
+  /**
+   * @param threshold 价格单位为 lamports / token 最小单位，与 {@link
+   *     PositionTracker.Position#averageCost()} 相同；移动止损为回撤比例，进度为百分比
+   * @param jito true 通过 jito 提交
+   */
+  public record ExitRule(
+      PublicKey mint, Trigger trigger, double threshold, SellOptions sellOptions, boolean jito) {}
+
+  /**
+   * @param price 触发时的单价
+   * @param progress 触发时的曲线进度
+   */
+  public record Fired(
+      long ruleId,
+      PublicKey owner,
+      ExitRule exitRule,
+      double price,
+      double progress,
+      long slot,
+      CompletableFuture<TradeResult> tradeResult) {}
+
+  private static final class Rule {
+    private final long id;
+    private final PublicKey signer;
+    private final ExitRule exitRule;
+    // 移动止损当前所在的最高价档位
+    private double peak;
+
+    private Rule(long id, PublicKey signer, ExitRule exitRule) {
+      this.id = id;
+      this.signer = signer;
+      this.exitRule = exitRule;
+    }
+  }
+
+  /** 单个 mint 的规则索引，所有访问在该对象上同步 */
+  private static final class MintRules {
+    // 触发价 -> 规则
+    private final NavigableMap<Double, List<Rule>> takeProfit = new TreeMap<>();
+    private final NavigableMap<Double, List<Rule>> stopLoss = new TreeMap<>();
+    private final NavigableMap<Double, List<Rule>> progress = new TreeMap<>();
+    // 最高价 -> 回撤比例 -> 规则，最高价相同的移动止损共用一个档位
+    private final NavigableMap<Double, NavigableMap<Double, List<Rule>>> trailing =
+        new TreeMap<>();
+    private double lastPrice;
+    private long lastSlot = -1;
+  }
+
+  public ExitRuleEngine(MonnShotTrade monnShotTrade, MoonshotQuoteService quoteService) {
+    this.monnShotTrade = monnShotTrade;
+    this.quoteService = quoteService;
+  }
+
+  /**
+   * @return 规则 id
+   */
+  public long add(PublicKey signer, ExitRule exitRule) {
+    final Rule rule = new Rule(ids.incrementAndGet(), signer, exitRule);
+    final MintRules mintRules = mints.computeIfAbsent(exitRule.mint(), _ -> new MintRules());
+    synchronized (mintRules) {
+      if (exitRule.trigger() == Trigger.TRAILING_STOP) {
+        rule.peak = mintRules.lastPrice;
+      }
+      index(mintRules, rule);
+      rules.put(rule.id, rule);
+    }
+    return rule.id;
+  }
+
+  public boolean remove(long ruleId) {
+    final Rule rule = rules.remove(ruleId);
+    if (rule == null) {
+      return false;
+    }
+    final MintRules mintRules = mints.get(rule.exitRule.mint());
+    if (mintRules != null) {
+      synchronized (mintRules) {
+        unindex(mintRules, rule);
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    return rules.size();
+  }
+
+  /**
+   * 曲线更新时评估该 mint 的规则，slot 比上次旧时忽略
+   *
+   * @return 本次触发的规则，卖出已异步提交
+   */
+  public List<Fired> onCurve(PublicKey mint, CurveSnapshotStore.Snapshot snapshot) {
+    final MintRules mintRules = mints.get(mint);
+    if (mintRules == null) {
+      return List.of();
+    }
+    final double price =
+        quoteService
+                .quote(
+                    mint,
+                    MoonshotQuoteService.curveAdapter(snapshot.curveTypeEnum()),
+                    BigInteger.valueOf(snapshot.curvePosition()),
+                    snapshot.getSlot(),
+                    QuoteSide.SELL_COLLATERAL_BY_TOKENS,
+                    PRICE_LOT)
+                .doubleValue()
+            / PRICE_LOT.doubleValue();
+    final double progress = MoonshotCurveProgress.progressOf(snapshot.curvePosition());
+    final List<Rule> triggered = new ArrayList<>();
+    synchronized (mintRules) {
+      if (snapshot.getSlot() < mintRules.lastSlot) {
+        return List.of();
+      }
+      mintRules.lastSlot = snapshot.getSlot();
+      mintRules.lastPrice = price;
+      drain(mintRules.takeProfit.headMap(price, true), triggered);
+      drain(mintRules.stopLoss.tailMap(price, true), triggered);
+      drain(mintRules.progress.headMap(progress, true), triggered);
+      raisePeaks(mintRules.trailing, price);
+      for (Map.Entry<Double, NavigableMap<Double, List<Rule>>> entry :
+          mintRules.trailing.entrySet()) {
+        if (entry.getKey() <= 0) {
+          continue;
+        }
+        drain(entry.getValue().headMap(1 - price / entry.getKey(), true), triggered);
+      }
+      mintRules.trailing.values().removeIf(Map::isEmpty);
+    }
+    if (triggered.isEmpty()) {
+      return List.of();
+    }
+    final List<Fired> fired = new ArrayList<>(triggered.size());
+    for (Rule rule : triggered) {
+      if (rules.remove(rule.id) == null) {
+        continue;
+      }
+      log.info(
+          "exit rule {} {} fired, mint:{} price:{} progress:{}",
+          rule.id,
+          rule.exitRule.trigger(),
+          mint,
+          price,
+          progress);
+      fired.add(
+          new Fired(
+              rule.id,
+              rule.signer,
+              rule.exitRule,
+              price,
+              progress,
+              snapshot.getSlot(),
+              CompletableFuture.supplyAsync(() -> sell(rule), executorService)));
+    }
+    return fired;
+  }
+
+  /** 从快照表读取曲线状态评估，未监听该 mint 时不触发 */
+  public List<Fired> evaluate(CurveSnapshotStore curveSnapshotStore, PublicKey mint) {
+    if (!mints.containsKey(mint)) {
+      return List.of();
+    }
+    final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+    return curveSnapshotStore.read(mint, snapshot) ? onCurve(mint, snapshot) : List.of();
+  }
+
+  @Override
+  public void close() {
+    executorService.close();
+  }
+
+  private TradeResult sell(Rule rule) {
+    try {
+      return monnShotTrade.sell(
+          rule.exitRule.mint(), rule.signer, rule.exitRule.sellOptions(), rule.exitRule.jito());
+    } catch (RuntimeException e) {
+      log.warn("exit rule {} sell failed, mint:{}", rule.id, rule.exitRule.mint(), e);
+      throw e;
+    }
+  }
+
+  /** 最高价低于当前价的移动止损档位合并到当前价 */
+  private static void raisePeaks(
+      NavigableMap<Double, NavigableMap<Double, List<Rule>>> trailing, double price) {
+    final NavigableMap<Double, NavigableMap<Double, List<Rule>>> lower =
+        trailing.headMap(price, false);
+    if (lower.isEmpty()) {
+      return;
+    }
+    final NavigableMap<Double, List<Rule>> merged =
+        trailing.computeIfAbsent(price, _ -> new TreeMap<>());
+    for (NavigableMap<Double, List<Rule>> drawdowns : lower.values()) {
+      drawdowns.forEach(
+          (drawdown, rules) -> {
+            rules.forEach(rule -> rule.peak = price);
+            merged.computeIfAbsent(drawdown, _ -> new ArrayList<>()).addAll(rules);
+          });
+    }
+    lower.clear();
+  }
+
+  private static void drain(NavigableMap<Double, List<Rule>> crossed, List<Rule> triggered) {
+    for (List<Rule> rules : crossed.values()) {
+      triggered.addAll(rules);
+    }
+    crossed.clear();
+  }
+
+  private static void index(MintRules mintRules, Rule rule) {
+    final double threshold = rule.exitRule.threshold();
+    final NavigableMap<Double, List<Rule>> levels =
+        switch (rule.exitRule.trigger()) {
+          case TAKE_PROFIT -> mintRules.takeProfit;
+          case STOP_LOSS -> mintRules.stopLoss;
+          case PROGRESS -> mintRules.progress;
+          case TRAILING_STOP -> mintRules.trailing.computeIfAbsent(rule.peak, _ -> new TreeMap<>());
+        };
+    levels.computeIfAbsent(threshold, _ -> new ArrayList<>()).add(rule);
+  }
+
+  private static void unindex(MintRules mintRules, Rule rule) {
+    final NavigableMap<Double, List<Rule>> levels =
+        switch (rule.exitRule.trigger()) {
+          case TAKE_PROFIT -> mintRules.takeProfit;
+          case STOP_LOSS -> mintRules.stopLoss;
+          case PROGRESS -> mintRules.progress;
+          case TRAILING_STOP -> mintRules.trailing.get(rule.peak);
+        };
+    if (levels == null) {
+      return;
+    }
+    final List<Rule> sameLevel = levels.get(rule.exitRule.threshold());
+    if (sameLevel == null) {
+      return;
+    }
+    for (Iterator<Rule> iterator = sameLevel.iterator(); iterator.hasNext(); ) {
+      if (iterator.next().id == rule.id) {
+        iterator.remove();
+      }
+    }
+    if (sameLevel.isEmpty()) {
+      levels.remove(rule.exitRule.threshold());
+    }
+  }
+}
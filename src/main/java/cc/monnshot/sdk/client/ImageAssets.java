@@ -0,0 +1,88 @@
+package cc.monnshot.sdk.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 创建 token 用的图片 base64 缓存
+ *
+ * <p>从磁盘分块读取并边读边编码，不先把原图整体读入内存；同一内容 (SHA-256) 只保留一份编码结果，
+ * 文件路径、大小、修改时间都未变时不再读取文件。
+ */
+public class ImageAssets {
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private record FileKey(Path path, long size, long lastModified) {}
+
+  private final Map<FileKey, String> hashes = new ConcurrentHashMap<>();
+
+  private final Map<String, String> encoded = new ConcurrentHashMap<>();
+
+  /**
+   * @return 图片的 base64 编码，path 为 null 时返回 null
+   */
+  public String base64(Path path) {
+    if (path == null) {
+      return null;
+    }
+    try {
+      final FileKey fileKey =
+          new FileKey(
+              path.toAbsolutePath(), Files.size(path), Files.getLastModifiedTime(path).toMillis());
+      final String hash = hashes.get(fileKey);
+      if (hash != null) {
+        final String cached = encoded.get(hash);
+        if (cached != null) {
+          return cached;
+        }
+      }
+      return encode(fileKey);
+    } catch (IOException e) {
+      throw new IllegalStateException("Read image failed: " + path, e);
+    }
+  }
+
+  public int size() {
+    return encoded.size();
+  }
+
+  private String encode(FileKey fileKey) throws IOException {
+    final MessageDigest digest = sha256();
+    final long encodedSize = (fileKey.size() + 2) / 3 * 4;
+    final ByteArrayOutputStream out =
+        new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, encodedSize));
+    try (InputStream in = Files.newInputStream(fileKey.path());
+        OutputStream base64 = Base64.getEncoder().wrap(out)) {
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+        base64.write(buffer, 0, read);
+      }
+    }
+    final String hash = HexFormat.of().formatHex(digest.digest());
+    hashes.put(fileKey, hash);
+    // 内容相同的不同文件共用同一个字符串
+    return encoded.computeIfAbsent(hash, _ -> out.toString(StandardCharsets.US_ASCII));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
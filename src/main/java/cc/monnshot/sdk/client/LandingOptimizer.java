@@ -0,0 +1,189 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.JitoApi.TipFloor.TipTypeEnum;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.rpc.json.http.request.Commitment;
+
+/**
+ * 按落地结果自适应选择优先费 / 小费档位
+ *
+ * <p>每个 (提交路径, 档位) 记录指数衰减的落地率与落地耗时，选择时从最便宜的档位起取第一个满足目标落地率与耗时的档位；
+ * 样本不足的档位视为未知，没有达标档位时从请求档位起向上升级。每隔若干次选择试探低一档，使网络变好时能降下来。
+ * 统计保存在一个 {@link AtomicLongArray} 中，按结果 CAS 更新，不加锁。
+ */
+@Slf4j
+public class LandingOptimizer implements AutoCloseable {
+
+  /** 档位名，传入时由本组件选择 */
+  public static final String AUTO = "auto";
+
+  private static final double TARGET_RATE =
+      Double.parseDouble(System.getProperty("MONNSHOT_LANDING_TARGET", "0.9"));
+
+  private static final double TARGET_LATENCY_MS =
+      Double.parseDouble(System.getProperty("MONNSHOT_LANDING_LATENCY_MS", "2000"));
+
+  private static final long MIN_SAMPLES =
+      Long.parseLong(System.getProperty("MONNSHOT_LANDING_MIN_SAMPLES", "10"));
+
+  // 衰减系数，约等于最近 1 / ALPHA 笔的平均
+  private static final double ALPHA = 0.1D;
+
+  private static final int PROBE_INTERVAL = 20;
+
+  // 超时仍未确认视为未落地，blockhash 约 60s 过期
+  private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final TipTypeEnum[] LEVELS = TipTypeEnum.values();
+
+  // 每个 (路径, 档位) 的字段：样本数、落地率、落地耗时 (ms)，后两个为 double 位
+  private static final int SAMPLES = 0;
+  private static final int RATE = 1;
+  private static final int LATENCY = 2;
+  private static final int FIELDS = 3;
+
+  public enum Path {
+    RPC,
+    JITO;
+
+    public static Path of(boolean jito) {
+      return jito ? JITO : RPC;
+    }
+  }
+
+  /**
+   * @param landRate 衰减后的落地率
+   * @param latencyMs 衰减后的落地耗时，受确认轮询间隔影响约有 400ms 误差
+   */
+  public record LevelStats(
+      Path path, TipTypeEnum level, long samples, double landRate, double latencyMs) {
+
+    boolean qualified() {
+      return samples >= MIN_SAMPLES && landRate >= TARGET_RATE && latencyMs <= TARGET_LATENCY_MS;
+    }
+  }
+
+  private final AtomicLongArray stats =
+      new AtomicLongArray(Path.values().length * LEVELS.length * FIELDS);
+
+  private final AtomicLong choices = new AtomicLong();
+
+  private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * @param requested 请求的档位，{@link #AUTO} 或 null 时按中档起步
+   * @return 具体档位名，非 {@link #AUTO} 时原样返回
+   */
+  public String choose(Path path, String requested) {
+    if (requested != null && !AUTO.equalsIgnoreCase(requested)) {
+      return requested;
+    }
+    return choose(path, TipTypeEnum.MEDIUM).name();
+  }
+
+  public TipTypeEnum choose(Path path, TipTypeEnum floor) {
+    int chosen = -1;
+    for (int level = 0; level < LEVELS.length; level++) {
+      if (stats(path, LEVELS[level]).qualified()) {
+        chosen = level;
+        break;
+      }
+    }
+    if (chosen < 0) {
+      chosen = escalate(path, floor.ordinal());
+    } else if (chosen > 0 && choices.incrementAndGet() % PROBE_INTERVAL == 0) {
+      chosen--;
+    }
+    return LEVELS[chosen];
+  }
+
+  /**
+   * 记录一次提交结果
+   *
+   * @param latencyNanos 提交到确认的耗时，未落地时忽略
+   */
+  public void record(Path path, TipTypeEnum level, boolean landed, long latencyNanos) {
+    final int base = (path.ordinal() * LEVELS.length + level.ordinal()) * FIELDS;
+    final long samples = stats.getAndIncrement(base + SAMPLES);
+    // 样本少时按算术平均，避免初值影响
+    final double alpha = Math.max(ALPHA, 1D / (samples + 1));
+    update(base + RATE, landed ? 1D : 0D, alpha);
+    if (landed) {
+      update(base + LATENCY, latencyNanos / 1_000_000D, alpha);
+    }
+  }
+
+  /**
+   * 异步等待确认并记录结果
+   *
+   * @param level 实际使用的档位名
+   * @param submitStart 提交开始时的 {@link System#nanoTime()}
+   */
+  public void track(Path path, String level, String txId, long submitStart) {
+    if (txId == null) {
+      return;
+    }
+    final TipTypeEnum tipTypeEnum = MonnShotTrade.feeLevel(level);
+    executorService.execute(
+        () -> {
+          final Commitment status = HttpRpcApi.awaitConfirmation(txId, CONFIRM_TIMEOUT);
+          final boolean landed =
+              Commitment.CONFIRMED.equals(status) || Commitment.FINALIZED.equals(status);
+          record(path, tipTypeEnum, landed, System.nanoTime() - submitStart);
+          log.debug("{} {} tx:{} landed:{}", path, tipTypeEnum, txId, landed);
+        });
+  }
+
+  public LevelStats stats(Path path, TipTypeEnum level) {
+    final int base = (path.ordinal() * LEVELS.length + level.ordinal()) * FIELDS;
+    return new LevelStats(
+        path,
+        level,
+        stats.get(base + SAMPLES),
+        Double.longBitsToDouble(stats.get(base + RATE)),
+        Double.longBitsToDouble(stats.get(base + LATENCY)));
+  }
+
+  public List<LevelStats> stats() {
+    final List<LevelStats> all = new ArrayList<>(Path.values().length * LEVELS.length);
+    for (Path path : Path.values()) {
+      for (TipTypeEnum level : LEVELS) {
+        all.add(stats(path, level));
+      }
+    }
+    return all;
+  }
+
+  @Override
+  public void close() {
+    executorService.close();
+  }
+
+  /** 从 floor 起第一个样本不足的档位，都已证明不达标时用最高档 */
+  private int escalate(Path path, int floor) {
+    for (int level = floor; level < LEVELS.length; level++) {
+      if (stats(path, LEVELS[level]).samples() < MIN_SAMPLES) {
+        return level;
+      }
+    }
+    return LEVELS.length - 1;
+  }
+
+  private void update(int index, double sample, double alpha) {
+    long previous;
+    long next;
+    do {
+      previous = stats.get(index);
+      final double average = Double.longBitsToDouble(previous);
+      next = Double.doubleToRawLongBits(average + alpha * (sample - average));
+    } while (!stats.compareAndSet(index, previous, next));
+  }
+}
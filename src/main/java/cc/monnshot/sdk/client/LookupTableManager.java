@@ -0,0 +1,214 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.AddressLookupTables;
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.SignedTx;
+import cc.monnshot.sdk.SigningService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.lookup.AddressLookupTable;
+import software.sava.core.tx.Instruction;
+import software.sava.core.tx.Transaction;
+import software.sava.rpc.json.http.request.Commitment;
+import software.sava.rpc.json.http.response.AccountInfo;
+
+/**
+ * Moonshot 静态账户的 address lookup table
+ *
+ * <p>每笔 buy/sell 引用 12 个账户，其中手续费与配置账户对所有交易相同；放进 lookup table 后
+ * v0 交易中每个账户只占 1 字节索引，同一笔交易可容纳更多钱包或 mint 的交易腿。被调用的程序不能从 lookup table 加载，
+ * 与签名者一起留在静态账户中。
+ *
+ * <p>{@code -DMONNSHOT_LOOKUP_TABLE} 指定已有表地址；未指定时由 {@link #ensure} 创建。
+ */
+@Slf4j
+public class LookupTableManager {
+
+  public static final List<PublicKey> STATIC_ACCOUNTS =
+      List.of(MonnshotProgram.DEX_FEE, MonnshotProgram.HELIO_FEE, MonnshotProgram.CONFIG);
+
+  private static final int SEND_ATTEMPTS = 3;
+
+  private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final long SLOT_POLL_MILLIS = 200;
+
+  private volatile PublicKey address;
+
+  private volatile AddressLookupTable table;
+
+  private volatile Set<PublicKey> addresses = Set.of();
+
+  public LookupTableManager() {
+    this(
+        System.getProperty("MONNSHOT_LOOKUP_TABLE") == null
+            ? null
+            : PublicKey.fromBase58Encoded(System.getProperty("MONNSHOT_LOOKUP_TABLE")));
+  }
+
+  public LookupTableManager(PublicKey address) {
+    this.address = address;
+  }
+
+  /**
+   * @return 已加载的表，未加载或不存在时返回 null
+   */
+  public AddressLookupTable table() {
+    return table;
+  }
+
+  /** 已加载的表中是否包含该地址，用于估算 v0 交易大小 */
+  public boolean contains(PublicKey publicKey) {
+    return addresses.contains(publicKey);
+  }
+
+  /** 从链上重新读取表内容 */
+  public AddressLookupTable load() {
+    final PublicKey current = address;
+    if (current == null) {
+      return null;
+    }
+    final List<AccountInfo<AddressLookupTable>> accounts =
+        HttpRpcApi.getMultipleAccounts(new PublicKey[] {current});
+    final AccountInfo<AddressLookupTable> accountInfo =
+        accounts.isEmpty() ? null : accounts.getFirst();
+    final AddressLookupTable loaded = accountInfo == null ? null : accountInfo.data();
+    addresses = Set.copyOf(present(loaded));
+    table = loaded;
+    return loaded;
+  }
+
+  /**
+   * 确保表存在且包含 {@link #STATIC_ACCOUNTS} 与 extra，缺少的地址由 authority 付费写入
+   *
+   * @param signingService 需已注册 authority
+   *
+   * <p>阻塞直到交易确认且链上 slot 超过确认时的 slot，返回可用于 v0 交易的表；交易多次发送仍未确认时抛出异常。
+   */
+  public synchronized AddressLookupTable ensure(
+      SigningService signingService, PublicKey authority, List<PublicKey> extra) {
+    final List<PublicKey> wanted = new ArrayList<>(STATIC_ACCOUNTS);
+    wanted.addAll(extra);
+    final AddressLookupTable loaded = load();
+    final List<PublicKey> missing = missing(loaded, wanted);
+    if (loaded != null && missing.isEmpty()) {
+      return loaded;
+    }
+
+    final List<List<Instruction>> transactions = new ArrayList<>();
+    PublicKey tableAddress = address;
+    Instruction create = null;
+    if (loaded == null) {
+      final long recentSlot =
+          HttpRpcApi.httpRpcApi()
+              .call("getSlot", client -> client.getSlot(Commitment.FINALIZED))
+              .join();
+      final AddressLookupTables.Create created =
+          AddressLookupTables.createLookupTable(authority, authority, recentSlot);
+      tableAddress = created.address();
+      create = created.instruction();
+    }
+    for (Instruction extend :
+        AddressLookupTables.extendLookupTable(tableAddress, authority, authority, missing)) {
+      final List<Instruction> instructions = new ArrayList<>(2);
+      if (create != null) {
+        instructions.add(create);
+        create = null;
+      }
+      instructions.add(extend);
+      transactions.add(instructions);
+    }
+    for (List<Instruction> instructions : transactions) {
+      send(signingService, authority, instructions);
+    }
+    address = tableAddress;
+    log.info("lookup table {} extended with {} accounts", tableAddress, missing.size());
+
+    // 新写入的地址从下一个 slot 起可用
+    awaitSlotAfter(currentSlot());
+    final AddressLookupTable ready = load();
+    if (ready == null || !missing(ready, wanted).isEmpty()) {
+      throw new IllegalStateException("Lookup table not ready: " + tableAddress);
+    }
+    return ready;
+  }
+
+  /** 每次用新的 blockhash 重新签名发送，直到确认 */
+  private static void send(
+      SigningService signingService, PublicKey authority, List<Instruction> instructions) {
+    for (int attempt = 1; ; attempt++) {
+      final String blockHash =
+          HttpRpcApi.httpRpcApi()
+              .call(
+                  "getLatestBlockhash",
+                  client -> client.getLatestBlockHash(Commitment.CONFIRMED))
+              .join()
+              .blockHash();
+      final Transaction transaction = Transaction.createTx(authority, instructions);
+      transaction.setRecentBlockHash(blockHash);
+      final SignedTx signedTx =
+          signingService.signNow(SigningService.SignRequest.of(authority, transaction));
+      final String txId = HttpRpcApi.sendTransactionSkipPreflight(signedTx);
+      final Commitment status = HttpRpcApi.awaitConfirmation(txId, CONFIRM_TIMEOUT);
+      if (Commitment.CONFIRMED.equals(status) || Commitment.FINALIZED.equals(status)) {
+        return;
+      }
+      if (attempt >= SEND_ATTEMPTS) {
+        throw new IllegalStateException("Lookup table tx not confirmed: " + txId);
+      }
+      log.warn("lookup table tx {} not confirmed, attempt {}", txId, attempt);
+    }
+  }
+
+  private static long currentSlot() {
+    return HttpRpcApi.httpRpcApi()
+        .call("getSlot", client -> client.getSlot(Commitment.CONFIRMED))
+        .join();
+  }
+
+  private static void awaitSlotAfter(long slot) {
+    while (currentSlot() <= slot) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(SLOT_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted waiting for slot " + slot, e);
+      }
+    }
+  }
+
+  /** 表已加载时构建 v0 交易，否则退回 legacy 交易 */
+  public Transaction createTx(PublicKey feePayer, List<Instruction> instructions) {
+    final AddressLookupTable current = table;
+    return current == null
+        ? Transaction.createTx(feePayer, instructions)
+        : Transaction.createTx(feePayer, instructions, current);
+  }
+
+  static List<PublicKey> missing(AddressLookupTable table, List<PublicKey> wanted) {
+    final Set<PublicKey> present = present(table);
+    final List<PublicKey> missing = new ArrayList<>();
+    for (PublicKey publicKey : wanted) {
+      if (present.add(publicKey)) {
+        missing.add(publicKey);
+      }
+    }
+    return missing;
+  }
+
+  private static Set<PublicKey> present(AddressLookupTable table) {
+    final Set<PublicKey> present = new HashSet<>();
+    if (table != null) {
+      for (int i = 0; i < table.numAccounts(); i++) {
+        present.add(table.account(i));
+      }
+    }
+    return present;
+  }
+}
@@ -2,13 +2,25 @@ package cc.monnshot.sdk.client;
 
 import cc.monnshot.sdk.AsyncVirtual;
 import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.HttpTransport;
 import cc.monnshot.sdk.JitoApi;
+import cc.monnshot.sdk.JitoApi.TipFloor.TipTypeEnum;
 import cc.monnshot.sdk.Mint;
+import cc.monnshot.sdk.NoncePool;
+import cc.monnshot.sdk.SendScheduler;
+import cc.monnshot.sdk.SendScheduler.Priority;
+import cc.monnshot.sdk.SignedTx;
+import cc.monnshot.sdk.SigningService;
+import cc.monnshot.sdk.SigningService.SignRequest;
+import cc.monnshot.sdk.TradeMetrics;
+import cc.monnshot.sdk.TradeMetrics.Phase;
+import cc.monnshot.sdk.client.ComputeUnitLimits.Shape;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,15 +28,12 @@ import java.util.concurrent.CompletableFuture;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 import software.sava.anchor.programs.moonshot.anchor.TokenLaunchpadProgram;
 import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
 import software.sava.anchor.programs.moonshot.anchor.types.TradeParams;
-import software.sava.core.accounts.ProgramDerivedAddress;
 import software.sava.core.accounts.PublicKey;
 import software.sava.core.accounts.Signer;
 import software.sava.core.accounts.SolanaAccounts;
@@ -43,23 +52,105 @@ public class MonnShotTrade {
 
   private final RestClient restClient;
 
+  private final MoonshotQuoteService quoteService;
+
+  private final ComputeUnitLimits computeUnitLimits;
+
+  private final SigningService signingService;
+
+  // 为 null 时卖出前通过 RPC 查询余额
+  private final PositionTracker positionTracker;
+
+  // 为 null 时按请求档位提交，不统计落地结果
+  private final LandingOptimizer landingOptimizer;
+
+  // 各档位的优先费 (micro-lamports / CU) 与 jito 小费 (sol)，顺序同 TipTypeEnum
+  private static final long[] UNIT_PRICES =
+      Arrays.stream(
+              System.getProperty("MONNSHOT_UNIT_PRICES", "100000,200000,400000,1000000,2000000")
+                  .split(","))
+          .mapToLong(price -> Long.parseLong(price.trim()))
+          .toArray();
+
+  private static final BigDecimal[] JITO_TIPS =
+      Arrays.stream(
+              System.getProperty("MONNSHOT_JITO_TIPS", "0.00001,0.00001605,0.00003,0.0001,0.0005")
+                  .split(","))
+          .map(tip -> new BigDecimal(tip.trim()))
+          .toArray(BigDecimal[]::new);
+
+  static {
+    // 按 TipTypeEnum.ordinal() 取值，数量不符时启动即失败
+    final int levels = TipTypeEnum.values().length;
+    if (UNIT_PRICES.length != levels || JITO_TIPS.length != levels) {
+      throw new IllegalStateException(
+          "MONNSHOT_UNIT_PRICES and MONNSHOT_JITO_TIPS need "
+              + levels
+              + " values, got "
+              + UNIT_PRICES.length
+              + " and "
+              + JITO_TIPS.length);
+    }
+  }
+
+  public static final String API_HOST = "https://api.moonshot.cc";
+
   private static final String API_PATH_TOKEN_CREATE = "https://api.moonshot.cc/tokens/v1";
 
   private static final String API_PATH_TOKEN_SUBMIT = "https://api.moonshot.cc/tokens/v1/%s/submit";
 
   public MonnShotTrade() {
+    this(new MoonshotQuoteService());
+  }
+
+  public MonnShotTrade(MoonshotQuoteService quoteService) {
+    this(quoteService, new ComputeUnitLimits());
+  }
+
+  public MonnShotTrade(MoonshotQuoteService quoteService, ComputeUnitLimits computeUnitLimits) {
+    this(quoteService, computeUnitLimits, null);
+  }
+
+  /**
+   * @param positionTracker 本地持仓，部分卖出按本地持仓计算，交易确认后按实际成交写回
+   */
+  public MonnShotTrade(
+      MoonshotQuoteService quoteService,
+      ComputeUnitLimits computeUnitLimits,
+      PositionTracker positionTracker) {
+    this(quoteService, computeUnitLimits, positionTracker, null);
+  }
+
+  /**
+   * @param landingOptimizer 档位为 {@link LandingOptimizer#AUTO} 时由其选择，并统计每笔提交的落地结果
+   */
+  public MonnShotTrade(
+      MoonshotQuoteService quoteService,
+      ComputeUnitLimits computeUnitLimits,
+      PositionTracker positionTracker,
+      LandingOptimizer landingOptimizer) {
+    this(quoteService, computeUnitLimits, positionTracker, landingOptimizer, new SigningService());
+  }
+
+  /**
+   * @param signingService 保管私钥，交易接口只接收签名者公钥
+   */
+  public MonnShotTrade(
+      MoonshotQuoteService quoteService,
+      ComputeUnitLimits computeUnitLimits,
+      PositionTracker positionTracker,
+      LandingOptimizer landingOptimizer,
+      SigningService signingService) {
+    this.quoteService = quoteService;
+    this.signingService = signingService;
+    this.computeUnitLimits = computeUnitLimits;
+    this.positionTracker = positionTracker;
+    this.landingOptimizer = landingOptimizer;
     final RestClient.Builder builder = RestClient.builder();
-    final HttpComponentsClientHttpRequestFactory httpComponentsClientHttpRequestFactory =
-        ClientHttpRequestFactoryBuilder.httpComponents()
-            .withCustomizer(
-                httpComponentsClientHttpRequestFactory1 -> {
-                  httpComponentsClientHttpRequestFactory1.setConnectTimeout(Duration.ofSeconds(10));
-                  httpComponentsClientHttpRequestFactory1.setReadTimeout(Duration.ofSeconds(10));
-                  httpComponentsClientHttpRequestFactory1.setConnectionRequestTimeout(
-                      Duration.ofSeconds(10));
-                })
-            .build();
-    this.restClient = builder.requestFactory(httpComponentsClientHttpRequestFactory).build();
+    final JdkClientHttpRequestFactory jdkClientHttpRequestFactory =
+        new JdkClientHttpRequestFactory(HttpTransport.client(API_PATH_TOKEN_CREATE));
+    jdkClientHttpRequestFactory.setReadTimeout(Duration.ofSeconds(10));
+    this.restClient = builder.requestFactory(jdkClientHttpRequestFactory).build();
   }
 
   @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -111,6 +202,24 @@ public class MonnShotTrade {
   public record SellOptions(
       BigDecimal sellRatio, int sellSlippage, String priorityFeeLevel, String jitoTipLevel) {}
 
+  /**
+   * 精确买入参数 (FixedSide.OUT)
+   *
+   * @param tokenAmount 买入 token 数量 (含精度)
+   * @param buySlippage 滑点 5% 传 5，链上按报价加滑点作为最多支付的 sol
+   */
+  public record ExactBuyOptions(
+      BigInteger tokenAmount, int buySlippage, String priorityFeeLevel, String jitoTipLevel) {}
+
+  /**
+   * 精确卖出参数 (FixedSide.OUT)
+   *
+   * @param sellSol 要换回的 sol 数量
+   * @param sellSlippage 滑点 5% 传 5，链上按报价加滑点作为最多卖出的 token
+   */
+  public record ExactSellOptions(
+      BigDecimal sellSol, int sellSlippage, String priorityFeeLevel, String jitoTipLevel) {}
+
   public record CreateOptions(
       String icon,
       String name,
@@ -143,21 +252,33 @@ public class MonnShotTrade {
     private final String name;
   }
 
-  private BigInteger curvePosition(CurveAccount curveAccount) {
-    return BigInteger.valueOf(curveAccount.totalSupply() - curveAccount.curveAmount());
+  /**
+   * 创建 token，首笔买入见 {@link #createAndBuy}
+   *
+   * @param signer 创建者公钥，私钥需已注册到 {@link #signingService()}
+   * @param createOptions 创建参数
+   * @return Moonshot 返回的 txnId
+   */
+  public String create(PublicKey signer, CreateOptions createOptions) {
+    return submitCreate(prepareCreate(signer, createOptions));
   }
 
   /**
-   * 创建 & buy token
+   * 已签名、待提交的创建交易
    *
-   * @param signer 签名
-   * @param createOptions 创建参数
+   * @param token submit 时回传的 token
+   * @param signedTransaction 签名后的交易 (base64)
+   * @param mint 新 token 的 mint 地址
    */
-  public void create(Signer signer, CreateOptions createOptions) {
+  public record PreparedCreate(
+      String draftTokenId, String token, String signedTransaction, String mint) {}
+
+  /** 调用 Moonshot prepare 接口并签名，不提交 */
+  public PreparedCreate prepareCreate(PublicKey signer, CreateOptions createOptions) {
     MintTokenPrepareV1Request mintTokenPrepareV1Request =
         new MintTokenPrepareV1Request(
             "solana",
-            signer.publicKey().toBase58(),
+            signer.toBase58(),
             createOptions.name,
             createOptions.symbol,
             createOptions.curveType.getName(),
@@ -175,18 +296,162 @@ public class MonnShotTrade {
 
     final byte[] bytes = Base64.getDecoder().decode(transaction);
 
-    final String signAndBase64Encode = Transaction.signAndBase64Encode(List.of(signer), bytes);
+    final PublicKey mint = signerKey(bytes, 1);
+    final String signAndBase64Encode =
+        signingService.signNow(new SignRequest(signer, bytes)).base64();
 
-    submitMint(
+    return new PreparedCreate(
         prepareMintTxResponse.draftTokenId,
-        new MintTokenSubmitV1Request(prepareMintTxResponse.token, signAndBase64Encode));
+        prepareMintTxResponse.token,
+        signAndBase64Encode,
+        mint == null ? null : mint.toBase58());
+  }
+
+  /**
+   * @return Moonshot 返回的 txnId
+   */
+  public String submitCreate(PreparedCreate preparedCreate) {
+    return submitMint(
+        preparedCreate.draftTokenId(),
+        new MintTokenSubmitV1Request(preparedCreate.token(), preparedCreate.signedTransaction()));
+  }
+
+  /**
+   * 读取序列化交易中第 index 个签名者
+   *
+   * <p>Moonshot 返回的创建交易由创建者付费，mint keypair 是第二个签名者并已预先签名。
+   */
+  static PublicKey signerKey(byte[] transaction, int index) {
+    final int header = SignedTx.messageHeaderOffset(transaction);
+    final int numRequiredSignatures = transaction[header] & 0xff;
+    if (index >= numRequiredSignatures) {
+      return null;
+    }
+    final int offset = header + 3 + SignedTx.compactLength(transaction, header + 3);
+    return PublicKey.readPubKey(transaction, offset + index * PublicKey.PUBLIC_KEY_LENGTH);
+  }
+
+  /** 读取序列化交易的 recentBlockhash (base58) */
+  static String recentBlockHash(byte[] transaction) {
+    final int keys = SignedTx.messageHeaderOffset(transaction) + 3;
+    final int keysLength = SignedTx.compactLength(transaction, keys);
+    final int keyCount =
+        (transaction[keys] & 0x7f) | (keysLength == 2 ? (transaction[keys + 1] & 0xff) << 7 : 0);
+    final int offset = keys + keysLength + keyCount * PublicKey.PUBLIC_KEY_LENGTH;
+    return Base58.encode(transaction, offset, offset + 32);
+  }
+
+  /**
+   * 创建结果
+   *
+   * @param bundleId jito bundle id
+   * @param txnId Moonshot submit 接口返回的 txnId
+   * @param tokenAmount 首笔买入报价的 token 数量
+   * @param bundleLanded bundle 是否在等待时间内确认，false 时首笔买入未成交
+   */
+  public record CreateAndBuyResult(
+      String mint,
+      String bundleId,
+      String txnId,
+      String createSignature,
+      String buySignature,
+      long tokenAmount,
+      boolean bundleLanded) {}
+
+  // createAndBuy 等待 bundle 确认的时间，之后才提交给 Moonshot
+  private static final Duration BUNDLE_CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  /**
+   * 创建 token 并在同一个 jito bundle 中首笔买入，买入与创建落在同一个 slot
+   *
+   * <p>新曲线的初始状态已知 (创建交易买入 createOptions.tokenAmount 后的位置)，买入数量直接计算，不查询曲线账户；
+   * buy 交易复用创建交易的 recentBlockhash。先等待创建交易确认再提交给 Moonshot 登记 token，避免 Moonshot 单独广播的
+   * 创建交易抢先上链使 bundle 失败；超时未确认时仍提交，此时创建交易可能单独上链而首笔买入不成交。仅支持常数乘积曲线。
+   *
+   * @param buyOptions jitoTipLevel 决定 bundle 小费
+   */
+  public CreateAndBuyResult createAndBuy(
+      PublicKey signer, CreateOptions createOptions, BuyOptions buyOptions) {
+    // 报价不支持的曲线在调用 prepare 接口前拒绝
+    final software.sava.anchor.programs.moonshot.anchor.types.CurveType curveType =
+        curveType(createOptions.curveType());
+    final PreparedCreate prepared = prepareCreate(signer, createOptions);
+    if (prepared.mint() == null) {
+      throw new IllegalStateException("Create transaction without mint signer");
+    }
+    final PublicKey mint = PublicKey.fromBase58Encoded(prepared.mint());
+    final SignedTx createTx = SignedTx.fromBase64(prepared.signedTransaction());
+
+    final TradeParams tradeParams =
+        initialBuyParams(
+            curveType,
+            createOptions.tokenAmount() == null ? 0L : createOptions.tokenAmount(),
+            buyOptions);
+    log.info("initial TradeParams:{}", tradeParams);
+    final List<Instruction> instructions =
+        buyInstructions(
+            TradeAccounts.of(mint, signer), signer, buyOptions, true, tradeParams);
+    computeUnitLimits.apply(instructions, curveType, Shape.BUY);
+    final SignedTx buyTx = sign(signer, instructions, null, recentBlockHash(createTx.raw()));
+
+    final String bundleId = JitoApi.sendBundle(List.of(createTx, buyTx));
+    final Commitment status =
+        HttpRpcApi.awaitConfirmation(createTx.signature(), BUNDLE_CONFIRM_TIMEOUT);
+    final boolean bundleLanded =
+        Commitment.CONFIRMED.equals(status) || Commitment.FINALIZED.equals(status);
+    if (!bundleLanded) {
+      log.warn("bundle {} not confirmed, submit create without initial buy", bundleId);
+    }
+    final String txnId = submitCreate(prepared);
+    return new CreateAndBuyResult(
+        prepared.mint(),
+        bundleId,
+        txnId,
+        createTx.signature(),
+        buyTx.signature(),
+        tradeParams.tokenAmount(),
+        bundleLanded);
+  }
+
+  /**
+   * 新曲线上的首笔买入
+   *
+   * @param curvePosition 创建交易中创建者已买入的 token 数量
+   */
+  static TradeParams initialBuyParams(
+      software.sava.anchor.programs.moonshot.anchor.types.CurveType curveType,
+      long curvePosition,
+      BuyOptions buyOptions) {
+    final BigDecimal solAmount = buyOptions.buySol().movePointRight(LamportDecimal.LAMPORT_DIGITS);
+    final BigInteger tokenAmount =
+        MoonshotQuoteService.curveAdapter(curveType)
+            .getTokenAmountByCollateralSync(
+                new GetTokenAmountSyncOptions(
+                    BigInteger.valueOf(curvePosition), solAmount.toBigInteger(), true));
+    return new TradeParams(
+        tokenAmount.longValue(),
+        solAmount.longValue(),
+        FixedSide.IN.getValue(),
+        buyOptions.buySlippage() * 100L);
+  }
+
+  private static software.sava.anchor.programs.moonshot.anchor.types.CurveType curveType(
+      CurveType curveType) {
+    // LinearV1 没有同步报价实现
+    return switch (curveType) {
+      case CONSTANT_PRODUCT_V1 ->
+          software.sava.anchor.programs.moonshot.anchor.types.CurveType.ConstantProductV1;
+      case null, default ->
+          throw new IllegalStateException("Unsupported initial curve: " + curveType);
+    };
   }
 
   private record MintTokenSubmitV1Request(String token, String signedTransaction) {}
 
   private record MintTokenSubmitV1Response(String txnId, String status, String statusToken) {}
 
-  private void submitMint(String draftTokenId, MintTokenSubmitV1Request mintTokenSubmitV1Request) {
+  private String submitMint(
+      String draftTokenId, MintTokenSubmitV1Request mintTokenSubmitV1Request) {
     final String url = String.format(API_PATH_TOKEN_SUBMIT, draftTokenId);
     log.info("uri:{},submitMint:{}", url, mintTokenSubmitV1Request);
     final MintTokenSubmitV1Response tokenSubmitV1Response =
@@ -201,37 +466,114 @@ public class MonnShotTrade {
             .retrieve()
             .body(MintTokenSubmitV1Response.class);
     log.info("submitMint:{}", tokenSubmitV1Response);
+    if (tokenSubmitV1Response == null) {
+      throw new IllegalStateException("submit mint error!");
+    }
+    return tokenSubmitV1Response.txnId();
+  }
+
+  /**
+   * 买卖结果
+   *
+   * @param side buy / sell
+   * @param tokenAmount 报价的 token 数量
+   * @param collateralAmount 报价的 SOL 数量 (lamports)
+   */
+  public record TradeResult(
+      String mint,
+      String side,
+      String txId,
+      long tokenAmount,
+      long collateralAmount,
+      long elapsedMillis) {
+
+    static TradeResult of(
+        PublicKey mint, String side, String txId, TradeParams tradeParams, long tradeStart) {
+      return new TradeResult(
+          mint.toBase58(),
+          side,
+          txId,
+          tradeParams.tokenAmount(),
+          tradeParams.collateralAmount(),
+          (System.nanoTime() - tradeStart) / 1_000_000);
+    }
   }
 
-  public void buy(PublicKey mint, Signer signer, BuyOptions buyOptions) {
-    buy(mint, signer, buyOptions, false);
+  public TradeResult buy(PublicKey mint, PublicKey signer, BuyOptions buyOptions) {
+    return buy(mint, signer, buyOptions, false);
   }
 
   /**
    * Buy moonshot mint
    *
    * @param mint mint token
-   * @param signer singer
+   * @param signer 签名者公钥，私钥需已注册到 {@link #signingService()}
    * @param jito true 通过 jito 提交
    * @param buyOptions buy opt
    */
-  public void buy(PublicKey mint, Signer signer, BuyOptions buyOptions, boolean jito) {
+  public TradeResult buy(PublicKey mint, PublicKey signer, BuyOptions buyOptions, boolean jito) {
+    return executeBuy(
+        mint,
+        signer,
+        jito,
+        buyOptions.priorityFeeLevel(),
+        buyOptions.jitoTipLevel(),
+        (curveAccount, slot) -> buyParams(mint, curveAccount, slot, buyOptions));
+  }
 
-    final ProgramDerivedAddress curvePDA =
-        MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint);
-    final PublicKey bondingCurveKey = curvePDA.publicKey();
+  /**
+   * 买入固定数量的 token，按反向报价计算需要支付的 sol
+   *
+   * @param jito true 通过 jito 提交
+   */
+  public TradeResult buyExactOut(
+      PublicKey mint, PublicKey signer, ExactBuyOptions exactBuyOptions, boolean jito) {
+    return executeBuy(
+        mint,
+        signer,
+        jito,
+        exactBuyOptions.priorityFeeLevel(),
+        exactBuyOptions.jitoTipLevel(),
+        (curveAccount, slot) -> exactBuyParams(mint, curveAccount, slot, exactBuyOptions));
+  }
 
-    final PublicKey mintAssociatedToken = Mint._associatedToken(signer.publicKey(), mint);
+  /** 按曲线状态报价 */
+  @FunctionalInterface
+  private interface BuyQuote {
+    TradeParams quote(CurveAccount curveAccount, long slot);
+  }
+
+  /** 按曲线状态与持仓报价 */
+  @FunctionalInterface
+  private interface SellQuote {
+    TradeParams quote(CurveAccount curveAccount, long slot, BigInteger tokenBalance);
+  }
+
+  private TradeResult executeBuy(
+      PublicKey mint,
+      PublicKey signer,
+      boolean jito,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      BuyQuote buyQuote) {
+    final long tradeStart = TradeMetrics.start();
 
-    final PublicKey curveAssociatedToken = Mint._associatedToken(bondingCurveKey, mint);
+    final TradeAccounts accounts = TradeAccounts.of(mint, signer);
+    TradeMetrics.phase("buy", Phase.PDA, tradeStart);
 
     final CompletableFuture<AccountInfo<CurveAccount>> accountInfoCompletableFuture =
-        HttpRpcApi.httpRpcApi()
-            .getSolanaRpcClient()
-            .getAccountInfo(Commitment.CONFIRMED, bondingCurveKey, CurveAccount.FACTORY);
+        TradeMetrics.phase("buy", Phase.CURVE_FETCH, fetchCurveAccount(accounts));
 
+    // 不早于请求发出时获取，按此估计 blockhash 的过期时间
+    final long deadline = SendScheduler.blockHashDeadline(System.nanoTime());
     final CompletableFuture<LatestBlockHash> latestBlockHashCompletableFuture =
-        HttpRpcApi.httpRpcApi().getSolanaRpcClient().getLatestBlockHash(Commitment.CONFIRMED);
+        TradeMetrics.phase(
+            "buy",
+            Phase.BLOCKHASH_FETCH,
+            HttpRpcApi.httpRpcApi()
+                .call(
+                    "getLatestBlockhash",
+                    client -> client.getLatestBlockHash(Commitment.CONFIRMED)));
 
     final List<CompletableFuture<?>> completableFuture =
         AsyncVirtual.runCompletableFutures(
@@ -240,93 +582,127 @@ public class MonnShotTrade {
     final AccountInfo<CurveAccount> curveAccountAccountInfo =
         AsyncVirtual.getCallRemoteResult(completableFuture.getFirst());
 
-    final BigDecimal solAmount = buyOptions.buySol().movePointRight(LamportDecimal.LAMPORT_DIGITS);
-
     final CurveAccount curveAccount = curveAccountAccountInfo.data();
 
     if (curveAccount == null) {
       throw new IllegalStateException("MigrateFunds!");
     }
 
-    final CurveAdapter curveAdapter = getCurveAdapter(curveAccount);
+    final long quoteStart = TradeMetrics.start();
+    final TradeParams tradeParams =
+        buyQuote.quote(curveAccount, curveAccountAccountInfo.context().slot());
 
-    final BigInteger tokenAmount =
-        getTokenAmountByCollateralSync(
-            new GetTokenAmountSyncOptions(
-                curvePosition(curveAccount), solAmount.toBigInteger(), true),
-            curveAdapter);
-
-    TradeParams tradeParams =
-        new TradeParams(
-            tokenAmount.longValue(),
-            solAmount.longValue(),
-            FixedSide.IN.getValue(),
-            buyOptions.buySlippage() * 100L);
+    TradeMetrics.phase("buy", Phase.QUOTE, quoteStart);
 
     log.info("TradeParams:{}", tradeParams);
 
-    List<Instruction> instructions = new LinkedList<>();
-
-    if (!jito) {
-      instructions.add(Mint._setComputeUnitPrice(getUnitPrice(buyOptions.priorityFeeLevel)));
-    } else {
-      instructions.add(Mint._jitoTip(signer.publicKey(), tipFloor(buyOptions.jitoTipLevel)));
-    }
-    final Instruction buy =
-        TokenLaunchpadProgram.buy(
-            AccountMeta.createInvoked(MonnshotProgram.MOONSHOT),
-            signer.publicKey(),
-            mintAssociatedToken,
-            curvePDA.publicKey(),
-            curveAssociatedToken,
-            MonnshotProgram.DEX_FEE,
-            MonnshotProgram.HELIO_FEE,
-            mint,
-            MonnshotProgram.CONFIG,
-            SolanaAccounts.MAIN_NET.tokenProgram(),
-            SolanaAccounts.MAIN_NET.associatedTokenAccountProgram(),
-            SolanaAccounts.MAIN_NET.systemProgram(),
-            tradeParams);
-    instructions.add(buy);
+    final long buildStart = TradeMetrics.start();
+    // 只有本次提交路径使用的档位生效
+    final String feeLevel = landingLevel(jito, jito ? jitoTipLevel : priorityFeeLevel);
+    final List<Instruction> instructions =
+        buyInstructions(accounts, signer, jito, feeLevel, feeLevel, tradeParams);
+    final boolean limited =
+        computeUnitLimits.apply(instructions, curveAccount.curveType(), Shape.BUY);
     final Transaction transaction = Transaction.createTx(instructions);
     LatestBlockHash latestBlockHash = AsyncVirtual.getCallRemoteResult(completableFuture.getLast());
     transaction.setRecentBlockHash(latestBlockHash.blockHash());
-    transaction.sign(signer);
+    TradeMetrics.phase("buy", Phase.BUILD, buildStart);
+    final long signStart = TradeMetrics.start();
+    final SignedTx signedTx = signingService.signNow(SignRequest.of(signer, transaction));
+    TradeMetrics.phase("buy", Phase.SIGN, signStart);
+    if (!limited) {
+      computeUnitLimits.learn(curveAccount.curveType(), Shape.BUY, signedTx);
+    }
+    final long submitStart = TradeMetrics.start();
+    final String tx;
     if (jito) {
-      final String tx = JitoApi.sendTransactions(transaction.base64EncodeToString());
+      tx = JitoApi.sendTransactions(signedTx, Priority.ENTRY, deadline);
       log.info("Buy Jito transactionResult:{}", tx);
     } else {
-      final String tx = HttpRpcApi.sendTransactionSkipPreflight(transaction.base64EncodeToString());
+      tx = HttpRpcApi.sendTransactionSkipPreflight(signedTx, Priority.ENTRY, deadline);
       log.info("buy tx:{}", tx);
     }
+    trackLanding(jito, feeLevel, tx, submitStart);
+    TradeMetrics.phase("buy", Phase.SUBMIT, submitStart);
+    TradeMetrics.phase("buy", Phase.TOTAL, tradeStart);
+    return recordTrade(signer, TradeResult.of(mint, "buy", tx, tradeParams, tradeStart));
   }
 
-  public void sell(PublicKey mint, Signer signer, SellOptions sellOptions) {
-    sell(mint, signer, sellOptions, false);
+  public TradeResult sell(PublicKey mint, PublicKey signer, SellOptions sellOptions) {
+    return sell(mint, signer, sellOptions, false);
   }
 
-  public void sell(PublicKey mint, Signer signer, SellOptions sellOptions, Boolean jito) {
+  public TradeResult sell(PublicKey mint, PublicKey signer, SellOptions sellOptions, Boolean jito) {
+    return executeSell(
+        mint,
+        signer,
+        jito,
+        sellOptions.priorityFeeLevel(),
+        sellOptions.jitoTipLevel(),
+        sellShape(sellOptions),
+        (curveAccount, slot, tokenBalance) ->
+            sellParams(mint, curveAccount, slot, tokenBalance, sellOptions));
+  }
 
-    final ProgramDerivedAddress curvePDA =
-        MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint);
-    final PublicKey bondingCurveKey = curvePDA.publicKey();
+  /**
+   * 卖出换回固定数量的 sol，按反向报价计算需要卖出的 token；不关闭 token 账户
+   *
+   * @param jito true 通过 jito 提交
+   */
+  public TradeResult sellExactOut(
+      PublicKey mint, PublicKey signer, ExactSellOptions exactSellOptions, boolean jito) {
+    return executeSell(
+        mint,
+        signer,
+        jito,
+        exactSellOptions.priorityFeeLevel(),
+        exactSellOptions.jitoTipLevel(),
+        Shape.SELL,
+        (curveAccount, slot, tokenBalance) ->
+            exactSellParams(mint, curveAccount, slot, tokenBalance, exactSellOptions));
+  }
 
-    final PublicKey mintAssociatedToken = Mint._associatedToken(signer.publicKey(), mint);
+  private TradeResult executeSell(
+      PublicKey mint,
+      PublicKey signer,
+      boolean jito,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      Shape shape,
+      SellQuote sellQuote) {
+    final long tradeStart = TradeMetrics.start();
 
-    final PublicKey curveAssociatedToken = Mint._associatedToken(bondingCurveKey, mint);
+    final TradeAccounts accounts = TradeAccounts.of(mint, signer);
+    final PublicKey mintAssociatedToken = accounts.mintAssociatedToken();
+    TradeMetrics.phase("sell", Phase.PDA, tradeStart);
 
     final CompletableFuture<AccountInfo<CurveAccount>> accountInfoCompletableFuture =
-        HttpRpcApi.httpRpcApi()
-            .getSolanaRpcClient()
-            .getAccountInfo(Commitment.CONFIRMED, bondingCurveKey, CurveAccount.FACTORY);
+        TradeMetrics.phase("sell", Phase.CURVE_FETCH, fetchCurveAccount(accounts));
 
+    // 不早于请求发出时获取，按此估计 blockhash 的过期时间
+    final long deadline = SendScheduler.blockHashDeadline(System.nanoTime());
     final CompletableFuture<LatestBlockHash> latestBlockHashCompletableFuture =
-        HttpRpcApi.httpRpcApi().getSolanaRpcClient().getLatestBlockHash(Commitment.CONFIRMED);
-
+        TradeMetrics.phase(
+            "sell",
+            Phase.BLOCKHASH_FETCH,
+            HttpRpcApi.httpRpcApi()
+                .call(
+                    "getLatestBlockhash",
+                    client -> client.getLatestBlockHash(Commitment.CONFIRMED)));
+
+    // 有本地持仓时不再查询余额；全部卖出并关闭账户时必须按链上余额，余额不符 closeAccount 会失败
+    final PositionTracker.Position position =
+        positionTracker == null || shape == Shape.SELL_CLOSE
+            ? null
+            : positionTracker.position(signer, mint);
     final CompletableFuture<TokenAmount> tokenAccountBalance =
-        HttpRpcApi.httpRpcApi()
-            .getSolanaRpcClient()
-            .getTokenAccountBalance(Commitment.CONFIRMED, mintAssociatedToken);
+        position != null
+            ? CompletableFuture.completedFuture(null)
+            : HttpRpcApi.httpRpcApi()
+                .call(
+                    "getTokenAccountBalance",
+                    client ->
+                        client.getTokenAccountBalance(Commitment.CONFIRMED, mintAssociatedToken));
 
     final List<CompletableFuture<?>> completableFuture =
         AsyncVirtual.runCompletableFutures(
@@ -343,93 +719,553 @@ public class MonnShotTrade {
       throw new IllegalStateException("MigrateFunds!");
     }
 
-    final CurveAdapter curveAdapter = getCurveAdapter(curveAccount);
+    final BigInteger tokenBalance;
+    if (position != null) {
+      tokenBalance = BigInteger.valueOf(position.tokenAmount());
+    } else {
+      final TokenAmount tokenAmount = AsyncVirtual.getCallRemoteResult(completableFuture.get(1));
+      if (positionTracker != null) {
+        positionTracker.onBalance(signer, mint, tokenAmount);
+      }
+      tokenBalance = tokenAmount.amount();
+    }
+
+    final long quoteStart = TradeMetrics.start();
+    final TradeParams tradeParams =
+        sellQuote.quote(curveAccount, curveAccountAccountInfo.context().slot(), tokenBalance);
+
+    TradeMetrics.phase("sell", Phase.QUOTE, quoteStart);
+
+    final long buildStart = TradeMetrics.start();
+    final String feeLevel = landingLevel(jito, jito ? jitoTipLevel : priorityFeeLevel);
+    final List<Instruction> instructions =
+        sellInstructions(accounts, signer, jito, feeLevel, feeLevel, shape, tradeParams);
+    final boolean limited = computeUnitLimits.apply(instructions, curveAccount.curveType(), shape);
+
+    final Transaction transaction = Transaction.createTx(instructions);
+    LatestBlockHash latestBlockHash = AsyncVirtual.getCallRemoteResult(completableFuture.getLast());
+    transaction.setRecentBlockHash(latestBlockHash.blockHash());
+    TradeMetrics.phase("sell", Phase.BUILD, buildStart);
+    final long signStart = TradeMetrics.start();
+    final SignedTx signedTx = signingService.signNow(SignRequest.of(signer, transaction));
+    TradeMetrics.phase("sell", Phase.SIGN, signStart);
+    if (!limited) {
+      computeUnitLimits.learn(curveAccount.curveType(), shape, signedTx);
+    }
+    final long submitStart = TradeMetrics.start();
+
+    final String tx;
+    if (jito) {
+
+      tx = JitoApi.sendTransactions(signedTx, Priority.EXIT, deadline);
+      log.info("Sell transactionResult:{}", tx);
+
+    } else {
+      tx = HttpRpcApi.sendTransactionSkipPreflight(signedTx, Priority.EXIT, deadline);
+      log.info("sell tx:{}", tx);
+    }
+    trackLanding(jito, feeLevel, tx, submitStart);
+    TradeMetrics.phase("sell", Phase.SUBMIT, submitStart);
+    TradeMetrics.phase("sell", Phase.TOTAL, tradeStart);
+    return recordTrade(signer, TradeResult.of(mint, "sell", tx, tradeParams, tradeStart));
+  }
+
+  private String landingLevel(boolean jito, String level) {
+    return landingOptimizer == null
+        ? level
+        : landingOptimizer.choose(LandingOptimizer.Path.of(jito), level);
+  }
+
+  private void trackLanding(boolean jito, String level, String tx, long submitStart) {
+    if (landingOptimizer != null) {
+      landingOptimizer.track(LandingOptimizer.Path.of(jito), level, tx, submitStart);
+    }
+  }
+
+  /** 确认后按链上实际成交写回持仓，不阻塞返回 */
+  private TradeResult recordTrade(PublicKey signer, TradeResult tradeResult) {
+    if (positionTracker != null) {
+      positionTracker
+          .track(signer, tradeResult)
+          .whenComplete(
+              (_, throwable) -> {
+                if (throwable != null) {
+                  log.warn("track position failed, tx:{}", tradeResult.txId(), throwable);
+                }
+              });
+    }
+    return tradeResult;
+  }
+
+  /**
+   * 批量交易发送后统计落地结果，确认后按各交易腿的实际成交写回持仓
+   *
+   * @param legs 同一笔交易中的各交易腿，txId 相同
+   */
+  void recordBatch(
+      PublicKey signer, boolean jito, String level, List<TradeResult> legs, long submitStart) {
+    final String tx = legs.getFirst().txId();
+    trackLanding(jito, level, tx, submitStart);
+    if (positionTracker != null) {
+      positionTracker
+          .track(signer, legs)
+          .whenComplete(
+              (_, throwable) -> {
+                if (throwable != null) {
+                  log.warn("track batch positions failed, tx:{}", tx, throwable);
+                }
+              });
+    }
+  }
+
+  /**
+   * 一个 mint + 签名者交易涉及的 PDA / ATA，可缓存复用
+   *
+   * @param bondingCurve 曲线账户
+   * @param mintAssociatedToken 签名者的 token 账户
+   * @param curveAssociatedToken 曲线的 token 账户
+   */
+  public record TradeAccounts(
+      PublicKey mint,
+      PublicKey owner,
+      PublicKey bondingCurve,
+      PublicKey mintAssociatedToken,
+      PublicKey curveAssociatedToken) {
+
+    public static TradeAccounts of(PublicKey mint, PublicKey owner) {
+      final PublicKey bondingCurve =
+          MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint).publicKey();
+      return new TradeAccounts(
+          mint,
+          owner,
+          bondingCurve,
+          Mint._associatedToken(owner, mint),
+          Mint._associatedToken(bondingCurve, mint));
+    }
+  }
+
+  /**
+   * 预签名交易，触发时直接发送内存中的字节
+   *
+   * @param signer 签名者，发送后按成交更新其持仓
+   * @param side buy / sell
+   * @param feeLevel 提交路径使用的档位，用于统计落地结果
+   * @param nonce durable nonce 模式下占用的 nonce，blockhash 模式为 null
+   * @param blockHash blockhash 模式下使用的 recentBlockhash
+   * @param deadline 发送截止的 {@link System#nanoTime()}，durable nonce 模式为 {@link
+   *     SendScheduler#NO_DEADLINE}
+   * @param slot 报价使用的曲线状态所在 slot
+   */
+  public record PreparedTrade(
+      PublicKey mint,
+      PublicKey signer,
+      String side,
+      boolean jito,
+      String feeLevel,
+      TradeParams tradeParams,
+      SignedTx signedTx,
+      NoncePool.Nonce nonce,
+      String blockHash,
+      long deadline,
+      long slot) {}
+
+  /**
+   * durable nonce 模式预签名买单：拉取曲线并报价，签名后的交易不随 blockhash 过期
+   *
+   * @param noncePool 签名者的 nonce 池
+   */
+  public PreparedTrade prepareBuy(
+      PublicKey mint, PublicKey signer, BuyOptions buyOptions, boolean jito, NoncePool noncePool) {
+    final TradeAccounts accounts = TradeAccounts.of(mint, signer);
+    final AccountInfo<CurveAccount> curveAccountInfo = fetchCurveAccount(accounts).join();
+    if (curveAccountInfo.data() == null) {
+      throw new IllegalStateException("MigrateFunds!");
+    }
+    final NoncePool.Nonce nonce = noncePool.poll();
+    if (nonce == null) {
+      throw new IllegalStateException("No nonce available for " + signer);
+    }
+    try {
+      return prepareBuy(
+          accounts,
+          signer,
+          buyOptions,
+          jito,
+          curveAccountInfo.data(),
+          curveAccountInfo.context().slot(),
+          nonce,
+          null,
+          0L);
+    } catch (RuntimeException e) {
+      // 未签出交易，nonce 未被使用
+      nonce.release();
+      throw e;
+    }
+  }
+
+  /**
+   * 用给定的曲线状态构建并签名买单，不访问 RPC
+   *
+   * @param nonce 不为 null 时使用 durable nonce，否则使用 blockHash
+   * @param blockHashAt 获取 blockHash 时的 {@link System#nanoTime()}，durable nonce 模式忽略
+   */
+  public PreparedTrade prepareBuy(
+      TradeAccounts accounts,
+      PublicKey signer,
+      BuyOptions buyOptions,
+      boolean jito,
+      CurveAccount curveAccount,
+      long slot,
+      NoncePool.Nonce nonce,
+      String blockHash,
+      long blockHashAt) {
+    final TradeParams tradeParams = buyParams(accounts.mint(), curveAccount, slot, buyOptions);
+    final List<Instruction> instructions =
+        buyInstructions(accounts, signer, buyOptions, jito, tradeParams);
+    final boolean limited =
+        computeUnitLimits.apply(instructions, curveAccount.curveType(), Shape.BUY);
+    final SignedTx signedTx = sign(signer, instructions, nonce, blockHash);
+    if (!limited) {
+      computeUnitLimits.learn(curveAccount.curveType(), Shape.BUY, signedTx);
+    }
+    return new PreparedTrade(
+        accounts.mint(),
+        signer,
+        "buy",
+        jito,
+        jito ? buyOptions.jitoTipLevel() : buyOptions.priorityFeeLevel(),
+        tradeParams,
+        signedTx,
+        nonce,
+        blockHash,
+        deadline(nonce, blockHashAt),
+        slot);
+  }
+
+  /**
+   * 用给定的曲线状态与持仓构建并签名卖单，不访问 RPC
+   *
+   * @param tokenBalance 签名者当前持有的 token 数量
+   * @param nonce 不为 null 时使用 durable nonce，否则使用 blockHash
+   * @param blockHashAt 获取 blockHash 时的 {@link System#nanoTime()}，durable nonce 模式忽略
+   */
+  public PreparedTrade prepareSell(
+      TradeAccounts accounts,
+      PublicKey signer,
+      SellOptions sellOptions,
+      boolean jito,
+      CurveAccount curveAccount,
+      long slot,
+      BigInteger tokenBalance,
+      NoncePool.Nonce nonce,
+      String blockHash,
+      long blockHashAt) {
+    final TradeParams tradeParams =
+        sellParams(accounts.mint(), curveAccount, slot, tokenBalance, sellOptions);
+    final List<Instruction> instructions =
+        sellInstructions(accounts, signer, sellOptions, jito, tradeParams);
+    final Shape shape = sellShape(sellOptions);
+    final boolean limited = computeUnitLimits.apply(instructions, curveAccount.curveType(), shape);
+    final SignedTx signedTx = sign(signer, instructions, nonce, blockHash);
+    if (!limited) {
+      computeUnitLimits.learn(curveAccount.curveType(), shape, signedTx);
+    }
+    return new PreparedTrade(
+        accounts.mint(),
+        signer,
+        "sell",
+        jito,
+        jito ? sellOptions.jitoTipLevel() : sellOptions.priorityFeeLevel(),
+        tradeParams,
+        signedTx,
+        nonce,
+        blockHash,
+        deadline(nonce, blockHashAt),
+        slot);
+  }
+
+  /**
+   * 发送预签名交易，触发路径上没有 RPC 查询；确认后与普通买卖一样写回持仓
+   *
+   * @return txId
+   */
+  public String fire(PreparedTrade preparedTrade) {
+    final long submitStart = TradeMetrics.start();
+    final Priority priority = "sell".equals(preparedTrade.side()) ? Priority.EXIT : Priority.ENTRY;
+    String tx = null;
+    try {
+      tx =
+          preparedTrade.jito()
+              ? JitoApi.sendTransactions(
+                  preparedTrade.signedTx(), priority, preparedTrade.deadline())
+              : HttpRpcApi.sendTransactionSkipPreflight(
+                  preparedTrade.signedTx(), priority, preparedTrade.deadline());
+      log.info("{} prepared tx:{}", preparedTrade.side(), tx);
+      trackLanding(preparedTrade.jito(), preparedTrade.feeLevel(), tx, submitStart);
+      recordTrade(
+          preparedTrade.signer(),
+          TradeResult.of(
+              preparedTrade.mint(),
+              preparedTrade.side(),
+              tx,
+              preparedTrade.tradeParams(),
+              submitStart));
+      return tx;
+    } finally {
+      TradeMetrics.phase(preparedTrade.side(), Phase.SUBMIT, submitStart);
+      if (preparedTrade.nonce() != null) {
+        preparedTrade.nonce().consumed(tx);
+      }
+    }
+  }
+
+  private static long deadline(NoncePool.Nonce nonce, long blockHashAt) {
+    return nonce == null ? SendScheduler.blockHashDeadline(blockHashAt) : SendScheduler.NO_DEADLINE;
+  }
 
-    final TokenAmount tokenAmount = AsyncVirtual.getCallRemoteResult(completableFuture.get(1));
-    final BigDecimal sellRatio = sellOptions.sellRatio();
+  /** 注册私钥后即可用对应公钥交易 */
+  public SigningService signingService() {
+    return signingService;
+  }
+
+  ComputeUnitLimits computeUnitLimits() {
+    return computeUnitLimits;
+  }
+
+  static CompletableFuture<AccountInfo<CurveAccount>> fetchCurveAccount(
+      TradeAccounts accounts) {
+    return HttpRpcApi.httpRpcApi()
+        .call(
+            "getAccountInfo",
+            client ->
+                client.getAccountInfo(
+                    Commitment.CONFIRMED, accounts.bondingCurve(), CurveAccount.FACTORY));
+  }
+
+  TradeParams buyParams(
+      PublicKey mint, CurveAccount curveAccount, long slot, BuyOptions buyOptions) {
+    final BigDecimal solAmount = buyOptions.buySol().movePointRight(LamportDecimal.LAMPORT_DIGITS);
+    final BigInteger tokenAmount =
+        quoteService.tokenAmountByCollateral(
+            mint, curveAccount, slot, solAmount.toBigInteger(), true);
+    return new TradeParams(
+        tokenAmount.longValue(),
+        solAmount.longValue(),
+        FixedSide.IN.getValue(),
+        buyOptions.buySlippage() * 100L);
+  }
 
+  TradeParams sellParams(
+      PublicKey mint,
+      CurveAccount curveAccount,
+      long slot,
+      BigInteger tokenBalance,
+      SellOptions sellOptions) {
     final BigInteger sellTokenAmount =
-        new BigDecimal(tokenAmount.amount()).multiply(sellRatio).toBigInteger();
+        new BigDecimal(tokenBalance).multiply(sellOptions.sellRatio()).toBigInteger();
+    final BigInteger solAmount =
+        quoteService.collateralAmountByTokens(mint, curveAccount, slot, sellTokenAmount, false);
+    return new TradeParams(
+        sellTokenAmount.longValue(),
+        solAmount.longValue(),
+        FixedSide.IN.getValue(),
+        sellOptions.sellSlippage() * 100L);
+  }
 
+  /** 固定买入 token 数量，collateralAmount 为报价的 sol，链上按滑点放宽为最多支付的 sol */
+  TradeParams exactBuyParams(
+      PublicKey mint, CurveAccount curveAccount, long slot, ExactBuyOptions exactBuyOptions) {
     final BigInteger solAmount =
-        curveAdapter.getCollateralAmountByTokensSync(
-            new GetCollateralAmountSyncOptions(
-                curvePosition(curveAccount), sellTokenAmount, false));
+        quoteService.collateralAmountByTokens(
+            mint, curveAccount, slot, exactBuyOptions.tokenAmount(), true);
+    return new TradeParams(
+        exactBuyOptions.tokenAmount().longValue(),
+        solAmount.longValue(),
+        FixedSide.OUT.getValue(),
+        exactBuyOptions.buySlippage() * 100L);
+  }
 
-    TradeParams tradeParams =
-        new TradeParams(
-            sellTokenAmount.longValue(),
-            solAmount.longValue(),
-            FixedSide.IN.getValue(),
-            sellOptions.sellSlippage() * 100L);
+  /** 固定换回的 sol 数量，tokenAmount 为报价的 token，链上按滑点放宽为最多卖出的 token */
+  TradeParams exactSellParams(
+      PublicKey mint,
+      CurveAccount curveAccount,
+      long slot,
+      BigInteger tokenBalance,
+      ExactSellOptions exactSellOptions) {
+    final BigInteger solAmount =
+        exactSellOptions.sellSol().movePointRight(LamportDecimal.LAMPORT_DIGITS).toBigInteger();
+    final BigInteger sellTokenAmount =
+        quoteService.tokenAmountByCollateral(mint, curveAccount, slot, solAmount, false);
+    if (sellTokenAmount.compareTo(tokenBalance) > 0) {
+      throw new IllegalStateException(
+          "Insufficient token balance: need " + sellTokenAmount + ", have " + tokenBalance);
+    }
+    return new TradeParams(
+        sellTokenAmount.longValue(),
+        solAmount.longValue(),
+        FixedSide.OUT.getValue(),
+        exactSellOptions.sellSlippage() * 100L);
+  }
+
+  private List<Instruction> buyInstructions(
+      TradeAccounts accounts,
+      PublicKey signer,
+      BuyOptions buyOptions,
+      boolean jito,
+      TradeParams tradeParams) {
+    return buyInstructions(
+        accounts,
+        signer,
+        jito,
+        buyOptions.priorityFeeLevel(),
+        buyOptions.jitoTipLevel(),
+        tradeParams);
+  }
 
+  private List<Instruction> buyInstructions(
+      TradeAccounts accounts,
+      PublicKey signer,
+      boolean jito,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      TradeParams tradeParams) {
     List<Instruction> instructions = new LinkedList<>();
+    instructions.add(feeInstruction(signer, jito, priorityFeeLevel, jitoTipLevel));
+    instructions.add(buyInstruction(accounts, signer, tradeParams));
+    return instructions;
+  }
 
-    if (!jito) {
-      instructions.add(Mint._setComputeUnitPrice(getUnitPrice(sellOptions.priorityFeeLevel)));
-    } else {
-      instructions.add(Mint._jitoTip(signer.publicKey(), tipFloor(sellOptions.jitoTipLevel)));
-    }
+  /** 单个 mint 的 buy 程序指令，不含手续费 */
+  static Instruction buyInstruction(
+      TradeAccounts accounts, PublicKey signer, TradeParams tradeParams) {
+    return TokenLaunchpadProgram.buy(
+        AccountMeta.createInvoked(MonnshotProgram.MOONSHOT),
+        signer,
+        accounts.mintAssociatedToken(),
+        accounts.bondingCurve(),
+        accounts.curveAssociatedToken(),
+        MonnshotProgram.DEX_FEE,
+        MonnshotProgram.HELIO_FEE,
+        accounts.mint(),
+        MonnshotProgram.CONFIG,
+        SolanaAccounts.MAIN_NET.tokenProgram(),
+        SolanaAccounts.MAIN_NET.associatedTokenAccountProgram(),
+        SolanaAccounts.MAIN_NET.systemProgram(),
+        tradeParams);
+  }
+
+  private List<Instruction> sellInstructions(
+      TradeAccounts accounts,
+      PublicKey signer,
+      SellOptions sellOptions,
+      boolean jito,
+      TradeParams tradeParams) {
+    return sellInstructions(
+        accounts,
+        signer,
+        jito,
+        sellOptions.priorityFeeLevel(),
+        sellOptions.jitoTipLevel(),
+        sellShape(sellOptions),
+        tradeParams);
+  }
+
+  private List<Instruction> sellInstructions(
+      TradeAccounts accounts,
+      PublicKey signer,
+      boolean jito,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      Shape shape,
+      TradeParams tradeParams) {
+    List<Instruction> instructions = new LinkedList<>();
+    instructions.add(feeInstruction(signer, jito, priorityFeeLevel, jitoTipLevel));
+    instructions.addAll(sellLegInstructions(accounts, signer, shape, tradeParams));
+    return instructions;
+  }
 
+  /** 单个 mint 的 sell 程序指令，全部卖出时附带 closeAccount，不含手续费 */
+  static List<Instruction> sellLegInstructions(
+      TradeAccounts accounts, PublicKey signer, SellOptions sellOptions, TradeParams tradeParams) {
+    return sellLegInstructions(accounts, signer, sellShape(sellOptions), tradeParams);
+  }
+
+  /** shape 为 SELL_CLOSE 时附带 closeAccount */
+  static List<Instruction> sellLegInstructions(
+      TradeAccounts accounts, PublicKey signer, Shape shape, TradeParams tradeParams) {
     final Instruction sell =
         TokenLaunchpadProgram.sell(
             AccountMeta.createInvoked(MonnshotProgram.MOONSHOT),
-            signer.publicKey(),
-            mintAssociatedToken,
-            curvePDA.publicKey(),
-            curveAssociatedToken,
+            signer,
+            accounts.mintAssociatedToken(),
+            accounts.bondingCurve(),
+            accounts.curveAssociatedToken(),
             MonnshotProgram.DEX_FEE,
             MonnshotProgram.HELIO_FEE,
-            mint,
+            accounts.mint(),
             MonnshotProgram.CONFIG,
             SolanaAccounts.MAIN_NET.tokenProgram(),
             SolanaAccounts.MAIN_NET.associatedTokenAccountProgram(),
             SolanaAccounts.MAIN_NET.systemProgram(),
             tradeParams);
-    instructions.add(sell);
-
-    if (sellOptions.sellRatio.intValue() == 1) {
-      log.info("_add close token account");
-      final Instruction closeAccount = Mint._closeAccount(mintAssociatedToken, signer.publicKey());
-      instructions.add(closeAccount);
+    if (shape != Shape.SELL_CLOSE) {
+      return List.of(sell);
     }
+    log.info("_add close token account");
+    final Instruction closeAccount =
+        Mint._closeAccount(accounts.mintAssociatedToken(), signer);
+    return List.of(sell, closeAccount);
+  }
 
-    final Transaction transaction = Transaction.createTx(instructions);
-    LatestBlockHash latestBlockHash = AsyncVirtual.getCallRemoteResult(completableFuture.getLast());
-    transaction.setRecentBlockHash(latestBlockHash.blockHash());
-    transaction.sign(signer);
-
-    if (jito) {
+  /** 非 jito 设置优先费，jito 转账小费；一笔交易只需一条 */
+  static Instruction feeInstruction(
+      PublicKey signer, boolean jito, String priorityFeeLevel, String jitoTipLevel) {
+    return jito
+        ? Mint._jitoTip(signer, tipFloor(jitoTipLevel))
+        : Mint._setComputeUnitPrice(getUnitPrice(priorityFeeLevel));
+  }
 
-      final String tx = JitoApi.sendTransactions(transaction.base64EncodeToString());
-      log.info("Sell transactionResult:{}", tx);
+  /** 全部卖出时同时关闭 token 账户 */
+  static Shape sellShape(SellOptions sellOptions) {
+    return sellOptions.sellRatio.intValue() == 1 ? Shape.SELL_CLOSE : Shape.SELL;
+  }
 
+  /** durable nonce 模式下 advanceNonceAccount 必须是第一条指令，nonce 值代替 recentBlockhash */
+  private SignedTx sign(
+      PublicKey signer, List<Instruction> instructions, NoncePool.Nonce nonce, String blockHash) {
+    final Transaction transaction;
+    if (nonce != null) {
+      final List<Instruction> nonceInstructions = new LinkedList<>(instructions);
+      nonceInstructions.addFirst(nonce.advanceInstruction());
+      transaction = Transaction.createTx(nonceInstructions);
+      transaction.setRecentBlockHash(nonce.value());
     } else {
-      final String tx = HttpRpcApi.sendTransactionSkipPreflight(transaction.base64EncodeToString());
-      log.info("sell tx:{}", tx);
+      transaction = Transaction.createTx(instructions);
+      transaction.setRecentBlockHash(blockHash);
     }
+    return signingService.signNow(SignRequest.of(signer, transaction));
   }
 
-  private long getUnitPrice(String priorityFeeLevel) {
-    return 200_000L;
+  /** 档位名转枚举，空值与 {@link LandingOptimizer#AUTO} 按中档，无法识别的档位名告警后按中档 */
+  static TipTypeEnum feeLevel(String level) {
+    if (level == null || level.isBlank() || LandingOptimizer.AUTO.equalsIgnoreCase(level)) {
+      return TipTypeEnum.MEDIUM;
+    }
+    try {
+      return TipTypeEnum.valueOf(level.strip().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      log.warn("unknown fee level {}, use MEDIUM", level);
+      return TipTypeEnum.MEDIUM;
+    }
   }
 
-  private static BigDecimal tipFloor(String jitoTipLevel) {
-    // todo 通过订阅wss://bundles.jito.wtf/api/v1/bundles/tip_stream 获取实时 tip
-    //    final JitoApi.TipFloor.TipData       tipData = JitoTipFee.currentTip();
-    // 使用固定小费
-    return BigDecimal.valueOf(0.00001605);
+  private static long getUnitPrice(String priorityFeeLevel) {
+    return UNIT_PRICES[feeLevel(priorityFeeLevel).ordinal()];
   }
 
-  private CurveAdapter getCurveAdapter(CurveAccount curveAccount) {
-    CurveAdapter curveAdapter;
-    switch (curveAccount.curveType()) {
-      case LinearV1 -> curveAdapter = new LinearCurveV1Adapter();
-      case ConstantProductV1 -> curveAdapter = new ConstantProductCurveV1Adapter();
-      case null, default ->
-          throw new IllegalStateException("Unexpected value: " + curveAccount.curveType());
-    }
-    return curveAdapter;
+  private static BigDecimal tipFloor(String jitoTipLevel) {
+    // 使用按档位配置的固定小费
+    return JITO_TIPS[feeLevel(jitoTipLevel).ordinal()];
   }
 
   public record GetTokenAmountSyncOptions(
@@ -438,11 +1274,6 @@ public class MonnShotTrade {
   public record GetCollateralAmountSyncOptions(
       BigInteger curvePosition, BigInteger tokenAmount, Boolean isBuy) {}
 
-  private BigInteger getTokenAmountByCollateralSync(
-      GetTokenAmountSyncOptions getTokenAmountSyncOptions, CurveAdapter curveAdapter) {
-    return curveAdapter.getTokenAmountByCollateralSync(getTokenAmountSyncOptions);
-  }
-
   public interface CurveAdapter {
 
     BigInteger getTokenAmountByCollateralSync(GetTokenAmountSyncOptions getTokenAmountSyncOptions);
@@ -592,13 +1423,13 @@ public class MonnShotTrade {
     }
   }
 
-  public static void main(String[] args) throws IOException {
-    final Signer signer = Signer.createFromPrivateKey(Base58.decode("xxx")); // private key
-
+  public static void main(String[] args) {
     MonnShotTrade monnShotTrade = new MonnShotTrade();
-    FileSystemResource fileSystemResource = new FileSystemResource("ico/test_icon.png");
-    final byte[] contentAsByteArray = fileSystemResource.getContentAsByteArray();
-    String ico = Base64.getEncoder().encodeToString(contentAsByteArray);
+    final PublicKey signer =
+        monnShotTrade
+            .signingService()
+            .register(Signer.createFromPrivateKey(Base58.decode("xxx"))); // private key
+    String ico = new ImageAssets().base64(Path.of("ico/test_icon.png"));
     monnShotTrade.create(
         signer,
         new CreateOptions(
@@ -613,8 +1444,10 @@ public class MonnShotTrade {
             ico));
     PublicKey mint = PublicKey.fromBase58Encoded("6W9U7FMWo8m1jgHyPmZBGF7UfwjeC4yKJPCFNsyCtovw");
     // 买入 0.001 sol ,滑点 5%
-    monnShotTrade.buy(mint, signer, new BuyOptions(BigDecimal.valueOf(0.001d), 5, "", ""), false);
+    monnShotTrade.buy(
+        mint, signer, new BuyOptions(BigDecimal.valueOf(0.001d), 5, "medium", "medium"), false);
     // 卖出入全部（1，全部卖出，0.1 卖出当前持有10%） ,滑点 5%
-    monnShotTrade.sell(mint, signer, new SellOptions(BigDecimal.valueOf(1), 5, "", ""), false);
+    monnShotTrade.sell(
+        mint, signer, new SellOptions(BigDecimal.valueOf(1), 5, "medium", "medium"), false);
   }
 }
@@ -43,6 +43,20 @@ public class MoonshotCurveProgress {
 
     log.info("realTokenReserves: {}", realTokenReserves);
 
+    return progressOf(realTokenReserves);
+  }
+
+  /**
+   * 从快照表读取进度，不发起 RPC
+   *
+   * @return 未监听该 mint 时返回 NaN
+   */
+  public static double progress(CurveSnapshotStore curveSnapshotStore, byte[] mint, int offset) {
+    final long realTokenReserves = curveSnapshotStore.curvePosition(mint, offset);
+    return realTokenReserves < 0 ? Double.NaN : progressOf(realTokenReserves);
+  }
+
+  static double progressOf(long realTokenReserves) {
     final double progress = (double) realTokenReserves / MAX_MCP * 100;
     return Math.round(progress * 100.0) / 100.0;
   }
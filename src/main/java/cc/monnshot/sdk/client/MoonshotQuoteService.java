@@ -0,0 +1,294 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.client.MonnShotTrade.ConstantProductCurveV1Adapter;
+import cc.monnshot.sdk.client.MonnShotTrade.CurveAdapter;
+import cc.monnshot.sdk.client.MonnShotTrade.GetCollateralAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.GetTokenAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.LinearCurveV1Adapter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveType;
+import software.sava.core.accounts.PublicKey;
+
+/**
+ * 报价缓存
+ *
+ * <p>同一 mint 在曲线位置 (curvePosition) 不变时，相同 (数量, 方向) 的报价结果不变，直接从内存返回。 曲线位置变化 (有新的成交) 时整体失效；较旧
+ * slot 的观测不会覆盖较新的缓存。
+ *
+ * <p>缓存的 mint 超过上限时清理长时间 (按 slot) 没有新观测的 mint。命中、未命中与失效次数注册在 {@link
+ * Metrics#globalRegistry}。
+ */
+@Slf4j
+public class MoonshotQuoteService {
+
+  private static final CurveAdapter LINEAR_V1 = new LinearCurveV1Adapter();
+
+  private static final CurveAdapter CONSTANT_PRODUCT_V1 = new ConstantProductCurveV1Adapter();
+
+  // 单个 mint 缓存的报价数量上限
+  private static final int MAX_QUOTES_PER_MINT = 1024;
+
+  // 超过该数量时清理空闲的 mint
+  private static final int MAX_CACHED_MINTS =
+      Integer.parseInt(System.getProperty("MONNSHOT_QUOTE_MAX_MINTS", "4096"));
+
+  // 约 10 分钟没有新观测视为空闲
+  private static final long IDLE_SLOTS =
+      Long.parseLong(System.getProperty("MONNSHOT_QUOTE_IDLE_SLOTS", "1500"));
+
+  private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+
+  private final Map<PublicKey, MintQuotes> quotes = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder invalidations = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  // 上次清理时的 slot，缓存一直超限时避免每次新 mint 都遍历
+  private volatile long evictedAt;
+
+  public enum QuoteSide {
+    BUY_TOKENS_BY_COLLATERAL,
+    SELL_TOKENS_BY_COLLATERAL,
+    BUY_COLLATERAL_BY_TOKENS,
+    SELL_COLLATERAL_BY_TOKENS
+  }
+
+  private record QuoteKey(QuoteSide side, BigInteger amount) {}
+
+  private record MintQuotes(
+      long slot,
+      BigInteger curvePosition,
+      CurveAdapter curveAdapter,
+      Map<QuoteKey, BigInteger> results) {
+
+    private MintQuotes withSlot(long newSlot) {
+      return new MintQuotes(newSlot, curvePosition, curveAdapter, results);
+    }
+  }
+
+  public record QuoteStats(
+      long hits, long misses, long invalidations, long evictions, int cachedMints) {
+
+    public double hitRatio() {
+      final long total = hits + misses;
+      return total == 0 ? 0D : (double) hits / total;
+    }
+  }
+
+  public MoonshotQuoteService() {
+    FunctionCounter.builder("monnshot.quote.requests", hits, LongAdder::sum)
+        .tag("result", "hit")
+        .register(REGISTRY);
+    FunctionCounter.builder("monnshot.quote.requests", misses, LongAdder::sum)
+        .tag("result", "miss")
+        .register(REGISTRY);
+    FunctionCounter.builder("monnshot.quote.invalidations", invalidations, LongAdder::sum)
+        .register(REGISTRY);
+    FunctionCounter.builder("monnshot.quote.evictions", evictions, LongAdder::sum)
+        .register(REGISTRY);
+    Gauge.builder("monnshot.quote.hit-ratio", this, service -> service.stats().hitRatio())
+        .register(REGISTRY);
+    Gauge.builder("monnshot.quote.cached-mints", quotes, Map::size).register(REGISTRY);
+  }
+
+  /**
+   * 根据 SOL 数量计算 token 数量
+   *
+   * @param mint mint token
+   * @param curveAccount 曲线账户
+   * @param slot curveAccount 所在 slot
+   * @param collateralAmount SOL 数量 (lamports)
+   * @param isBuy true 买入
+   */
+  public BigInteger tokenAmountByCollateral(
+      PublicKey mint,
+      CurveAccount curveAccount,
+      long slot,
+      BigInteger collateralAmount,
+      boolean isBuy) {
+    return quote(
+        mint,
+        curveAdapter(curveAccount),
+        curvePosition(curveAccount),
+        slot,
+        isBuy ? QuoteSide.BUY_TOKENS_BY_COLLATERAL : QuoteSide.SELL_TOKENS_BY_COLLATERAL,
+        collateralAmount);
+  }
+
+  /**
+   * 根据 token 数量计算 SOL 数量
+   *
+   * @param mint mint token
+   * @param curveAccount 曲线账户
+   * @param slot curveAccount 所在 slot
+   * @param tokenAmount token 数量
+   * @param isBuy true 买入
+   */
+  public BigInteger collateralAmountByTokens(
+      PublicKey mint, CurveAccount curveAccount, long slot, BigInteger tokenAmount, boolean isBuy) {
+    return quote(
+        mint,
+        curveAdapter(curveAccount),
+        curvePosition(curveAccount),
+        slot,
+        isBuy ? QuoteSide.BUY_COLLATERAL_BY_TOKENS : QuoteSide.SELL_COLLATERAL_BY_TOKENS,
+        tokenAmount);
+  }
+
+  /**
+   * 使用快照表中的曲线状态报价，不发起 RPC
+   *
+   * @return 未监听该 mint 时返回 null
+   */
+  public BigInteger quote(
+      CurveSnapshotStore curveSnapshotStore, PublicKey mint, QuoteSide side, BigInteger amount) {
+    final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+    if (!curveSnapshotStore.read(mint, snapshot)) {
+      return null;
+    }
+    return quote(
+        mint,
+        curveAdapter(snapshot.curveTypeEnum()),
+        BigInteger.valueOf(snapshot.curvePosition()),
+        snapshot.getSlot(),
+        side,
+        amount);
+  }
+
+  public BigInteger quote(
+      PublicKey mint,
+      CurveAdapter curveAdapter,
+      BigInteger curvePosition,
+      long slot,
+      QuoteSide side,
+      BigInteger amount) {
+    final MintQuotes mintQuotes = current(mint, curveAdapter, curvePosition, slot);
+    final QuoteKey key = new QuoteKey(side, amount);
+    if (mintQuotes == null) {
+      // 观测到的是旧 slot 的曲线状态，不写入缓存
+      misses.increment();
+      return compute(curveAdapter, curvePosition, key);
+    }
+    final BigInteger cached = mintQuotes.results.get(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    final BigInteger result = compute(curveAdapter, curvePosition, key);
+    if (mintQuotes.results.size() < MAX_QUOTES_PER_MINT) {
+      mintQuotes.results.putIfAbsent(key, result);
+    }
+    return result;
+  }
+
+  /** 曲线状态变化 (如订阅到新的 CurveAccount) 时主动失效 */
+  public void invalidate(PublicKey mint) {
+    if (quotes.remove(mint) != null) {
+      invalidations.increment();
+    }
+  }
+
+  public QuoteStats stats() {
+    return new QuoteStats(
+        hits.sum(), misses.sum(), invalidations.sum(), evictions.sum(), quotes.size());
+  }
+
+  /** 缓存超过上限时移除 IDLE_SLOTS 内没有新观测的 mint */
+  private void evictIdle(long slot) {
+    if (quotes.size() <= MAX_CACHED_MINTS || slot - evictedAt < IDLE_SLOTS / 4) {
+      return;
+    }
+    evictedAt = slot;
+    for (Map.Entry<PublicKey, MintQuotes> entry : quotes.entrySet()) {
+      if (slot - entry.getValue().slot > IDLE_SLOTS
+          && quotes.remove(entry.getKey(), entry.getValue())) {
+        evictions.increment();
+      }
+    }
+    log.debug("evicted idle quotes at slot:{}, cached mints:{}", slot, quotes.size());
+  }
+
+  private MintQuotes current(
+      PublicKey mint, CurveAdapter curveAdapter, BigInteger curvePosition, long slot) {
+    final boolean[] added = new boolean[1];
+    final MintQuotes mintQuotes =
+        quotes.compute(
+            mint,
+            (_, existing) -> {
+              if (existing == null) {
+                added[0] = true;
+                return new MintQuotes(
+                    slot, curvePosition, curveAdapter, new ConcurrentHashMap<>());
+              }
+              if (slot < existing.slot) {
+                return existing;
+              }
+              if (!existing.curvePosition.equals(curvePosition)
+                  || existing.curveAdapter != curveAdapter) {
+                invalidations.increment();
+                log.debug("mint:{} curve position changed at slot:{}", mint, slot);
+                return new MintQuotes(
+                    slot, curvePosition, curveAdapter, new ConcurrentHashMap<>());
+              }
+              return slot == existing.slot ? existing : existing.withSlot(slot);
+            });
+    if (added[0]) {
+      evictIdle(slot);
+    }
+    if (mintQuotes.curvePosition.equals(curvePosition) && mintQuotes.curveAdapter == curveAdapter) {
+      return mintQuotes;
+    }
+    return null;
+  }
+
+  private static BigInteger compute(
+      CurveAdapter curveAdapter, BigInteger curvePosition, QuoteKey key) {
+    return switch (key.side) {
+      case BUY_TOKENS_BY_COLLATERAL ->
+          curveAdapter.getTokenAmountByCollateralSync(
+              new GetTokenAmountSyncOptions(curvePosition, key.amount, true));
+      case SELL_TOKENS_BY_COLLATERAL ->
+          curveAdapter.getTokenAmountByCollateralSync(
+              new GetTokenAmountSyncOptions(curvePosition, key.amount, false));
+      case BUY_COLLATERAL_BY_TOKENS ->
+          curveAdapter.getCollateralAmountByTokensSync(
+              new GetCollateralAmountSyncOptions(curvePosition, key.amount, true));
+      case SELL_COLLATERAL_BY_TOKENS ->
+          curveAdapter.getCollateralAmountByTokensSync(
+              new GetCollateralAmountSyncOptions(curvePosition, key.amount, false));
+    };
+  }
+
+  static BigInteger curvePosition(CurveAccount curveAccount) {
+    return BigInteger.valueOf(curveAccount.totalSupply() - curveAccount.curveAmount());
+  }
+
+  static CurveAdapter curveAdapter(CurveAccount curveAccount) {
+    return curveAdapter(curveAccount.curveType());
+  }
+
+  static CurveAdapter curveAdapter(CurveType curveType) {
+    CurveAdapter curveAdapter;
+    switch (curveType) {
+      case LinearV1 -> curveAdapter = LINEAR_V1;
+      case ConstantProductV1 -> curveAdapter = CONSTANT_PRODUCT_V1;
+      case null, default -> throw new IllegalStateException("Unexpected value: " + curveType);
+    }
+    return curveAdapter;
+  }
+}
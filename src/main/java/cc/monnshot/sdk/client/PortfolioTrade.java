@@ -0,0 +1,352 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.JitoApi;
+import cc.monnshot.sdk.Mint;
+import cc.monnshot.sdk.SendScheduler;
+import cc.monnshot.sdk.SendScheduler.Priority;
+import cc.monnshot.sdk.SignedTx;
+import cc.monnshot.sdk.SigningService;
+import cc.monnshot.sdk.SigningService.SignRequest;
+import cc.monnshot.sdk.client.ComputeUnitLimits.Shape;
+import cc.monnshot.sdk.client.MonnShotTrade.BuyOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeAccounts;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeResult;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
+import software.sava.anchor.programs.moonshot.anchor.types.TradeParams;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.meta.AccountMeta;
+import software.sava.core.tx.Instruction;
+import software.sava.core.tx.Transaction;
+import software.sava.rpc.json.http.request.Commitment;
+import software.sava.rpc.json.http.response.AccountInfo;
+import software.sava.rpc.json.http.response.TokenAmount;
+
+/**
+ * 多 mint 批量买卖
+ *
+ * <p>同一签名者的多笔 buy/sell 按交易大小 (1232 字节) 与 compute unit 上限 (1.4M) 贪心装箱，每笔交易只带一条优先费或 jito
+ * 小费指令；有 lookup table 时构建 v0 交易以装入更多交易腿。
+ */
+@Slf4j
+public class PortfolioTrade {
+
+  private static final int MAX_COMPUTE_UNITS = 1_400_000;
+
+  // 未模拟过的形态按运行时默认的每条指令 200k 计算
+  private static final int DEFAULT_LEG_UNITS = 200_000;
+
+  private final MonnShotTrade monnShotTrade;
+
+  private final LookupTableManager lookupTableManager;
+
+  // 各批交易一次性并行签名
+  private final SigningService signingService;
+
+  public record BuyLeg(PublicKey mint, BuyOptions buyOptions) {}
+
+  public record SellLeg(PublicKey mint, SellOptions sellOptions) {}
+
+  /**
+   * @param priorityFeeLevel 非 jito 时每笔交易的优先费档位
+   * @param jitoTipLevel jito 时每笔交易的小费档位
+   */
+  public record BatchOptions(String priorityFeeLevel, String jitoTipLevel, boolean jito) {}
+
+  /**
+   * @param mints 本笔交易包含的 mint
+   * @param txId 发送失败时为 null
+   * @param error 发送失败的原因，成功时为 null
+   */
+  public record BatchResult(List<PublicKey> mints, String txId, String error) {
+
+    public boolean sent() {
+      return error == null;
+    }
+  }
+
+  /**
+   * @param side buy / sell
+   * @param units 已缓存的 compute unit 上限，未知时为 null
+   * @param priority 买入 ENTRY，卖出 EXIT
+   */
+  private record Leg(
+      PublicKey mint,
+      String side,
+      TradeParams tradeParams,
+      List<Instruction> instructions,
+      Integer units,
+      Priority priority) {}
+
+  /** 使用 monnShotTrade 的 {@link SigningService} 签名 */
+  public PortfolioTrade(MonnShotTrade monnShotTrade, LookupTableManager lookupTableManager) {
+    this.monnShotTrade = monnShotTrade;
+    this.lookupTableManager = lookupTableManager;
+    this.signingService = monnShotTrade.signingService();
+  }
+
+  /**
+   * 报价、装箱、签名并并发发送
+   *
+   * @return 按批次顺序每笔交易包含的 mint 与 txId 或失败原因；无法报价的交易腿不在结果中
+   */
+  public List<BatchResult> trade(
+      PublicKey signer, List<BuyLeg> buys, List<SellLeg> sells, BatchOptions batchOptions) {
+    final List<CompletableFuture<AccountInfo<CurveAccount>>> buyCurves = new ArrayList<>();
+    final List<CompletableFuture<AccountInfo<CurveAccount>>> sellCurves = new ArrayList<>();
+    final List<CompletableFuture<TokenAmount>> balances = new ArrayList<>();
+    final List<TradeAccounts> buyAccounts = new ArrayList<>();
+    final List<TradeAccounts> sellAccounts = new ArrayList<>();
+    for (BuyLeg buyLeg : buys) {
+      final TradeAccounts accounts = TradeAccounts.of(buyLeg.mint(), signer);
+      buyAccounts.add(accounts);
+      buyCurves.add(MonnShotTrade.fetchCurveAccount(accounts));
+    }
+    for (SellLeg sellLeg : sells) {
+      final TradeAccounts accounts = TradeAccounts.of(sellLeg.mint(), signer);
+      sellAccounts.add(accounts);
+      sellCurves.add(MonnShotTrade.fetchCurveAccount(accounts));
+      balances.add(
+          HttpRpcApi.httpRpcApi()
+              .call(
+                  "getTokenAccountBalance",
+                  client ->
+                      client.getTokenAccountBalance(
+                          Commitment.CONFIRMED, accounts.mintAssociatedToken())));
+    }
+    // 不早于请求发出时获取，按此估计 blockhash 的过期时间
+    final long deadline = SendScheduler.blockHashDeadline(System.nanoTime());
+    final CompletableFuture<String> blockHash =
+        HttpRpcApi.httpRpcApi()
+            .call("getLatestBlockhash", client -> client.getLatestBlockHash(Commitment.CONFIRMED))
+            .thenApply(latestBlockHash -> latestBlockHash.blockHash());
+
+    final ComputeUnitLimits computeUnitLimits = monnShotTrade.computeUnitLimits();
+    final List<Leg> legs = new ArrayList<>(buys.size() + sells.size());
+    for (int i = 0; i < buys.size(); i++) {
+      final AccountInfo<CurveAccount> curve = buyCurves.get(i).exceptionally(_ -> null).join();
+      if (curve == null || curve.data() == null) {
+        log.warn("skip buy {}: no curve or MigrateFunds", buys.get(i).mint());
+        continue;
+      }
+      final TradeParams tradeParams =
+          monnShotTrade.buyParams(
+              buys.get(i).mint(), curve.data(), curve.context().slot(), buys.get(i).buyOptions());
+      legs.add(
+          new Leg(
+              buys.get(i).mint(),
+              "buy",
+              tradeParams,
+              List.of(MonnShotTrade.buyInstruction(buyAccounts.get(i), signer, tradeParams)),
+              computeUnitLimits.limit(curve.data().curveType(), Shape.BUY),
+              Priority.ENTRY));
+    }
+    for (int i = 0; i < sells.size(); i++) {
+      final AccountInfo<CurveAccount> curve = sellCurves.get(i).exceptionally(_ -> null).join();
+      // 尚未创建 token 账户时查询会失败，视为无持仓
+      final TokenAmount tokenAmount = balances.get(i).exceptionally(_ -> null).join();
+      if (curve == null || curve.data() == null || tokenAmount == null) {
+        log.warn("skip sell {}: no curve or balance", sells.get(i).mint());
+        continue;
+      }
+      final BigInteger balance = tokenAmount.amount();
+      if (balance.signum() <= 0) {
+        continue;
+      }
+      final SellOptions sellOptions = sells.get(i).sellOptions();
+      final TradeParams tradeParams =
+          monnShotTrade.sellParams(
+              sells.get(i).mint(), curve.data(), curve.context().slot(), balance, sellOptions);
+      legs.add(
+          new Leg(
+              sells.get(i).mint(),
+              "sell",
+              tradeParams,
+              MonnShotTrade.sellLegInstructions(
+                  sellAccounts.get(i), signer, sellOptions, tradeParams),
+              computeUnitLimits.limit(
+                  curve.data().curveType(), MonnShotTrade.sellShape(sellOptions)),
+              Priority.EXIT));
+    }
+
+    final Instruction fee =
+        MonnShotTrade.feeInstruction(
+            signer,
+            batchOptions.jito(),
+            batchOptions.priorityFeeLevel(),
+            batchOptions.jitoTipLevel());
+    final List<List<Leg>> batches = pack(signer, fee, legs);
+    final String recentBlockHash = blockHash.join();
+    final List<SignedTx> signedTxs = sign(signer, fee, batches, recentBlockHash);
+
+    try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<BatchResult>> futures = new ArrayList<>(batches.size());
+      for (int i = 0; i < batches.size(); i++) {
+        final SignedTx signedTx = signedTxs.get(i);
+        final List<Leg> batch = batches.get(i);
+        final List<PublicKey> mints = batch.stream().map(Leg::mint).toList();
+        final Priority priority = priority(batch);
+        futures.add(
+            executorService.submit(
+                () -> {
+                  final long submitStart = System.nanoTime();
+                  final String txId =
+                      batchOptions.jito()
+                          ? JitoApi.sendTransactions(signedTx, priority, deadline)
+                          : HttpRpcApi.sendTransactionSkipPreflight(
+                              signedTx, priority, deadline);
+                  log.info("batch {} tx:{}", mints, txId);
+                  monnShotTrade.recordBatch(
+                      signer,
+                      batchOptions.jito(),
+                      batchOptions.jito()
+                          ? batchOptions.jitoTipLevel()
+                          : batchOptions.priorityFeeLevel(),
+                      batch.stream()
+                          .map(
+                              leg ->
+                                  TradeResult.of(
+                                      leg.mint(), leg.side(), txId, leg.tradeParams(), submitStart))
+                          .toList(),
+                      submitStart);
+                  return new BatchResult(mints, txId, null);
+                }));
+      }
+      final List<BatchResult> results = new ArrayList<>(futures.size());
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          results.add(futures.get(i).get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted sending batches", e);
+        } catch (ExecutionException e) {
+          final List<PublicKey> mints = batches.get(i).stream().map(Leg::mint).toList();
+          log.warn("send batch {} failed", mints, e.getCause());
+          results.add(new BatchResult(mints, null, String.valueOf(e.getCause())));
+        }
+      }
+      return results;
+    }
+  }
+
+  /** 按顺序贪心装箱，单条交易腿超限时也单独成一笔 */
+  private List<List<Leg>> pack(PublicKey feePayer, Instruction fee, List<Leg> legs) {
+    final List<List<Leg>> batches = new ArrayList<>();
+    List<Leg> current = new ArrayList<>();
+    for (Leg leg : legs) {
+      current.add(leg);
+      if (current.size() > 1
+          && (units(current) > MAX_COMPUTE_UNITS
+              || estimateSize(feePayer, instructions(fee, current))
+                  > Transaction.MAX_SERIALIZED_LENGTH)) {
+        current.removeLast();
+        batches.add(current);
+        current = new ArrayList<>();
+        current.add(leg);
+      }
+    }
+    if (!current.isEmpty()) {
+      batches.add(current);
+    }
+    return batches;
+  }
+
+  private List<SignedTx> sign(
+      PublicKey signer, Instruction fee, List<List<Leg>> batches, String blockHash) {
+    final List<Transaction> transactions = new ArrayList<>(batches.size());
+    for (List<Leg> batch : batches) {
+      final Transaction transaction =
+          lookupTableManager.createTx(signer, instructions(fee, batch));
+      transaction.setRecentBlockHash(blockHash);
+      transactions.add(transaction);
+    }
+    return signingService.signAll(
+        transactions.stream().map(transaction -> SignRequest.of(signer, transaction)).toList());
+  }
+
+  /** 所有交易腿的上限都已缓存时加上 setComputeUnitLimit，否则沿用默认预算 */
+  private static List<Instruction> instructions(Instruction fee, List<Leg> batch) {
+    final List<Instruction> instructions = new LinkedList<>();
+    if (batch.stream().allMatch(leg -> leg.units() != null)) {
+      instructions.add(Mint._setComputeUnitLimit(units(batch)));
+    }
+    instructions.add(fee);
+    batch.forEach(leg -> instructions.addAll(leg.instructions()));
+    return instructions;
+  }
+
+  /** 含卖出腿的交易按退出优先发送 */
+  private static Priority priority(List<Leg> batch) {
+    return batch.stream()
+        .map(Leg::priority)
+        .min(Comparator.naturalOrder())
+        .orElse(Priority.ENTRY);
+  }
+
+  private static int units(List<Leg> batch) {
+    long units = 0;
+    for (Leg leg : batch) {
+      units += leg.units() == null ? DEFAULT_LEG_UNITS : leg.units();
+    }
+    return (int) Math.min(Integer.MAX_VALUE, units);
+  }
+
+  /**
+   * 估算单签名交易序列化后的字节数
+   *
+   * <p>签名者与被调用的程序必须是静态账户，其余已在 lookup table 中的账户按 1 字节索引计算。
+   */
+  int estimateSize(PublicKey feePayer, List<Instruction> instructions) {
+    final Set<PublicKey> staticKeys = new HashSet<>();
+    final Set<PublicKey> lookupKeys = new HashSet<>();
+    staticKeys.add(feePayer);
+    instructions.forEach(instruction -> staticKeys.add(instruction.programId().publicKey()));
+    int instructionBytes = 0;
+    for (Instruction instruction : instructions) {
+      for (AccountMeta accountMeta : instruction.accounts()) {
+        final PublicKey publicKey = accountMeta.publicKey();
+        if (!staticKeys.contains(publicKey)) {
+          if (lookupTableManager.contains(publicKey)) {
+            lookupKeys.add(publicKey);
+          } else {
+            staticKeys.add(publicKey);
+          }
+        }
+      }
+      final int accounts = instruction.accounts().size();
+      final int data = instruction.len();
+      instructionBytes += 1 + compactLength(accounts) + accounts + compactLength(data) + data;
+    }
+    lookupKeys.removeAll(staticKeys);
+    final boolean v0 = lookupTableManager.table() != null;
+    int size = compactLength(1) + 64 + (v0 ? 1 : 0) + 3;
+    size += compactLength(staticKeys.size()) + staticKeys.size() * 32 + 32;
+    size += compactLength(instructions.size()) + instructionBytes;
+    if (v0) {
+      // 单张表：地址 + 可写/只读索引
+      size += compactLength(lookupKeys.isEmpty() ? 0 : 1);
+      if (!lookupKeys.isEmpty()) {
+        size += 32 + 2 + lookupKeys.size();
+      }
+    }
+    return size;
+  }
+
+  private static int compactLength(int value) {
+    return value < 0x80 ? 1 : value < 0x4000 ? 2 : 3;
+  }
+}
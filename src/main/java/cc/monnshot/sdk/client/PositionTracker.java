@@ -0,0 +1,326 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.RpcDecoders;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeAccounts;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeResult;
+import cc.monnshot.sdk.client.MoonshotQuoteService.QuoteSide;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+import software.sava.rpc.json.http.response.TokenAmount;
+
+/**
+ * 按钱包 + mint 维护的本地持仓
+ *
+ * <p>自己的交易在确认后按链上实际成交 (getTransaction 余额变化) 记入，未上链的交易不影响持仓；链上余额按 slot
+ * 覆盖本地值。部分卖出与风控直接读本地持仓，不再调用 getTokenAccountBalance。市值使用快照表中的曲线状态按卖出报价计算。
+ */
+@Slf4j
+public class PositionTracker implements AutoCloseable {
+
+  private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final VarHandle U64 =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  // SPL token 账户数据中 amount 的偏移 (mint 32 + owner 32)
+  private static final int TOKEN_ACCOUNT_AMOUNT = 64;
+
+  private final MoonshotQuoteService quoteService;
+
+  private final CurveSnapshotStore curveSnapshotStore;
+
+  private final Map<Key, Position> positions = new ConcurrentHashMap<>();
+
+  private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+  private record Key(PublicKey owner, PublicKey mint) {}
+
+  /**
+   * @param tokenAmount 持有 token 数量
+   * @param costLamports 当前持仓的成本 (lamports)，卖出时按比例扣减
+   * @param realizedLamports 已实现盈亏 (lamports)
+   * @param slot 最近一次链上余额所在 slot，仅有本地交易时为 0
+   */
+  public record Position(
+      PublicKey owner,
+      PublicKey mint,
+      long tokenAmount,
+      long costLamports,
+      long realizedLamports,
+      long slot) {
+
+    /** 每个 token 的平均成本 (lamports)，无持仓为 0 */
+    public double averageCost() {
+      return tokenAmount == 0 ? 0D : (double) costLamports / tokenAmount;
+    }
+  }
+
+  /**
+   * @param markLamports 按当前曲线全部卖出可得的 sol (lamports)
+   * @param unrealizedLamports markLamports - costLamports
+   * @param curveSlot 报价使用的曲线快照所在 slot
+   */
+  public record Valuation(
+      Position position, long markLamports, long unrealizedLamports, long curveSlot) {}
+
+  public PositionTracker(
+      MoonshotQuoteService quoteService, CurveSnapshotStore curveSnapshotStore) {
+    this.quoteService = quoteService;
+    this.curveSnapshotStore = curveSnapshotStore;
+  }
+
+  /**
+   * @return 未记录过返回 null
+   */
+  public Position position(PublicKey owner, PublicKey mint) {
+    return positions.get(new Key(owner, mint));
+  }
+
+  public List<Position> positions(PublicKey owner) {
+    return positions.values().stream().filter(position -> position.owner().equals(owner)).toList();
+  }
+
+  /**
+   * 异步等待自己发出的交易确认，按链上实际成交记入
+   *
+   * @return 记入后的持仓，未上链或执行失败时为 null
+   */
+  public CompletableFuture<Position> track(PublicKey owner, TradeResult tradeResult) {
+    return track(owner, List.of(tradeResult))
+        .thenApply(filled -> filled == null ? null : filled.getFirst());
+  }
+
+  /**
+   * 同一笔交易中多个 mint 的交易腿，只等待一次确认
+   *
+   * <p>手续费账户由各交易腿共用，按各曲线账户 lamports 变化的比例分摊。
+   *
+   * @param legs txId 相同的交易腿
+   * @return 按 legs 顺序记入后的持仓，未上链或执行失败时为 null
+   */
+  public CompletableFuture<List<Position>> track(PublicKey owner, List<TradeResult> legs) {
+    final String txId = legs.getFirst().txId();
+    if (txId == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.supplyAsync(
+        () -> {
+          final RpcDecoders.TransactionBalances balances =
+              HttpRpcApi.awaitTransactionBalances(txId, CONFIRM_TIMEOUT);
+          if (balances == null) {
+            return null;
+          }
+          final long[] curveDeltas = new long[legs.size()];
+          long curveTotal = 0;
+          for (int i = 0; i < legs.size(); i++) {
+            final PublicKey mint = PublicKey.fromBase58Encoded(legs.get(i).mint());
+            curveDeltas[i] =
+                balances.lamportDelta(TradeAccounts.of(mint, owner).bondingCurve().toBase58());
+            curveTotal += Math.abs(curveDeltas[i]);
+          }
+          final long fees =
+              balances.lamportDelta(MonnshotProgram.DEX_FEE.toBase58())
+                  + balances.lamportDelta(MonnshotProgram.HELIO_FEE.toBase58());
+          final List<Position> filled = new ArrayList<>(legs.size());
+          for (int i = 0; i < legs.size(); i++) {
+            final TradeResult leg = legs.get(i);
+            final long share =
+                legs.size() == 1 ? fees : proportion(fees, Math.abs(curveDeltas[i]), curveTotal);
+            filled.add(
+                onFill(
+                    owner,
+                    PublicKey.fromBase58Encoded(leg.mint()),
+                    "buy".equals(leg.side()),
+                    Math.abs(balances.tokenDelta(owner.toBase58(), leg.mint())),
+                    Math.abs(curveDeltas[i] + share),
+                    balances.getSlot()));
+          }
+          return filled;
+        },
+        executorService);
+  }
+
+  /**
+   * 记入一笔已确认的成交
+   *
+   * <p>已有不早于成交 slot 的链上余额时数量已包含在余额中：买入只记成本；卖出的成本已在余额减少时扣减，只记收入。
+   */
+  public Position onFill(
+      PublicKey owner, PublicKey mint, boolean buy, long tokenAmount, long lamports, long slot) {
+    return positions.compute(
+        new Key(owner, mint),
+        (_, existing) -> {
+          final Position position =
+              existing == null ? new Position(owner, mint, 0, 0, 0, 0) : existing;
+          final boolean counted = slot <= position.slot();
+          final Position filled;
+          if (buy) {
+            filled = bought(position, counted ? 0 : tokenAmount, lamports);
+          } else if (counted) {
+            filled = withRealized(position, position.realizedLamports() + lamports);
+          } else {
+            filled = sold(position, tokenAmount, lamports);
+          }
+          return new Position(
+              owner,
+              mint,
+              filled.tokenAmount(),
+              filled.costLamports(),
+              filled.realizedLamports(),
+              Math.max(slot, position.slot()));
+        });
+  }
+
+  /**
+   * 链上余额，slot 比已有记录旧时忽略
+   *
+   * <p>余额减少视为零收入卖出，按比例扣减的成本记为已实现亏损，之后确认的自己的卖单再补记收入；余额增加时成本不变。
+   */
+  public void onBalance(PublicKey owner, PublicKey mint, long tokenAmount, long slot) {
+    positions.compute(
+        new Key(owner, mint),
+        (_, existing) -> {
+          if (existing == null) {
+            return new Position(owner, mint, tokenAmount, 0, 0, slot);
+          }
+          if (slot < existing.slot()) {
+            return existing;
+          }
+          final long cost =
+              tokenAmount < existing.tokenAmount()
+                  ? proportion(existing.costLamports(), tokenAmount, existing.tokenAmount())
+                  : existing.costLamports();
+          return new Position(
+              owner,
+              mint,
+              tokenAmount,
+              cost,
+              existing.realizedLamports() - (existing.costLamports() - cost),
+              slot);
+        });
+  }
+
+  public void onBalance(PublicKey owner, PublicKey mint, TokenAmount tokenAmount) {
+    onBalance(owner, mint, tokenAmount.amount().longValue(), tokenAmount.context().slot());
+  }
+
+  /**
+   * 直接从 getAccountInfo 解码后的 token 账户数据更新，不存在的账户视为余额 0
+   */
+  public void onTokenAccount(PublicKey owner, PublicKey mint, RpcDecoders.AccountData account) {
+    final long amount =
+        account.isExists() && account.getLength() >= TOKEN_ACCOUNT_AMOUNT + Long.BYTES
+            ? (long) U64.get(account.getData(), TOKEN_ACCOUNT_AMOUNT)
+            : 0L;
+    onBalance(owner, mint, amount, account.getSlot());
+  }
+
+  /** 从 RPC 拉取一次余额，用于启动或对账；token 账户不存在时记为 0 */
+  public Position sync(PublicKey owner, PublicKey mint) {
+    final RpcDecoders.AccountData account =
+        HttpRpcApi.getAccountData(
+                TradeAccounts.of(mint, owner).mintAssociatedToken(), new RpcDecoders.AccountData())
+            .join();
+    onTokenAccount(owner, mint, account);
+    return position(owner, mint);
+  }
+
+  /**
+   * 按快照表中的曲线状态估值，不发起 RPC
+   *
+   * @return 未记录持仓或未监听该 mint 的曲线时返回 null
+   */
+  public Valuation valuation(PublicKey owner, PublicKey mint) {
+    final Position position = position(owner, mint);
+    if (position == null) {
+      return null;
+    }
+    final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+    if (!curveSnapshotStore.read(mint, snapshot)) {
+      return null;
+    }
+    final long mark =
+        position.tokenAmount() == 0
+            ? 0L
+            : quoteService
+                .quote(
+                    mint,
+                    MoonshotQuoteService.curveAdapter(snapshot.curveTypeEnum()),
+                    BigInteger.valueOf(snapshot.curvePosition()),
+                    snapshot.getSlot(),
+                    QuoteSide.SELL_COLLATERAL_BY_TOKENS,
+                    BigInteger.valueOf(position.tokenAmount()))
+                .longValue();
+    return new Valuation(position, mark, mark - position.costLamports(), snapshot.getSlot());
+  }
+
+  /** 跳过未监听曲线的 mint */
+  public List<Valuation> valuations(PublicKey owner) {
+    return positions(owner).stream()
+        .map(position -> valuation(owner, position.mint()))
+        .filter(valuation -> valuation != null)
+        .toList();
+  }
+
+  @Override
+  public void close() {
+    executorService.close();
+  }
+
+  private static Position withRealized(Position position, long realizedLamports) {
+    return new Position(
+        position.owner(),
+        position.mint(),
+        position.tokenAmount(),
+        position.costLamports(),
+        realizedLamports,
+        position.slot());
+  }
+
+  private static Position bought(Position position, long tokenAmount, long collateralAmount) {
+    return new Position(
+        position.owner(),
+        position.mint(),
+        position.tokenAmount() + tokenAmount,
+        position.costLamports() + collateralAmount,
+        position.realizedLamports(),
+        position.slot());
+  }
+
+  private static Position sold(Position position, long tokenAmount, long collateralAmount) {
+    final long sold = Math.min(tokenAmount, position.tokenAmount());
+    final long remaining = position.tokenAmount() - sold;
+    final long cost = proportion(position.costLamports(), remaining, position.tokenAmount());
+    return new Position(
+        position.owner(),
+        position.mint(),
+        remaining,
+        cost,
+        position.realizedLamports() + collateralAmount - (position.costLamports() - cost),
+        position.slot());
+  }
+
+  /** value * numerator / denominator，中间结果可能超出 long */
+  private static long proportion(long value, long numerator, long denominator) {
+    if (denominator == 0) {
+      return 0L;
+    }
+    return BigInteger.valueOf(value)
+        .multiply(BigInteger.valueOf(numerator))
+        .divide(BigInteger.valueOf(denominator))
+        .longValue();
+  }
+}
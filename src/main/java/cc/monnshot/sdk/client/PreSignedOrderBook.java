@@ -0,0 +1,396 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.client.MonnShotTrade.BuyOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.PreparedTrade;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeAccounts;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
+import software.sava.core.accounts.PublicKey;
+import software.sava.rpc.json.http.request.Commitment;
+import software.sava.rpc.json.http.response.AccountInfo;
+import software.sava.rpc.json.http.response.LatestBlockHash;
+import software.sava.rpc.json.http.response.TokenAmount;
+
+/**
+ * 预签名挂单簿
+ *
+ * <p>对每个监听的 mint + 签名者维护一组不同金额/滑点的买单与卖单，blockhash、曲线状态或持仓变化时重新报价并签名；
+ * 入场信号到来时直接发送内存中已签名的字节，不再查询 RPC、报价或签名。
+ *
+ * <p>每次签名的结果作为不可变快照整体发布，触发时以 CAS 取走该档位，同一档位在输入 (blockhash、曲线、持仓) 变化并重新签名前
+ * 不能再次触发，避免重复发送相同字节。触发路径不进入对象锁。
+ */
+@Slf4j
+public class PreSignedOrderBook implements AutoCloseable {
+
+  private final MonnShotTrade monnShotTrade;
+
+  private final Map<BookKey, Book> books = new ConcurrentHashMap<>();
+
+  private volatile String blockHash;
+
+  // 首次见到当前 blockHash 时的 System.nanoTime()，用于估计过期时间
+  private volatile long blockHashAt;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * @param buys 买单档位，按下标触发
+   * @param sells 卖单档位，按下标触发
+   * @param jito true 通过 jito 提交
+   */
+  public record Ladder(List<BuyOptions> buys, List<SellOptions> sells, boolean jito) {}
+
+  private record BookKey(PublicKey mint, PublicKey owner) {}
+
+  // 签名所用的输入，相同输入签出的交易字节相同
+  private record Inputs(
+      String blockHash, long slot, long curveAmount, long totalSupply, BigInteger tokenBalance) {}
+
+  /** 一次签名发布的挂单，不修改；已触发的档位为 null */
+  private record Ladders(Inputs inputs, List<PreparedTrade> buys, List<PreparedTrade> sells) {
+
+    private static final Ladders EMPTY = new Ladders(null, List.of(), List.of());
+
+    private PreparedTrade get(boolean buy, int level) {
+      return level(buy ? buys : sells, level);
+    }
+
+    private Ladders claim(boolean buy, int level) {
+      return buy
+          ? new Ladders(inputs, without(buys, level), sells)
+          : new Ladders(inputs, buys, without(sells, level));
+    }
+
+    /** 输入未变时保留已触发档位，否则全部重新可用 */
+    private Ladders keepClaimed(Ladders previous) {
+      if (!Objects.equals(inputs, previous.inputs)) {
+        return this;
+      }
+      return new Ladders(inputs, claimed(buys, previous.buys), claimed(sells, previous.sells));
+    }
+
+    private int count() {
+      return (int)
+          (buys.stream().filter(Objects::nonNull).count()
+              + sells.stream().filter(Objects::nonNull).count());
+    }
+
+    private static List<PreparedTrade> without(List<PreparedTrade> trades, int level) {
+      final PreparedTrade[] copy = trades.toArray(PreparedTrade[]::new);
+      copy[level] = null;
+      return Collections.unmodifiableList(Arrays.asList(copy));
+    }
+
+    private static List<PreparedTrade> claimed(
+        List<PreparedTrade> trades, List<PreparedTrade> previous) {
+      final PreparedTrade[] copy = trades.toArray(PreparedTrade[]::new);
+      for (int i = 0; i < copy.length && i < previous.size(); i++) {
+        if (previous.get(i) == null) {
+          copy[i] = null;
+        }
+      }
+      return Collections.unmodifiableList(Arrays.asList(copy));
+    }
+  }
+
+  private static final class Book {
+    private final PublicKey signer;
+    private final TradeAccounts accounts;
+    private final Ladder ladder;
+    private CurveAccount curveAccount;
+    private long slot;
+    private BigInteger tokenBalance = BigInteger.ZERO;
+    private volatile boolean dirty;
+    // 触发路径无锁读取与取走
+    private final AtomicReference<Ladders> ladders = new AtomicReference<>(Ladders.EMPTY);
+
+    private Book(PublicKey signer, TradeAccounts accounts, Ladder ladder) {
+      this.signer = signer;
+      this.accounts = accounts;
+      this.ladder = ladder;
+    }
+  }
+
+  public PreSignedOrderBook(MonnShotTrade monnShotTrade) {
+    this.monnShotTrade = monnShotTrade;
+  }
+
+  public void watch(PublicKey mint, PublicKey signer, Ladder ladder) {
+    final TradeAccounts accounts = TradeAccounts.of(mint, signer);
+    books.put(new BookKey(mint, signer), new Book(signer, accounts, ladder));
+  }
+
+  public void unwatch(PublicKey mint, PublicKey owner) {
+    books.remove(new BookKey(mint, owner));
+  }
+
+  /** 按间隔拉取 blockhash、曲线与持仓，有变化时重新签名 */
+  public synchronized void start(Duration interval) {
+    if (scheduler != null) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("pre-signed-order-book").factory());
+    scheduler.scheduleWithFixedDelay(
+        this::refresh, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  /** 外部 (如 websocket 订阅) 推送新的 blockhash */
+  public synchronized void onBlockHash(String blockHash) {
+    applyBlockHash(blockHash);
+    rebuildDirty();
+  }
+
+  /** 外部推送曲线状态，slot 不比已有状态新时忽略 */
+  public synchronized void onCurve(PublicKey mint, CurveAccount curveAccount, long slot) {
+    applyCurve(mint, curveAccount, slot);
+    rebuildDirty();
+  }
+
+  public synchronized void onTokenBalance(PublicKey mint, PublicKey owner, BigInteger balance) {
+    applyTokenBalance(books.get(new BookKey(mint, owner)), balance);
+    rebuildDirty();
+  }
+
+  /**
+   * @return 已签名的买单，未就绪时返回 null
+   */
+  public PreparedTrade preparedBuy(PublicKey mint, PublicKey owner, int level) {
+    final Book book = books.get(new BookKey(mint, owner));
+    return book == null ? null : book.ladders.get().get(true, level);
+  }
+
+  /**
+   * @return 已签名的卖单，未就绪或无持仓时返回 null
+   */
+  public PreparedTrade preparedSell(PublicKey mint, PublicKey owner, int level) {
+    final Book book = books.get(new BookKey(mint, owner));
+    return book == null ? null : book.ladders.get().get(false, level);
+  }
+
+  /**
+   * 发送预签名买单，该档位已触发且尚未重新签名时直接失败
+   *
+   * @return txId
+   */
+  public String fireBuy(PublicKey mint, PublicKey owner, int level) {
+    return fire(true, mint, owner, level);
+  }
+
+  public String fireSell(PublicKey mint, PublicKey owner, int level) {
+    return fire(false, mint, owner, level);
+  }
+
+  public int preparedCount() {
+    return books.values().stream().mapToInt(book -> book.ladders.get().count()).sum();
+  }
+
+  private String fire(boolean buy, PublicKey mint, PublicKey owner, int level) {
+    final Book book = books.get(new BookKey(mint, owner));
+    PreparedTrade preparedTrade;
+    while (true) {
+      final Ladders current = book == null ? Ladders.EMPTY : book.ladders.get();
+      preparedTrade = current.get(buy, level);
+      if (preparedTrade == null) {
+        throw new IllegalStateException("No prepared trade for " + mint + " / " + owner);
+      }
+      if (book.ladders.compareAndSet(current, current.claim(buy, level))) {
+        break;
+      }
+    }
+    return monnShotTrade.fire(preparedTrade);
+  }
+
+  private void refresh() {
+    try {
+      final CompletableFuture<LatestBlockHash> latestBlockHash =
+          HttpRpcApi.httpRpcApi()
+              .call(
+                  "getLatestBlockhash",
+                  client -> client.getLatestBlockHash(Commitment.CONFIRMED));
+      final Map<PublicKey, CompletableFuture<AccountInfo<CurveAccount>>> curves = new HashMap<>();
+      final Map<Book, CompletableFuture<TokenAmount>> balances = new HashMap<>();
+      for (Book book : books.values()) {
+        curves.computeIfAbsent(
+            book.accounts.mint(),
+            _ ->
+                HttpRpcApi.httpRpcApi()
+                    .call(
+                        "getAccountInfo",
+                        client ->
+                            client.getAccountInfo(
+                                Commitment.CONFIRMED,
+                                book.accounts.bondingCurve(),
+                                CurveAccount.FACTORY)));
+        if (!book.ladder.sells().isEmpty()) {
+          balances.put(
+              book,
+              HttpRpcApi.httpRpcApi()
+                  .call(
+                      "getTokenAccountBalance",
+                      client ->
+                          client.getTokenAccountBalance(
+                              Commitment.CONFIRMED, book.accounts.mintAssociatedToken())));
+        }
+      }
+      final String latest = latestBlockHash.join().blockHash();
+      synchronized (this) {
+        applyBlockHash(latest);
+        curves.forEach(
+            (mint, future) -> {
+              final AccountInfo<CurveAccount> accountInfo = future.exceptionally(_ -> null).join();
+              if (accountInfo != null && accountInfo.data() != null) {
+                applyCurve(mint, accountInfo.data(), accountInfo.context().slot());
+              }
+            });
+        balances.forEach(
+            (book, future) -> {
+              // 尚未创建 token 账户时查询会失败，视为无持仓
+              final TokenAmount tokenAmount = future.exceptionally(_ -> null).join();
+              applyTokenBalance(
+                  book, tokenAmount == null ? BigInteger.ZERO : tokenAmount.amount());
+            });
+        rebuildDirty();
+      }
+    } catch (RuntimeException e) {
+      log.warn("refresh order book failed", e);
+    }
+  }
+
+  private void applyBlockHash(String latest) {
+    if (latest == null || latest.equals(blockHash)) {
+      return;
+    }
+    blockHashAt = System.nanoTime();
+    blockHash = latest;
+    books.values().forEach(book -> book.dirty = true);
+  }
+
+  private void applyCurve(PublicKey mint, CurveAccount curveAccount, long slot) {
+    for (Book book : books.values()) {
+      if (!book.accounts.mint().equals(mint) || slot < book.slot) {
+        continue;
+      }
+      final boolean changed =
+          book.curveAccount == null
+              || book.curveAccount.curveAmount() != curveAccount.curveAmount()
+              || book.curveAccount.totalSupply() != curveAccount.totalSupply();
+      book.curveAccount = curveAccount;
+      book.slot = slot;
+      book.dirty |= changed;
+    }
+  }
+
+  private void applyTokenBalance(Book book, BigInteger balance) {
+    if (book == null || book.tokenBalance.equals(balance)) {
+      return;
+    }
+    book.tokenBalance = balance;
+    book.dirty = true;
+  }
+
+  private void rebuildDirty() {
+    final String currentBlockHash = blockHash;
+    if (currentBlockHash == null) {
+      return;
+    }
+    final long currentBlockHashAt = blockHashAt;
+    for (Book book : books.values()) {
+      if (!book.dirty || book.curveAccount == null) {
+        continue;
+      }
+      try {
+        final Inputs inputs =
+            new Inputs(
+                currentBlockHash,
+                book.slot,
+                book.curveAccount.curveAmount(),
+                book.curveAccount.totalSupply(),
+                book.tokenBalance);
+        final Ladders prepared =
+            new Ladders(
+                inputs,
+                prepareBuys(book, currentBlockHash, currentBlockHashAt),
+                prepareSells(book, currentBlockHash, currentBlockHashAt));
+        // 签名期间触发的档位在输入未变时仍保持已取走
+        book.ladders.updateAndGet(prepared::keepClaimed);
+        book.dirty = false;
+      } catch (RuntimeException e) {
+        log.warn("prepare trades for {} failed", book.accounts.mint(), e);
+      }
+    }
+  }
+
+  private List<PreparedTrade> prepareBuys(
+      Book book, String currentBlockHash, long currentBlockHashAt) {
+    final List<PreparedTrade> prepared = new ArrayList<>(book.ladder.buys().size());
+    for (BuyOptions buyOptions : book.ladder.buys()) {
+      prepared.add(
+          monnShotTrade.prepareBuy(
+              book.accounts,
+              book.signer,
+              buyOptions,
+              book.ladder.jito(),
+              book.curveAccount,
+              book.slot,
+              null,
+              currentBlockHash,
+              currentBlockHashAt));
+    }
+    return List.copyOf(prepared);
+  }
+
+  private List<PreparedTrade> prepareSells(
+      Book book, String currentBlockHash, long currentBlockHashAt) {
+    if (book.tokenBalance.signum() <= 0) {
+      return List.of();
+    }
+    final List<PreparedTrade> prepared = new ArrayList<>(book.ladder.sells().size());
+    for (SellOptions sellOptions : book.ladder.sells()) {
+      prepared.add(
+          monnShotTrade.prepareSell(
+              book.accounts,
+              book.signer,
+              sellOptions,
+              book.ladder.jito(),
+              book.curveAccount,
+              book.slot,
+              book.tokenBalance,
+              null,
+              currentBlockHash,
+              currentBlockHashAt));
+    }
+    return List.copyOf(prepared);
+  }
+
+  private static PreparedTrade level(List<PreparedTrade> trades, int level) {
+    return level < 0 || level >= trades.size() ? null : trades.get(level);
+  }
+}
@@ -0,0 +1,483 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.client.MonnShotTrade.BuyOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.CurveAdapter;
+import cc.monnshot.sdk.client.MonnShotTrade.GetCollateralAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.GetTokenAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveType;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.util.LamportDecimal;
+
+/**
+ * 离线回放曲线快照与成交记录，评估买卖决策
+ *
+ * <p>事件按 mint 分组，各 mint 在 fork/join 池上并行回放，不等待真实时间。策略下单后经过 latencySlots
+ * 在当时的曲线状态上成交，与下单时的报价比较得出滑点，超出滑点的单视为失败；自己的成交累加到之后的曲线位置上。
+ *
+ * <p>文件格式每行一个事件，{@code #} 开头为注释:
+ *
+ * <pre>
+ * C,slot,mint,curveType,totalSupply,curveAmount
+ * T,slot,mint,B|S,tokenAmount,collateralAmount
+ * </pre>
+ */
+@Slf4j
+public class ReplayEngine {
+
+  private static final BigInteger PRICE_LOT = BigInteger.valueOf(1_000_000_000L);
+
+  private final ForkJoinPool pool;
+
+  private final long latencySlots;
+
+  /** 曲线快照或成交记录 */
+  public sealed interface Event permits CurveEvent, TradeEvent {
+    long slot();
+
+    PublicKey mint();
+  }
+
+  public record CurveEvent(
+      long slot, PublicKey mint, CurveType curveType, long totalSupply, long curveAmount)
+      implements Event {}
+
+  /** 市场成交，没有后续快照时按成交数量推进曲线 */
+  public record TradeEvent(
+      long slot, PublicKey mint, boolean buy, long tokenAmount, long collateralAmount)
+      implements Event {}
+
+  /** 策略下单，buy / sell 二选一 */
+  public record Order(BuyOptions buy, SellOptions sell) {
+
+    public static Order buy(BuyOptions buyOptions) {
+      return new Order(buyOptions, null);
+    }
+
+    public static Order sell(SellOptions sellOptions) {
+      return new Order(null, sellOptions);
+    }
+  }
+
+  /**
+   * 策略看到的状态
+   *
+   * @param curvePosition 含自己成交的曲线位置
+   * @param price 1 个整 token 的卖出报价折算的单价 (lamports / token 最小单位)
+   * @param progress 曲线进度百分比
+   */
+  public record View(
+      long slot,
+      CurveType curveType,
+      long curvePosition,
+      double price,
+      double progress,
+      long tokenAmount,
+      long costLamports) {}
+
+  /** 交易决策，每个 mint 使用独立实例 */
+  @FunctionalInterface
+  public interface Strategy {
+
+    /**
+     * @return 不下单返回 null
+     */
+    Order onEvent(Event event, View view);
+  }
+
+  /**
+   * @param expected 下单时的报价 (买入为 token，卖出为 lamports)
+   * @param slippageBps 成交相对报价变差的比例，负数为更优
+   * @param rejected 超出滑点未成交
+   */
+  public record Fill(
+      PublicKey mint,
+      long orderSlot,
+      long fillSlot,
+      String side,
+      long tokenAmount,
+      long collateralAmount,
+      long expected,
+      double slippageBps,
+      boolean rejected) {}
+
+  /**
+   * @param markLamports 回放结束时按曲线卖出剩余持仓可得的 lamports
+   */
+  public record MintReport(
+      PublicKey mint,
+      int events,
+      List<Fill> fills,
+      long tokenAmount,
+      long costLamports,
+      long realizedLamports,
+      long markLamports) {
+
+    public long pnlLamports() {
+      return realizedLamports + markLamports - costLamports;
+    }
+  }
+
+  public record Report(List<MintReport> mints, long events, long elapsedMillis) {
+
+    public long pnlLamports() {
+      return mints.stream().mapToLong(MintReport::pnlLamports).sum();
+    }
+
+    public List<Fill> fills() {
+      return mints.stream().flatMap(mint -> mint.fills().stream()).toList();
+    }
+  }
+
+  public ReplayEngine() {
+    this(ForkJoinPool.commonPool(), 1);
+  }
+
+  /**
+   * @param latencySlots 下单到成交的 slot 数，0 表示按下单时的状态立即成交
+   */
+  public ReplayEngine(ForkJoinPool pool, long latencySlots) {
+    this.pool = pool;
+    this.latencySlots = latencySlots;
+  }
+
+  public Report replay(Path path, Supplier<Strategy> strategies) {
+    return replay(read(path), strategies);
+  }
+
+  public Report replay(List<Event> events, Supplier<Strategy> strategies) {
+    final long start = System.currentTimeMillis();
+    final Map<PublicKey, List<Event>> byMint = new LinkedHashMap<>();
+    for (Event event : events) {
+      byMint.computeIfAbsent(event.mint(), _ -> new ArrayList<>()).add(event);
+    }
+    final List<List<Event>> mints = new ArrayList<>(byMint.values());
+    // 同一 slot 内保持文件中的顺序
+    mints.forEach(mintEvents -> mintEvents.sort(Comparator.comparingLong(Event::slot)));
+    final List<MintReport> reports =
+        pool.invoke(new ReplayTask(mints, 0, mints.size(), strategies, latencySlots));
+    final Report report = new Report(reports, events.size(), System.currentTimeMillis() - start);
+    log.info(
+        "replay {} mints, {} events in {}ms, pnl:{}",
+        reports.size(),
+        events.size(),
+        report.elapsedMillis(),
+        report.pnlLamports());
+    return report;
+  }
+
+  public static List<Event> read(Path path) {
+    try (Stream<String> lines = Files.lines(path, StandardCharsets.US_ASCII)) {
+      return lines
+          .map(String::strip)
+          .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+          .map(ReplayEngine::parse)
+          .toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("Read replay file failed: " + path, e);
+    }
+  }
+
+  /** 写出为 {@link #read} 可读取的格式，可用于录制 */
+  public static void write(Path path, List<? extends Event> events) {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+      for (Event event : events) {
+        writer.write(format(event));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Write replay file failed: " + path, e);
+    }
+  }
+
+  public static String format(Event event) {
+    return switch (event) {
+      case CurveEvent curve ->
+          String.join(
+              ",",
+              "C",
+              Long.toString(curve.slot()),
+              curve.mint().toBase58(),
+              curve.curveType().name(),
+              Long.toString(curve.totalSupply()),
+              Long.toString(curve.curveAmount()));
+      case TradeEvent trade ->
+          String.join(
+              ",",
+              "T",
+              Long.toString(trade.slot()),
+              trade.mint().toBase58(),
+              trade.buy() ? "B" : "S",
+              Long.toString(trade.tokenAmount()),
+              Long.toString(trade.collateralAmount()));
+    };
+  }
+
+  private static Event parse(String line) {
+    final String[] fields = line.split(",");
+    if (fields.length != 6) {
+      throw new IllegalStateException("Bad replay line: " + line);
+    }
+    final long slot = Long.parseLong(fields[1]);
+    final PublicKey mint = PublicKey.fromBase58Encoded(fields[2]);
+    return switch (fields[0]) {
+      case "C" ->
+          new CurveEvent(
+              slot,
+              mint,
+              CurveType.valueOf(fields[3]),
+              Long.parseLong(fields[4]),
+              Long.parseLong(fields[5]));
+      case "T" ->
+          new TradeEvent(
+              slot,
+              mint,
+              "B".equals(fields[3]),
+              Long.parseLong(fields[4]),
+              Long.parseLong(fields[5]));
+      default -> throw new IllegalStateException("Bad replay line: " + line);
+    };
+  }
+
+  /** 按 mint 区间二分，单个 mint 在当前线程回放 */
+  private static final class ReplayTask extends RecursiveTask<List<MintReport>> {
+    private final List<List<Event>> mints;
+    private final int from;
+    private final int to;
+    private final Supplier<Strategy> strategies;
+    private final long latencySlots;
+
+    private ReplayTask(
+        List<List<Event>> mints,
+        int from,
+        int to,
+        Supplier<Strategy> strategies,
+        long latencySlots) {
+      this.mints = mints;
+      this.from = from;
+      this.to = to;
+      this.strategies = strategies;
+      this.latencySlots = latencySlots;
+    }
+
+    @Override
+    protected List<MintReport> compute() {
+      if (to - from <= 1) {
+        return from == to
+            ? List.of()
+            : List.of(new MintReplay(strategies.get(), latencySlots).run(mints.get(from)));
+      }
+      final int middle = (from + to) >>> 1;
+      final ReplayTask left = new ReplayTask(mints, from, middle, strategies, latencySlots);
+      final ReplayTask right = new ReplayTask(mints, middle, to, strategies, latencySlots);
+      left.fork();
+      final List<MintReport> rightReports = right.compute();
+      final List<MintReport> reports = new ArrayList<>(left.join());
+      reports.addAll(rightReports);
+      return reports;
+    }
+  }
+
+  /** 单个 mint 的回放状态，只在一个线程内使用 */
+  private static final class MintReplay {
+    private final Strategy strategy;
+    private final long latencySlots;
+    private final List<Fill> fills = new ArrayList<>();
+    private final List<Pending> pending = new ArrayList<>();
+    private PublicKey mint;
+    private CurveType curveType;
+    private long totalSupply;
+    private long curveAmount;
+    private long slot;
+    // 自己净买入的 token，录制的曲线中不包含
+    private long ownNet;
+    private long tokenAmount;
+    private long costLamports;
+    private long realizedLamports;
+
+    private record Pending(Order order, long orderSlot, long dueSlot, long expected) {}
+
+    private MintReplay(Strategy strategy, long latencySlots) {
+      this.strategy = strategy;
+      this.latencySlots = latencySlots;
+    }
+
+    private MintReport run(List<Event> events) {
+      mint = events.getFirst().mint();
+      for (Event event : events) {
+        slot = event.slot();
+        switch (event) {
+          case CurveEvent curve -> {
+            curveType = curve.curveType();
+            totalSupply = curve.totalSupply();
+            curveAmount = curve.curveAmount();
+          }
+          case TradeEvent trade ->
+              curveAmount += trade.buy() ? -trade.tokenAmount() : trade.tokenAmount();
+        }
+        if (curveType == null) {
+          continue;
+        }
+        fillDue();
+        final Order order = strategy.onEvent(event, view());
+        if (order != null) {
+          submit(order);
+        }
+      }
+      final long mark =
+          curveType == null || tokenAmount == 0
+              ? 0L
+              : collateralByTokens(BigInteger.valueOf(tokenAmount), false).longValue();
+      return new MintReport(
+          mint,
+          events.size(),
+          fills,
+          tokenAmount,
+          costLamports,
+          realizedLamports,
+          mark);
+    }
+
+    private void submit(Order order) {
+      final long expected =
+          order.buy() != null
+              ? tokensByCollateral(lamports(order.buy().buySol()), true).longValue()
+              : collateralByTokens(BigInteger.valueOf(sellTokens(order.sell())), false)
+                  .longValue();
+      final Pending next = new Pending(order, slot, slot + latencySlots, expected);
+      if (latencySlots == 0) {
+        fill(next);
+      } else {
+        pending.add(next);
+      }
+    }
+
+    private void fillDue() {
+      for (int i = 0; i < pending.size(); ) {
+        if (pending.get(i).dueSlot() <= slot) {
+          fill(pending.remove(i));
+        } else {
+          i++;
+        }
+      }
+    }
+
+    private void fill(Pending next) {
+      final Order order = next.order();
+      if (order.buy() != null) {
+        final BigInteger lamports = lamports(order.buy().buySol());
+        final long tokens = tokensByCollateral(lamports, true).longValue();
+        final double slippageBps = slippageBps(next.expected(), tokens);
+        final boolean rejected = slippageBps > order.buy().buySlippage() * 100D;
+        fills.add(
+            new Fill(
+                mint,
+                next.orderSlot(),
+                slot,
+                "buy",
+                tokens,
+                lamports.longValue(),
+                next.expected(),
+                slippageBps,
+                rejected));
+        if (!rejected) {
+          ownNet += tokens;
+          tokenAmount += tokens;
+          costLamports += lamports.longValue();
+        }
+        return;
+      }
+      final long tokens = sellTokens(order.sell());
+      if (tokens == 0) {
+        return;
+      }
+      final long lamports = collateralByTokens(BigInteger.valueOf(tokens), false).longValue();
+      final double slippageBps = slippageBps(next.expected(), lamports);
+      final boolean rejected = slippageBps > order.sell().sellSlippage() * 100D;
+      fills.add(
+          new Fill(
+              mint,
+              next.orderSlot(),
+              slot,
+              "sell",
+              tokens,
+              lamports,
+              next.expected(),
+              slippageBps,
+              rejected));
+      if (!rejected) {
+        final long cost =
+            BigInteger.valueOf(costLamports)
+                .multiply(BigInteger.valueOf(tokens))
+                .divide(BigInteger.valueOf(tokenAmount))
+                .longValue();
+        ownNet -= tokens;
+        tokenAmount -= tokens;
+        costLamports -= cost;
+        realizedLamports += lamports - cost;
+      }
+    }
+
+    private View view() {
+      return new View(
+          slot,
+          curveType,
+          curvePosition(),
+          collateralByTokens(PRICE_LOT, false).doubleValue() / PRICE_LOT.doubleValue(),
+          MoonshotCurveProgress.progressOf(curvePosition()),
+          tokenAmount,
+          costLamports);
+    }
+
+    private long sellTokens(SellOptions sellOptions) {
+      return new BigDecimal(tokenAmount).multiply(sellOptions.sellRatio()).longValue();
+    }
+
+    private long curvePosition() {
+      return Math.min(totalSupply, totalSupply - curveAmount + ownNet);
+    }
+
+    private CurveAdapter adapter() {
+      return MoonshotQuoteService.curveAdapter(curveType);
+    }
+
+    private BigInteger tokensByCollateral(BigInteger lamports, boolean isBuy) {
+      return adapter()
+          .getTokenAmountByCollateralSync(
+              new GetTokenAmountSyncOptions(BigInteger.valueOf(curvePosition()), lamports, isBuy));
+    }
+
+    private BigInteger collateralByTokens(BigInteger tokens, boolean isBuy) {
+      return adapter()
+          .getCollateralAmountByTokensSync(
+              new GetCollateralAmountSyncOptions(
+                  BigInteger.valueOf(curvePosition()), tokens, isBuy));
+    }
+
+    private static BigInteger lamports(BigDecimal sol) {
+      return sol.movePointRight(LamportDecimal.LAMPORT_DIGITS).toBigInteger();
+    }
+
+    /** 实际比报价少得到的比例 (bps) */
+    private static double slippageBps(long expected, long actual) {
+      return expected == 0 ? 0D : (expected - actual) * 10_000D / expected;
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.JitoApi;
+import cc.monnshot.sdk.RpcDecoders;
+import cc.monnshot.sdk.client.MonnShotTrade.GetCollateralAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeAccounts;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeResult;
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+
+/**
+ * 成交后的滑点与报价误差统计
+ *
+ * <p>等待交易确认后读取链上余额变化：token 数量取签名者的 token 余额变化，sol 数量取曲线账户与两个手续费账户的 lamports
+ * 变化之和 (不含交易费、小费与 ATA 租金)。按 mint 与落地路径 (rpc / jito 区域) 汇总到固定分桶的直方图。
+ */
+@Slf4j
+public class SlippageAnalyzer implements AutoCloseable {
+
+  private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  // 直方图分桶上限 (bps)，最后一个桶收集更大的值
+  private static final long[] BUCKETS = {
+    -500, -200, -100, -50, -20, -10, -5, 0, 5, 10, 20, 50, 100, 200, 500, 1000
+  };
+
+  private final CurveSnapshotStore curveSnapshotStore;
+
+  private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final Map<String, Histogram> slippageByMint = new ConcurrentHashMap<>();
+
+  private final Map<String, Histogram> slippageByPath = new ConcurrentHashMap<>();
+
+  private final Map<String, Histogram> quoteErrorByPath = new ConcurrentHashMap<>();
+
+  /**
+   * @param path rpc 或 jito:区域
+   * @param expectedTokens 下单时报价的 token 数量
+   * @param expectedLamports 下单时报价的 sol (lamports)
+   * @param tokenAmount 链上实际成交的 token 数量
+   * @param lamports 链上实际成交的 sol (lamports)
+   * @param slippageBps 成交均价相对报价变差的比例，负数为更优
+   * @param quoteErrorBps 按落地前曲线状态重新报价与实际成交的差，无法计算时为 NaN
+   */
+  public record Analysis(
+      String mint,
+      String side,
+      String txId,
+      String path,
+      long slot,
+      long expectedTokens,
+      long expectedLamports,
+      long tokenAmount,
+      long lamports,
+      double slippageBps,
+      double quoteErrorBps) {}
+
+  /**
+   * @param upperBounds 各桶上限 (bps)，counts 比其多一个溢出桶
+   */
+  public record HistogramSnapshot(long[] upperBounds, long[] counts, long count, double meanBps) {}
+
+  public record Stats(
+      Map<String, HistogramSnapshot> slippageByMint,
+      Map<String, HistogramSnapshot> slippageByPath,
+      Map<String, HistogramSnapshot> quoteErrorByPath) {}
+
+  /** 固定分桶直方图，无锁累加 */
+  private static final class Histogram {
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+    private final DoubleAdder sum = new DoubleAdder();
+
+    private void record(double bps) {
+      int bucket = Arrays.binarySearch(BUCKETS, (long) Math.ceil(bps));
+      if (bucket < 0) {
+        bucket = -bucket - 1;
+      }
+      counts.incrementAndGet(bucket);
+      sum.add(bps);
+    }
+
+    private HistogramSnapshot snapshot() {
+      final long[] values = new long[counts.length()];
+      long count = 0;
+      for (int i = 0; i < values.length; i++) {
+        values[i] = counts.get(i);
+        count += values[i];
+      }
+      return new HistogramSnapshot(
+          BUCKETS.clone(), values, count, count == 0 ? 0D : sum.sum() / count);
+    }
+  }
+
+  /**
+   * @param curveSnapshotStore 计算报价误差时读取 totalSupply 与 curveType，为 null 时不计算
+   */
+  public SlippageAnalyzer(CurveSnapshotStore curveSnapshotStore) {
+    this.curveSnapshotStore = curveSnapshotStore;
+  }
+
+  /**
+   * 异步等待确认并分析
+   *
+   * @param jito 是否通过 jito 发送，决定落地路径
+   * @return 未上链或链上执行失败时结果为 null
+   */
+  public CompletableFuture<Analysis> submit(
+      PublicKey owner, TradeResult tradeResult, boolean jito) {
+    return CompletableFuture.supplyAsync(
+        () -> analyze(owner, tradeResult, path(tradeResult.txId(), jito)), executorService);
+  }
+
+  /** 阻塞等待确认并分析，结果计入直方图 */
+  public Analysis analyze(PublicKey owner, TradeResult tradeResult, String path) {
+    final RpcDecoders.TransactionBalances balances =
+        HttpRpcApi.awaitTransactionBalances(tradeResult.txId(), CONFIRM_TIMEOUT);
+    if (balances == null) {
+      return null;
+    }
+    final Analysis analysis = analyze(owner, tradeResult, path, balances);
+    if (Double.isNaN(analysis.slippageBps())) {
+      return analysis;
+    }
+    slippageByMint.computeIfAbsent(analysis.mint(), _ -> new Histogram())
+        .record(analysis.slippageBps());
+    slippageByPath.computeIfAbsent(path, _ -> new Histogram()).record(analysis.slippageBps());
+    if (!Double.isNaN(analysis.quoteErrorBps())) {
+      quoteErrorByPath.computeIfAbsent(path, _ -> new Histogram())
+          .record(analysis.quoteErrorBps());
+    }
+    log.info("slippage:{}", analysis);
+    return analysis;
+  }
+
+  public Stats stats() {
+    return new Stats(
+        snapshot(slippageByMint), snapshot(slippageByPath), snapshot(quoteErrorByPath));
+  }
+
+  @Override
+  public void close() {
+    executorService.close();
+  }
+
+  Analysis analyze(
+      PublicKey owner,
+      TradeResult tradeResult,
+      String path,
+      RpcDecoders.TransactionBalances balances) {
+    final PublicKey mint = PublicKey.fromBase58Encoded(tradeResult.mint());
+    final TradeAccounts accounts = TradeAccounts.of(mint, owner);
+    final boolean buy = "buy".equals(tradeResult.side());
+    final long tokenAmount = Math.abs(balances.tokenDelta(owner.toBase58(), tradeResult.mint()));
+    final long lamports = fillLamports(accounts, balances);
+    final double expectedPrice =
+        (double) tradeResult.collateralAmount() / tradeResult.tokenAmount();
+    final double price = (double) lamports / tokenAmount;
+    // 报价或成交数量为 0 时无法比较均价
+    final double slippageBps =
+        tokenAmount == 0 || tradeResult.tokenAmount() == 0 || expectedPrice == 0
+            ? Double.NaN
+            : (buy ? price - expectedPrice : expectedPrice - price) / expectedPrice * 10_000D;
+    return new Analysis(
+        tradeResult.mint(),
+        tradeResult.side(),
+        tradeResult.txId(),
+        path,
+        balances.getSlot(),
+        tradeResult.tokenAmount(),
+        tradeResult.collateralAmount(),
+        tokenAmount,
+        lamports,
+        slippageBps,
+        quoteErrorBps(accounts, balances, buy, tokenAmount, lamports));
+  }
+
+  /** 成交的 sol：曲线账户与两个手续费账户的 lamports 变化之和，不含交易费、小费与 ATA 租金 */
+  static long fillLamports(TradeAccounts accounts, RpcDecoders.TransactionBalances balances) {
+    return Math.abs(
+        balances.lamportDelta(accounts.bondingCurve().toBase58())
+            + balances.lamportDelta(MonnshotProgram.DEX_FEE.toBase58())
+            + balances.lamportDelta(MonnshotProgram.HELIO_FEE.toBase58()));
+  }
+
+  /** 曲线 token 账户的交易前余额即 curveAmount，按该状态与实际 token 数量重新报价 */
+  private double quoteErrorBps(
+      TradeAccounts accounts,
+      RpcDecoders.TransactionBalances balances,
+      boolean buy,
+      long tokenAmount,
+      long lamports) {
+    if (curveSnapshotStore == null) {
+      return Double.NaN;
+    }
+    final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+    final long curveAmount =
+        balances.preTokenAmount(accounts.curveAssociatedToken().toBase58());
+    if (tokenAmount == 0
+        || curveAmount < 0
+        || !curveSnapshotStore.read(accounts.mint(), snapshot)) {
+      return Double.NaN;
+    }
+    final BigInteger predicted =
+        MoonshotQuoteService.curveAdapter(snapshot.curveTypeEnum())
+            .getCollateralAmountByTokensSync(
+                new GetCollateralAmountSyncOptions(
+                    BigInteger.valueOf(snapshot.getTotalSupply() - curveAmount),
+                    BigInteger.valueOf(tokenAmount),
+                    buy));
+    return predicted.signum() == 0
+        ? Double.NaN
+        : (lamports - predicted.doubleValue()) / predicted.doubleValue() * 10_000D;
+  }
+
+  private static String path(String txId, boolean jito) {
+    if (!jito) {
+      return "rpc";
+    }
+    final String endpoint = JitoApi.firstAckEndpoint(txId);
+    return endpoint == null ? "jito" : "jito:" + URI.create(endpoint).getHost();
+  }
+
+  private static Map<String, HistogramSnapshot> snapshot(Map<String, Histogram> histograms) {
+    final Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+    histograms.forEach((key, histogram) -> snapshots.put(key, histogram.snapshot()));
+    return snapshots;
+  }
+}
@@ -0,0 +1,151 @@
+package cc.monnshot.sdk.client;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.SignedTx;
+import cc.monnshot.sdk.client.MonnShotTrade.CreateOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.PreparedCreate;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+import software.sava.rpc.json.http.request.Commitment;
+
+/**
+ * 异步批量创建 token
+ *
+ * <p>每个 token 依次经过 prepare (图片编码 + prepare 接口 + 签名)、submit、确认三个阶段，各阶段在虚拟线程上执行并分别限制并发；
+ * 上一个 token 提交或等待确认时，下一个 token 已在 prepare。
+ */
+@Slf4j
+public class TokenLauncher implements AutoCloseable {
+
+  private static final int PREPARE_CONCURRENCY =
+      Integer.parseInt(System.getProperty("MONNSHOT_CREATE_PREPARE_CONCURRENCY", "4"));
+
+  private static final int SUBMIT_CONCURRENCY =
+      Integer.parseInt(System.getProperty("MONNSHOT_CREATE_SUBMIT_CONCURRENCY", "2"));
+
+  private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(30);
+
+  private final MonnShotTrade monnShotTrade;
+
+  private final ImageAssets imageAssets;
+
+  private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final Semaphore preparing = new Semaphore(PREPARE_CONCURRENCY);
+
+  private final Semaphore submitting = new Semaphore(SUBMIT_CONCURRENCY);
+
+  /**
+   * @param createOptions icon / banner 字段会被对应图片文件覆盖
+   * @param icon 图标文件，null 时使用 createOptions 中的值
+   * @param banner banner 文件，null 时使用 createOptions 中的值
+   */
+  public record LaunchRequest(CreateOptions createOptions, Path icon, Path banner) {}
+
+  /**
+   * @param txnId Moonshot submit 接口返回的 txnId
+   * @param signature 创建交易的签名
+   * @param status 超时前读到的链上状态，未上链为 null
+   */
+  public record LaunchResult(
+      String draftTokenId, String mint, String txnId, String signature, Commitment status) {
+
+    public boolean landed() {
+      return Commitment.CONFIRMED.equals(status) || Commitment.FINALIZED.equals(status);
+    }
+  }
+
+  public TokenLauncher(MonnShotTrade monnShotTrade) {
+    this(monnShotTrade, new ImageAssets());
+  }
+
+  public TokenLauncher(MonnShotTrade monnShotTrade, ImageAssets imageAssets) {
+    this.monnShotTrade = monnShotTrade;
+    this.imageAssets = imageAssets;
+  }
+
+  public CompletableFuture<LaunchResult> launch(PublicKey signer, LaunchRequest request) {
+    return CompletableFuture.supplyAsync(
+            () -> stage(preparing, () -> monnShotTrade.prepareCreate(signer, withImages(request))),
+            executorService)
+        .thenApplyAsync(
+            prepared -> {
+              final String txnId = stage(submitting, () -> monnShotTrade.submitCreate(prepared));
+              log.info("create {} submitted, mint:{}", prepared.draftTokenId(), prepared.mint());
+              return result(prepared, txnId, null);
+            },
+            executorService)
+        .thenApplyAsync(
+            submitted ->
+                new LaunchResult(
+                    submitted.draftTokenId(),
+                    submitted.mint(),
+                    submitted.txnId(),
+                    submitted.signature(),
+                    HttpRpcApi.awaitConfirmation(submitted.signature(), CONFIRM_TIMEOUT)),
+            executorService);
+  }
+
+  /**
+   * 全部并发执行，仅受各阶段并发上限约束，提交与完成顺序不保证与 requests 一致
+   *
+   * @return 与 requests 一一对应的 future
+   */
+  public List<CompletableFuture<LaunchResult>> launchAll(
+      PublicKey signer, List<LaunchRequest> requests) {
+    return requests.stream().map(request -> launch(signer, request)).toList();
+  }
+
+  @Override
+  public void close() {
+    executorService.close();
+  }
+
+  private CreateOptions withImages(LaunchRequest request) {
+    final CreateOptions options = request.createOptions();
+    if (request.icon() == null && request.banner() == null) {
+      return options;
+    }
+    return new CreateOptions(
+        request.icon() == null ? options.icon() : imageAssets.base64(request.icon()),
+        options.name(),
+        options.symbol(),
+        options.curveType(),
+        options.migrationDex(),
+        options.description(),
+        options.tokenAmount(),
+        options.links(),
+        request.banner() == null ? options.banner() : imageAssets.base64(request.banner()));
+  }
+
+  private static LaunchResult result(PreparedCreate prepared, String txnId, Commitment status) {
+    return new LaunchResult(
+        prepared.draftTokenId(),
+        prepared.mint(),
+        txnId,
+        SignedTx.fromBase64(prepared.signedTransaction()).signature(),
+        status);
+  }
+
+  private static <T> T stage(Semaphore semaphore, Supplier<T> supplier) {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Launch interrupted", e);
+    }
+    try {
+      return supplier.get();
+    } finally {
+      semaphore.release();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package cc.monnshot.sdk.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * /api 下改变状态的请求 (GET/HEAD/OPTIONS 以外) 需带 {@code Authorization: Bearer <token>}
+ *
+ * <p>未配置 {@code monnshot.api.token} 时这些接口全部拒绝，只提供报价、进度与推送。
+ */
+@Slf4j
+public class ApiTokenFilter extends OncePerRequestFilter {
+
+  private static final String BEARER = "Bearer ";
+
+  private final byte[] token;
+
+  /**
+   * @param token 为空时拒绝所有改变状态的请求
+   */
+  public ApiTokenFilter(String token) {
+    this.token =
+        token == null || token.isBlank() ? null : token.strip().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    final String method = request.getMethod();
+    return !request.getRequestURI().startsWith(request.getContextPath() + "/api/")
+        || "GET".equals(method)
+        || "HEAD".equals(method)
+        || "OPTIONS".equals(method);
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (token == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "monnshot.api.token not configured");
+      return;
+    }
+    final String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+    // 定长比较，避免按耗时猜测 token
+    if (authorization == null
+        || !authorization.startsWith(BEARER)
+        || !MessageDigest.isEqual(
+            token, authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8))) {
+      log.warn(
+          "reject {} {} from {}",
+          request.getMethod(),
+          request.getRequestURI(),
+          request.getRemoteAddr());
+      response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+      return;
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,152 @@
+package cc.monnshot.sdk.web;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.RpcDecoders;
+import cc.monnshot.sdk.client.CurveSnapshotStore;
+import cc.monnshot.sdk.client.ExitRuleEngine;
+import cc.monnshot.sdk.client.MonnshotPDAs;
+import cc.monnshot.sdk.client.MonnshotProgram;
+import cc.monnshot.sdk.client.MoonshotCurveProgress;
+import cc.monnshot.sdk.client.MoonshotQuoteService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.sava.core.accounts.PublicKey;
+
+/**
+ * 轮询监听中的曲线账户写入快照表，曲线位置变化时推送 {@code curve} 事件，并评估自动卖出规则
+ *
+ * <p>快照表只允许单线程写入，所有请求并发发出后在调度线程上依次写入；取消监听的 mint 也在调度线程上从快照表删除。
+ */
+@Slf4j
+@Component
+public class CurveWatcher {
+
+  private final CurveSnapshotStore curveSnapshotStore;
+
+  private final TradeEvents tradeEvents;
+
+  private final ExitRuleEngine exitRuleEngine;
+
+  private final MoonshotQuoteService quoteService;
+
+  // mint -> bonding curve
+  private final Map<PublicKey, PublicKey> watching = new ConcurrentHashMap<>();
+
+  // 待从快照表删除的 mint
+  private final Queue<PublicKey> unwatched = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param progress 进度百分比
+   */
+  public record CurveEvent(
+      String mint, long totalSupply, long curveAmount, long slot, double progress) {}
+
+  /**
+   * @param price 触发时的单价 (lamports / token 最小单位)
+   */
+  public record ExitEvent(
+      long ruleId, String mint, ExitRuleEngine.Trigger trigger, double price, long slot) {}
+
+  public CurveWatcher(
+      CurveSnapshotStore curveSnapshotStore,
+      TradeEvents tradeEvents,
+      ExitRuleEngine exitRuleEngine,
+      MoonshotQuoteService quoteService) {
+    this.curveSnapshotStore = curveSnapshotStore;
+    this.tradeEvents = tradeEvents;
+    this.exitRuleEngine = exitRuleEngine;
+    this.quoteService = quoteService;
+  }
+
+  public void watch(PublicKey mint) {
+    watching.computeIfAbsent(
+        mint, _ -> MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint).publicKey());
+  }
+
+  /** 停止轮询，同时丢弃该 mint 的报价缓存，快照在下一轮轮询时删除 */
+  public void unwatch(PublicKey mint) {
+    if (watching.remove(mint) != null) {
+      quoteService.invalidate(mint);
+      unwatched.add(mint);
+    }
+  }
+
+  public Set<PublicKey> watching() {
+    return watching.keySet();
+  }
+
+  @Scheduled(fixedDelayString = "${monnshot.curve.poll-interval-ms:400}")
+  public void poll() {
+    for (PublicKey mint; (mint = unwatched.poll()) != null; ) {
+      // 期间重新监听的保留
+      if (!watching.containsKey(mint)) {
+        curveSnapshotStore.remove(mint);
+      }
+    }
+    if (watching.isEmpty()) {
+      return;
+    }
+    final List<PublicKey> mints = new ArrayList<>(watching.keySet());
+    final List<CompletableFuture<RpcDecoders.AccountData>> futures =
+        new ArrayList<>(mints.size());
+    for (PublicKey mint : mints) {
+      final PublicKey curve = watching.get(mint);
+      futures.add(
+          curve == null
+              ? CompletableFuture.completedFuture(null)
+              : HttpRpcApi.getAccountData(curve, new RpcDecoders.AccountData()));
+    }
+    final CurveSnapshotStore.Snapshot before = new CurveSnapshotStore.Snapshot();
+    final CurveSnapshotStore.Snapshot after = new CurveSnapshotStore.Snapshot();
+    for (int i = 0; i < mints.size(); i++) {
+      final RpcDecoders.AccountData accountData = futures.get(i).exceptionally(_ -> null).join();
+      if (accountData == null) {
+        continue;
+      }
+      final PublicKey mint = mints.get(i);
+      final boolean existed = curveSnapshotStore.read(mint, before);
+      if (!curveSnapshotStore.put(accountData) || !curveSnapshotStore.read(mint, after)) {
+        continue;
+      }
+      // 曲线未变化时也评估，新加入且已越过阈值的规则在下一轮触发
+      exit(mint, after);
+      if (existed && before.curvePosition() == after.curvePosition()) {
+        continue;
+      }
+      tradeEvents.publish(
+          "curve",
+          new CurveEvent(
+              mint.toBase58(),
+              after.getTotalSupply(),
+              after.getCurveAmount(),
+              after.getSlot(),
+              MoonshotCurveProgress.progress(after.getTotalSupply(), after.getCurveAmount())));
+    }
+  }
+
+  private void exit(PublicKey mint, CurveSnapshotStore.Snapshot snapshot) {
+    for (ExitRuleEngine.Fired fired : exitRuleEngine.onCurve(mint, snapshot)) {
+      tradeEvents.publish(
+          "exit",
+          new ExitEvent(
+              fired.ruleId(),
+              mint.toBase58(),
+              fired.exitRule().trigger(),
+              fired.price(),
+              fired.slot()));
+      fired
+          .tradeResult()
+          .thenAccept(tradeResult -> tradeEvents.publish("trade", tradeResult))
+          .exceptionally(_ -> null);
+    }
+  }
+}
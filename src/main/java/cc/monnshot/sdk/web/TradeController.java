@@ -0,0 +1,342 @@
+package cc.monnshot.sdk.web;
+
+import cc.monnshot.sdk.HttpRpcApi;
+import cc.monnshot.sdk.client.CurveSnapshotStore;
+import cc.monnshot.sdk.client.ExitRuleEngine;
+import cc.monnshot.sdk.client.ExitRuleEngine.ExitRule;
+import cc.monnshot.sdk.client.LandingOptimizer;
+import cc.monnshot.sdk.client.MonnShotTrade;
+import cc.monnshot.sdk.client.MonnShotTrade.BuyOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.CreateOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeResult;
+import cc.monnshot.sdk.client.MonnshotPDAs;
+import cc.monnshot.sdk.client.MonnshotProgram;
+import cc.monnshot.sdk.client.MoonshotCurveProgress;
+import cc.monnshot.sdk.client.MoonshotQuoteService;
+import cc.monnshot.sdk.client.MoonshotQuoteService.QuoteSide;
+import cc.monnshot.sdk.client.PositionTracker;
+import cc.monnshot.sdk.client.PositionTracker.Valuation;
+import cc.monnshot.sdk.client.SlippageAnalyzer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveAccount;
+import software.sava.core.accounts.PublicKey;
+import software.sava.rpc.json.http.request.Commitment;
+import software.sava.rpc.json.http.response.AccountInfo;
+
+/**
+ * 交易服务 REST 接口
+ *
+ * <p>运行在虚拟线程上 ({@code spring.threads.virtual.enabled})，请求线程直接阻塞等待 RPC 与确认。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api")
+public class TradeController {
+
+  private final MonnShotTrade monnShotTrade;
+
+  private final MoonshotQuoteService quoteService;
+
+  private final CurveSnapshotStore curveSnapshotStore;
+
+  private final CurveWatcher curveWatcher;
+
+  private final PositionTracker positionTracker;
+
+  private final ExitRuleEngine exitRuleEngine;
+
+  private final SlippageAnalyzer slippageAnalyzer;
+
+  private final LandingOptimizer landingOptimizer;
+
+  private final TradeEvents tradeEvents;
+
+  private final ObjectProvider<PublicKey> signer;
+
+  /**
+   * @param buySlippage 滑点 5% 传 5
+   * @param priorityFeeLevel 优先费档位，auto 按落地统计选择
+   * @param jito true 通过 jito 提交
+   */
+  public record BuyRequest(
+      String mint,
+      BigDecimal buySol,
+      int buySlippage,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      boolean jito) {}
+
+  /**
+   * @param sellRatio 卖出比例，1 为全部卖出
+   */
+  public record SellRequest(
+      String mint,
+      BigDecimal sellRatio,
+      int sellSlippage,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      boolean jito) {}
+
+  /**
+   * @param cached true 表示使用快照表中的曲线状态
+   */
+  public record QuoteResponse(
+      String mint, QuoteSide side, BigInteger amount, BigInteger quote, boolean cached) {}
+
+  /**
+   * @param threshold 见 {@link ExitRule#threshold()}
+   * @param sellRatio 触发时卖出的持仓比例
+   */
+  public record ExitRequest(
+      String mint,
+      ExitRuleEngine.Trigger trigger,
+      double threshold,
+      BigDecimal sellRatio,
+      int sellSlippage,
+      String priorityFeeLevel,
+      String jitoTipLevel,
+      boolean jito) {}
+
+  public record ExitResponse(long ruleId, int rules) {}
+
+  public record ProgressResponse(String mint, double progress) {}
+
+  public record CreateResponse(String txnId) {}
+
+  public TradeController(
+      MonnShotTrade monnShotTrade,
+      MoonshotQuoteService quoteService,
+      CurveSnapshotStore curveSnapshotStore,
+      CurveWatcher curveWatcher,
+      PositionTracker positionTracker,
+      ExitRuleEngine exitRuleEngine,
+      SlippageAnalyzer slippageAnalyzer,
+      LandingOptimizer landingOptimizer,
+      TradeEvents tradeEvents,
+      ObjectProvider<PublicKey> signer) {
+    this.monnShotTrade = monnShotTrade;
+    this.quoteService = quoteService;
+    this.curveSnapshotStore = curveSnapshotStore;
+    this.curveWatcher = curveWatcher;
+    this.positionTracker = positionTracker;
+    this.exitRuleEngine = exitRuleEngine;
+    this.slippageAnalyzer = slippageAnalyzer;
+    this.landingOptimizer = landingOptimizer;
+    this.tradeEvents = tradeEvents;
+    this.signer = signer;
+  }
+
+  @GetMapping("/quote/{mint}")
+  public QuoteResponse quote(
+      @PathVariable String mint, @RequestParam QuoteSide side, @RequestParam BigInteger amount) {
+    final PublicKey mintKey = PublicKey.fromBase58Encoded(mint);
+    final BigInteger cached = quoteService.quote(curveSnapshotStore, mintKey, side, amount);
+    if (cached != null) {
+      return new QuoteResponse(mint, side, amount, cached, true);
+    }
+    final AccountInfo<CurveAccount> curve = fetchCurve(mintKey);
+    final long slot = curve.context().slot();
+    final BigInteger quote =
+        switch (side) {
+          case BUY_TOKENS_BY_COLLATERAL ->
+              quoteService.tokenAmountByCollateral(mintKey, curve.data(), slot, amount, true);
+          case SELL_TOKENS_BY_COLLATERAL ->
+              quoteService.tokenAmountByCollateral(mintKey, curve.data(), slot, amount, false);
+          case BUY_COLLATERAL_BY_TOKENS ->
+              quoteService.collateralAmountByTokens(mintKey, curve.data(), slot, amount, true);
+          case SELL_COLLATERAL_BY_TOKENS ->
+              quoteService.collateralAmountByTokens(mintKey, curve.data(), slot, amount, false);
+        };
+    return new QuoteResponse(mint, side, amount, quote, false);
+  }
+
+  @PostMapping("/buy")
+  public TradeResult buy(@RequestBody BuyRequest request) {
+    final TradeResult tradeResult =
+        monnShotTrade.buy(
+            PublicKey.fromBase58Encoded(request.mint()),
+            signer(),
+            new BuyOptions(
+                request.buySol(),
+                request.buySlippage(),
+                request.priorityFeeLevel(),
+                request.jitoTipLevel()),
+            request.jito());
+    tradeEvents.publish("trade", tradeResult);
+    analyzeSlippage(tradeResult, request.jito());
+    return tradeResult;
+  }
+
+  @PostMapping("/sell")
+  public TradeResult sell(@RequestBody SellRequest request) {
+    final TradeResult tradeResult =
+        monnShotTrade.sell(
+            PublicKey.fromBase58Encoded(request.mint()),
+            signer(),
+            new SellOptions(
+                request.sellRatio(),
+                request.sellSlippage(),
+                request.priorityFeeLevel(),
+                request.jitoTipLevel()),
+            request.jito());
+    tradeEvents.publish("trade", tradeResult);
+    analyzeSlippage(tradeResult, request.jito());
+    return tradeResult;
+  }
+
+  @PostMapping("/create")
+  public CreateResponse create(@RequestBody CreateOptions createOptions) {
+    return new CreateResponse(monnShotTrade.create(signer(), createOptions));
+  }
+
+  @GetMapping("/progress/{mint}")
+  public ProgressResponse progress(@PathVariable String mint) {
+    final PublicKey mintKey = PublicKey.fromBase58Encoded(mint);
+    final double cached =
+        MoonshotCurveProgress.progress(curveSnapshotStore, mintKey.toByteArray(), 0);
+    return new ProgressResponse(
+        mint, Double.isNaN(cached) ? MoonshotCurveProgress.progress(mintKey) : cached);
+  }
+
+  /** 本地持仓按快照表估值，未监听曲线的 mint 不返回 */
+  @GetMapping("/positions")
+  public List<Valuation> positions() {
+    return positionTracker.valuations(signer());
+  }
+
+  /** 从链上同步一次余额 */
+  @PostMapping("/positions/{mint}/sync")
+  public PositionTracker.Position sync(@PathVariable String mint) {
+    return positionTracker.sync(signer(), PublicKey.fromBase58Encoded(mint));
+  }
+
+  /** 报价缓存命中率与缓存的 mint 数量 */
+  @GetMapping("/quotes")
+  public MoonshotQuoteService.QuoteStats quotes() {
+    return quoteService.stats();
+  }
+
+  /** 已落地交易的滑点与报价误差直方图，按 mint 与落地路径汇总 */
+  @GetMapping("/slippage")
+  public SlippageAnalyzer.Stats slippage() {
+    return slippageAnalyzer.stats();
+  }
+
+  /** 各提交路径与档位的落地率、落地耗时 */
+  @GetMapping("/landing")
+  public List<LandingOptimizer.LevelStats> landing() {
+    return landingOptimizer.stats();
+  }
+
+  /** 添加自动卖出规则，mint 需已加入曲线轮询才会被评估 */
+  @PostMapping("/exits")
+  public ExitResponse addExit(@RequestBody ExitRequest request) {
+    final long ruleId =
+        exitRuleEngine.add(
+            signer(),
+            new ExitRule(
+                PublicKey.fromBase58Encoded(request.mint()),
+                request.trigger(),
+                request.threshold(),
+                new SellOptions(
+                    request.sellRatio(),
+                    request.sellSlippage(),
+                    request.priorityFeeLevel(),
+                    request.jitoTipLevel()),
+                request.jito()));
+    return new ExitResponse(ruleId, exitRuleEngine.size());
+  }
+
+  @DeleteMapping("/exits/{ruleId}")
+  public ExitResponse removeExit(@PathVariable long ruleId) {
+    if (!exitRuleEngine.remove(ruleId)) {
+      throw new IllegalStateException("Unknown exit rule: " + ruleId);
+    }
+    return new ExitResponse(ruleId, exitRuleEngine.size());
+  }
+
+  /** 加入轮询，曲线变化通过 /api/stream 推送，报价与进度改走快照表 */
+  @PostMapping("/curves/{mint}")
+  public List<String> watch(@PathVariable String mint) {
+    curveWatcher.watch(PublicKey.fromBase58Encoded(mint));
+    return watching();
+  }
+
+  @DeleteMapping("/curves/{mint}")
+  public List<String> unwatch(@PathVariable String mint) {
+    curveWatcher.unwatch(PublicKey.fromBase58Encoded(mint));
+    return watching();
+  }
+
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream() {
+    return tradeEvents.subscribe();
+  }
+
+  @ExceptionHandler(IllegalStateException.class)
+  public ProblemDetail illegalState(IllegalStateException e) {
+    log.warn("request failed", e);
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+  }
+
+  /** 确认后异步分析，结果通过 slippage 事件推送 */
+  private void analyzeSlippage(TradeResult tradeResult, boolean jito) {
+    slippageAnalyzer
+        .submit(signer(), tradeResult, jito)
+        .whenComplete(
+            (analysis, e) -> {
+              if (e != null) {
+                log.warn("slippage analysis failed, tx:{}", tradeResult.txId(), e);
+              } else if (analysis != null) {
+                tradeEvents.publish("slippage", analysis);
+              }
+            });
+  }
+
+  private List<String> watching() {
+    return curveWatcher.watching().stream().map(PublicKey::toBase58).toList();
+  }
+
+  private PublicKey signer() {
+    final PublicKey current = signer.getIfAvailable();
+    if (current == null) {
+      throw new IllegalStateException("No signer configured: monnshot.signer.private-key");
+    }
+    return current;
+  }
+
+  private static AccountInfo<CurveAccount> fetchCurve(PublicKey mint) {
+    final PublicKey bondingCurve =
+        MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint).publicKey();
+    final AccountInfo<CurveAccount> curve =
+        HttpRpcApi.httpRpcApi()
+            .call(
+                "getAccountInfo",
+                client ->
+                    client.getAccountInfo(
+                        Commitment.CONFIRMED, bondingCurve, CurveAccount.FACTORY))
+            .join();
+    if (curve == null || curve.data() == null) {
+      throw new IllegalStateException("MigrateFunds!");
+    }
+    return curve;
+  }
+}
@@ -0,0 +1,45 @@
+package cc.monnshot.sdk.web;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 曲线变化与交易结果的 SSE 推送
+ *
+ * <p>事件名: {@code curve}、{@code trade}、{@code exit}、{@code slippage}。发送失败的订阅直接移除，客户端需自行重连。
+ */
+@Slf4j
+@Component
+public class TradeEvents {
+
+  private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+  public SseEmitter subscribe() {
+    // 不超时，连接由客户端关闭
+    final SseEmitter emitter = new SseEmitter(0L);
+    emitters.add(emitter);
+    emitter.onCompletion(() -> emitters.remove(emitter));
+    emitter.onTimeout(() -> emitters.remove(emitter));
+    emitter.onError(_ -> emitters.remove(emitter));
+    return emitter;
+  }
+
+  public void publish(String name, Object data) {
+    for (SseEmitter emitter : emitters) {
+      try {
+        emitter.send(SseEmitter.event().name(name).data(data));
+      } catch (IOException | IllegalStateException e) {
+        log.debug("drop sse subscriber", e);
+        emitters.remove(emitter);
+      }
+    }
+  }
+
+  public int subscribers() {
+    return emitters.size();
+  }
+}
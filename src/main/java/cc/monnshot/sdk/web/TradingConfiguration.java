@@ -0,0 +1,112 @@
+package cc.monnshot.sdk.web;
+
+import cc.monnshot.sdk.SigningService;
+import cc.monnshot.sdk.client.ComputeUnitLimits;
+import cc.monnshot.sdk.client.CurveSnapshotStore;
+import cc.monnshot.sdk.client.ExitRuleEngine;
+import cc.monnshot.sdk.client.LandingOptimizer;
+import cc.monnshot.sdk.client.LookupTableManager;
+import cc.monnshot.sdk.client.MonnShotTrade;
+import cc.monnshot.sdk.client.MoonshotQuoteService;
+import cc.monnshot.sdk.client.PortfolioTrade;
+import cc.monnshot.sdk.client.PositionTracker;
+import cc.monnshot.sdk.client.SlippageAnalyzer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.encoding.Base58;
+
+/** 服务内共享的交易组件，报价缓存、CU 上限与快照表在所有请求间复用 */
+@Configuration
+@EnableScheduling
+public class TradingConfiguration {
+
+  @Bean
+  public MoonshotQuoteService moonshotQuoteService() {
+    return new MoonshotQuoteService();
+  }
+
+  @Bean
+  public ComputeUnitLimits computeUnitLimits() {
+    return new ComputeUnitLimits();
+  }
+
+  @Bean(destroyMethod = "close")
+  public LandingOptimizer landingOptimizer() {
+    return new LandingOptimizer();
+  }
+
+  @Bean
+  public MonnShotTrade monnShotTrade(
+      MoonshotQuoteService moonshotQuoteService,
+      ComputeUnitLimits computeUnitLimits,
+      PositionTracker positionTracker,
+      LandingOptimizer landingOptimizer,
+      SigningService signingService) {
+    return new MonnShotTrade(
+        moonshotQuoteService,
+        computeUnitLimits,
+        positionTracker,
+        landingOptimizer,
+        signingService);
+  }
+
+  @Bean
+  public CurveSnapshotStore curveSnapshotStore(
+      @Value("${monnshot.curve.expected-mints:1024}") int expectedMints) {
+    return new CurveSnapshotStore(expectedMints);
+  }
+
+  @Bean(destroyMethod = "close")
+  public PositionTracker positionTracker(
+      MoonshotQuoteService moonshotQuoteService, CurveSnapshotStore curveSnapshotStore) {
+    return new PositionTracker(moonshotQuoteService, curveSnapshotStore);
+  }
+
+  @Bean
+  public LookupTableManager lookupTableManager() {
+    return new LookupTableManager();
+  }
+
+  @Bean(destroyMethod = "close")
+  public SigningService signingService() {
+    return new SigningService();
+  }
+
+  @Bean
+  public PortfolioTrade portfolioTrade(
+      MonnShotTrade monnShotTrade, LookupTableManager lookupTableManager) {
+    return new PortfolioTrade(monnShotTrade, lookupTableManager);
+  }
+
+  @Bean(destroyMethod = "close")
+  public ExitRuleEngine exitRuleEngine(
+      MonnShotTrade monnShotTrade, MoonshotQuoteService moonshotQuoteService) {
+    return new ExitRuleEngine(monnShotTrade, moonshotQuoteService);
+  }
+
+  @Bean(destroyMethod = "close")
+  public SlippageAnalyzer slippageAnalyzer(CurveSnapshotStore curveSnapshotStore) {
+    return new SlippageAnalyzer(curveSnapshotStore);
+  }
+
+  @Bean
+  public ApiTokenFilter apiTokenFilter(@Value("${monnshot.api.token:}") String token) {
+    return new ApiTokenFilter(token);
+  }
+
+  /**
+   * 私钥只注册到 {@link SigningService}，容器中只有公钥；未配置私钥时只提供报价、进度与行情推送
+   *
+   * @return 交易接口使用的签名者公钥
+   */
+  @Bean
+  @ConditionalOnProperty("monnshot.signer.private-key")
+  public PublicKey signer(
+      @Value("${monnshot.signer.private-key}") String privateKey, SigningService signingService) {
+    return signingService.register(Base58.decode(privateKey));
+  }
+}
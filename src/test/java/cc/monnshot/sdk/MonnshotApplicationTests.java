@@ -3,7 +3,7 @@ package cc.monnshot.sdk;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "monnshot.http.warmup=false")
 class MonnshotApplicationTests {
 
   @Test
@@ -0,0 +1,184 @@
+package cc.monnshot.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.sava.rpc.json.http.request.Commitment;
+
+/** 流式解析与 RPC 响应字段的对应关系 */
+class RpcDecodersTest {
+
+  private static final String TRANSACTION =
+      """
+      {"jsonrpc":"2.0","result":{"blockTime":1700000000,"meta":{"err":null,"fee":5000,
+      "preBalances":[1000,2000,3000,4000],"postBalances":[900,2100,3000,4500],
+      "preTokenBalances":[{"accountIndex":1,"mint":"M","owner":"O",
+      "uiTokenAmount":{"amount":"100","decimals":9,"uiAmount":1.0E-7}}],
+      "postTokenBalances":[{"accountIndex":1,"mint":"M","owner":"O",
+      "uiTokenAmount":{"amount":"350","decimals":9,"uiAmount":3.5E-7}},
+      {"accountIndex":3,"mint":"M","owner":"P","uiTokenAmount":{"amount":"7","decimals":9}}],
+      "loadedAddresses":{"writable":["W"],"readonly":["R"]},"logMessages":["log"]},
+      "slot":123,"transaction":{"signatures":["sig"],"message":{"accountKeys":["A","B"],
+      "header":{"numRequiredSignatures":1},"instructions":[]}}},"id":1}
+      """;
+
+  @Test
+  void transactionBalances() {
+    final RpcDecoders.TransactionBalances balances =
+        new RpcDecoders.TransactionBalances().decode(bytes(TRANSACTION));
+    assertTrue(balances.isFound());
+    assertFalse(balances.isFailed());
+    assertEquals(123, balances.getSlot());
+    assertEquals(5000, balances.getFee());
+    // lookup table 加载的账户排在静态账户之后
+    assertEquals(List.of("A", "B", "W", "R"), balances.getAccountKeys());
+    assertEquals(-100, balances.lamportDelta("A"));
+    assertEquals(0, balances.lamportDelta("W"));
+    assertEquals(500, balances.lamportDelta("R"));
+    assertEquals(0, balances.lamportDelta("X"));
+    assertEquals(250, balances.tokenDelta("O", "M"));
+    // 交易前不存在的 token 账户按 0 计
+    assertEquals(7, balances.tokenDelta("P", "M"));
+    assertEquals(0, balances.tokenDelta("O", "N"));
+    assertEquals(100, balances.preTokenAmount("B"));
+    assertEquals(-1, balances.preTokenAmount("R"));
+  }
+
+  @Test
+  void transactionBalancesReuse() {
+    final RpcDecoders.TransactionBalances balances = new RpcDecoders.TransactionBalances();
+    balances.decode(bytes(TRANSACTION));
+    balances.decode(bytes("{\"jsonrpc\":\"2.0\",\"result\":null,\"id\":1}"));
+    assertFalse(balances.isFound());
+    assertTrue(balances.getAccountKeys().isEmpty());
+    assertTrue(balances.getPostTokenBalances().isEmpty());
+
+    balances.decode(
+        bytes(
+            TRANSACTION.replace(
+                "\"err\":null", "\"err\":{\"InstructionError\":[0,{\"Custom\":6001}]}")));
+    assertTrue(balances.isFound());
+    assertTrue(balances.isFailed());
+    assertEquals(4, balances.getAccountKeys().size());
+  }
+
+  @Test
+  void confirmationStatus() {
+    assertEquals(Commitment.PROCESSED, RpcDecoders.confirmationStatus(status("processed")));
+    assertEquals(Commitment.CONFIRMED, RpcDecoders.confirmationStatus(status("confirmed")));
+    assertEquals(Commitment.FINALIZED, RpcDecoders.confirmationStatus(status("finalized")));
+    assertNull(
+        RpcDecoders.confirmationStatus(
+            bytes(
+                "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":1},\"value\":[null]},"
+                    + "\"id\":1}")));
+  }
+
+  @Test
+  void unitsConsumed() {
+    assertEquals(
+        41_337,
+        RpcDecoders.unitsConsumed(
+            bytes(
+                "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":1},\"value\":{"
+                    + "\"err\":null,\"logs\":[\"a\",\"b\"],\"accounts\":null,"
+                    + "\"unitsConsumed\":41337}},\"id\":1}")));
+    assertEquals(
+        -1,
+        RpcDecoders.unitsConsumed(
+            bytes(
+                "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":1},\"value\":{"
+                    + "\"err\":{\"InstructionError\":[1,{\"Custom\":1}]},"
+                    + "\"unitsConsumed\":2000}},\"id\":1}")));
+  }
+
+  @Test
+  void accountData() {
+    final byte[] small = {1, 2, 3, 4, 5};
+    final RpcDecoders.AccountData accountData = new RpcDecoders.AccountData();
+    accountData.decode(account(77, small));
+    assertTrue(accountData.isExists());
+    assertEquals(77, accountData.getSlot());
+    assertArrayEquals(small, Arrays.copyOf(accountData.getData(), accountData.getLength()));
+
+    // 超出初始缓冲区时扩容
+    final byte[] large = new byte[1000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i * 31);
+    }
+    accountData.decode(account(78, large));
+    assertArrayEquals(large, Arrays.copyOf(accountData.getData(), accountData.getLength()));
+
+    accountData.decode(
+        bytes(
+            "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":79},\"value\":null},"
+                + "\"id\":1}"));
+    assertFalse(accountData.isExists());
+    assertEquals(0, accountData.getLength());
+    assertEquals(79, accountData.getSlot());
+  }
+
+  @Test
+  void errorResponse() {
+    final IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                RpcDecoders.confirmationStatus(
+                    bytes(
+                        "{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-32602,"
+                            + "\"message\":\"invalid params\"},\"id\":1}")));
+    assertTrue(e.getMessage().contains("invalid params"));
+  }
+
+  @Test
+  void tipFloor() {
+    final JitoApi.TipFloor tipFloor =
+        RpcDecoders.tipFloor(
+            bytes(
+                "[{\"time\":\"2024-12-01T00:00:00Z\",\"landed_tips_25th_percentile\":1.0E-5,"
+                    + "\"landed_tips_50th_percentile\":2.5E-5,"
+                    + "\"landed_tips_75th_percentile\":1.0E-4,"
+                    + "\"landed_tips_95th_percentile\":0.001,"
+                    + "\"landed_tips_99th_percentile\":0.01,"
+                    + "\"ema_landed_tips_50th_percentile\":3.0E-5}]"));
+    assertEquals("2024-12-01T00:00:00Z", tipFloor.time());
+    assertEquals(1.0E-5, tipFloor.landed_tips_25th_percentile());
+    assertEquals(2.5E-5, tipFloor.landed_tips_50th_percentile());
+    assertEquals(0.01, tipFloor.landed_tips_99th_percentile());
+    assertEquals(3.0E-5, tipFloor.ema_landed_tips_50th_percentile());
+    assertThrows(IllegalStateException.class, () -> RpcDecoders.tipFloor(bytes("[]")));
+  }
+
+  private static byte[] status(String confirmationStatus) {
+    return bytes(
+        "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"slot\":1},\"value\":[{\"slot\":1,"
+            + "\"confirmations\":null,\"err\":null,\"confirmationStatus\":\""
+            + confirmationStatus
+            + "\"}]},\"id\":1}");
+  }
+
+  private static byte[] account(long slot, byte[] data) {
+    return bytes(
+        "{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"apiVersion\":\"2.0.15\",\"slot\":"
+            + slot
+            + "},\"value\":{\"data\":[\""
+            + Base64.getEncoder().encodeToString(data)
+            + "\",\"base64\"],\"executable\":false,\"lamports\":1461600,"
+            + "\"owner\":\"TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA\",\"rentEpoch\":0}},"
+            + "\"id\":1}");
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
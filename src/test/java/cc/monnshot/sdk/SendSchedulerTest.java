@@ -0,0 +1,138 @@
+package cc.monnshot.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cc.monnshot.sdk.SendScheduler.Priority;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** 单个区域按令牌取出：类别优先，同类截止早者优先 */
+class SendSchedulerTest {
+
+  // 每 50ms 一个令牌，提交期间只有第一笔能立即发送
+  private static final double RATE = 20;
+
+  private final Map<String, String> names = new ConcurrentHashMap<>();
+
+  private final List<String> firstSends = Collections.synchronizedList(new ArrayList<>());
+
+  private final CountDownLatch blockerSent = new CountDownLatch(1);
+
+  @Test
+  void priorityThenDeadline() throws InterruptedException {
+    final CountDownLatch sent = new CountDownLatch(5);
+    final SendScheduler scheduler = scheduler(sent);
+    final long now = System.nanoTime();
+    final SendScheduler.Ticket blocker = block(scheduler, now);
+    final List<SendScheduler.Ticket> tickets =
+        List.of(
+            blocker,
+            scheduler.submit(tx("rebroadcast", 1), Priority.REBROADCAST, now + seconds(1)),
+            scheduler.submit(tx("entry-late", 2), Priority.ENTRY, now + seconds(20)),
+            scheduler.submit(tx("entry-early", 3), Priority.ENTRY, now + seconds(5)),
+            scheduler.submit(tx("exit", 4), Priority.EXIT, SendScheduler.NO_DEADLINE));
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    tickets.forEach(SendScheduler.Ticket::cancel);
+    assertEquals(
+        List.of("blocker", "exit", "entry-early", "entry-late", "rebroadcast"), firstSends);
+  }
+
+  @Test
+  void expiredNotSent() throws InterruptedException {
+    final CountDownLatch sent = new CountDownLatch(2);
+    final SendScheduler scheduler = scheduler(sent);
+    final long now = System.nanoTime();
+    final SendScheduler.Ticket blocker = block(scheduler, now);
+    final SendScheduler.Ticket expired =
+        scheduler.submit(tx("expired", 1), Priority.EXIT, now + TimeUnit.MILLISECONDS.toNanos(10));
+    final SendScheduler.Ticket live =
+        scheduler.submit(tx("live", 2), Priority.ENTRY, now + seconds(10));
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    blocker.cancel();
+    expired.cancel();
+    live.cancel();
+    assertEquals(List.of("blocker", "live"), firstSends);
+  }
+
+  /** 先发送一笔用掉令牌，之后提交的交易在下一个令牌时按顺序竞争 */
+  private SendScheduler.Ticket block(SendScheduler scheduler, long now)
+      throws InterruptedException {
+    final SendScheduler.Ticket blocker =
+        scheduler.submit(tx("blocker", 0), Priority.ENTRY, now + seconds(10));
+    assertTrue(blockerSent.await(5, TimeUnit.SECONDS));
+    return blocker;
+  }
+
+  private SendScheduler scheduler(CountDownLatch sent) {
+    return new SendScheduler(
+        "test",
+        List.of(URI.create("http://localhost/")),
+        RATE,
+        (_, request, attempt) -> {
+          if (attempt == 0) {
+            final String name = names.get(body(request));
+            firstSends.add(name);
+            if ("blocker".equals(name)) {
+              blockerSent.countDown();
+            }
+            sent.countDown();
+          }
+          return true;
+        });
+  }
+
+  private SignedTx tx(String name, int seed) {
+    final byte[] raw = new byte[128];
+    raw[0] = 1;
+    raw[1] = (byte) (seed + 1);
+    final SignedTx signedTx = SignedTx.of(raw);
+    names.put(body(signedTx.sendRequest(URI.create("http://localhost/"))), name);
+    return signedTx;
+  }
+
+  private static long seconds(long seconds) {
+    return TimeUnit.SECONDS.toNanos(seconds);
+  }
+
+  /** 读出 BodyPublishers.ofByteArray 的请求体 */
+  private static String body(HttpRequest request) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    request
+        .bodyPublisher()
+        .orElseThrow()
+        .subscribe(
+            new Flow.Subscriber<>() {
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(ByteBuffer item) {
+                final byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.writeBytes(bytes);
+              }
+
+              @Override
+              public void onError(Throwable throwable) {}
+
+              @Override
+              public void onComplete() {}
+            });
+    return out.toString(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,321 @@
+package cc.monnshot.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.encoding.Base58;
+
+/**
+ * 本地 Solana RPC / Jito stub，用于压测 HttpRpcApi、JitoApi、MonnShotTrade
+ *
+ * <p>实现 getAccountInfo、getLatestBlockhash、getSignatureStatuses、sendTransaction、getTokenAccountBalance、
+ * getHealth、getSlot，Jito {@code /api/v1/transactions}、{@code /api/v1/bundles} 与 tip floor。 支持固定延迟 +
+ * 抖动、按比例注入错误、每秒请求数限制 (超出返回 429)。
+ */
+@Slf4j
+public class SolanaStubServer implements AutoCloseable {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private static final String BLOCK_HASH = "4sGjMW1sUnHzSxGspuhpqLDx6wiyjNtZAMdL4VZHirAn";
+
+  private static final String TIP_FLOOR =
+      """
+      [{"time":"2024-12-30T08:00:00Z",\
+      "landed_tips_25th_percentile":0.000001,\
+      "landed_tips_50th_percentile":0.00001,\
+      "landed_tips_75th_percentile":0.0000365,\
+      "landed_tips_95th_percentile":0.0012,\
+      "landed_tips_99th_percentile":0.0085,\
+      "ema_landed_tips_50th_percentile":0.0000112}]\
+      """;
+
+  /**
+   * @param latency 每个请求的固定延迟
+   * @param jitter 额外的随机延迟上限
+   * @param errorRate 返回 JSON-RPC 错误的比例 0~1
+   * @param requestsPerSecond 每秒请求上限，0 不限制
+   * @param confirmDelay sendTransaction 之后多久返回 confirmed
+   */
+  public record StubOptions(
+      Duration latency,
+      Duration jitter,
+      double errorRate,
+      int requestsPerSecond,
+      Duration confirmDelay) {
+
+    public static StubOptions defaults() {
+      return new StubOptions(Duration.ZERO, Duration.ZERO, 0D, 0, Duration.ofMillis(50));
+    }
+  }
+
+  private record Account(byte[] data, String owner, long lamports) {}
+
+  private final HttpServer server;
+
+  private final ExecutorService executorService;
+
+  private final StubOptions options;
+
+  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+  private final Map<String, Long> tokenBalances = new ConcurrentHashMap<>();
+
+  // signature -> 收到交易的时间
+  private final Map<String, Long> signatures = new ConcurrentHashMap<>();
+
+  private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+  private final AtomicLong slot = new AtomicLong(300_000_000L);
+
+  private final AtomicLong windowStart = new AtomicLong();
+
+  private final AtomicInteger windowCount = new AtomicInteger();
+
+  public SolanaStubServer(StubOptions options) throws IOException {
+    this.options = options;
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+    this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+    server.setExecutor(executorService);
+    server.createContext("/api/v1/bundles/tip_floor", this::tipFloor);
+    server.createContext("/", this::jsonRpc);
+    server.start();
+    log.info("SolanaStubServer started:{}", endpoint());
+  }
+
+  public String endpoint() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  public void putAccount(PublicKey publicKey, byte[] data, PublicKey owner) {
+    accounts.put(publicKey.toBase58(), new Account(data, owner.toBase58(), 1_461_600L));
+  }
+
+  public void putTokenBalance(PublicKey tokenAccount, long amount) {
+    tokenBalances.put(tokenAccount.toBase58(), amount);
+  }
+
+  public long requestCount(String method) {
+    final LongAdder adder = requestCounts.get(method);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  public Map<String, Long> requestCounts() {
+    final Map<String, Long> counts = new ConcurrentHashMap<>();
+    requestCounts.forEach((method, adder) -> counts.put(method, adder.sum()));
+    return counts;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executorService.close();
+  }
+
+  /** 按 Moonshot IDL 布局编码 CurveAccount (ConstantProductV1, SOL 计价) */
+  public static byte[] curveAccountData(PublicKey mint, long totalSupply, long curveAmount) {
+    final ByteBuffer buffer = ByteBuffer.allocate(82).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(discriminator("account:CurveAccount"));
+    buffer.putLong(totalSupply);
+    buffer.putLong(curveAmount);
+    buffer.put(mint.toByteArray());
+    buffer.put((byte) 9); // decimals
+    buffer.put((byte) 0); // collateralCurrency Sol
+    buffer.put((byte) 1); // curveType ConstantProductV1
+    buffer.putLong(0L); // marketcapThreshold
+    buffer.put((byte) 0); // marketcapCurrency Sol
+    buffer.putLong(0L); // migrationFee
+    buffer.putInt(0); // coefB
+    buffer.put((byte) 255); // bump
+    buffer.put((byte) 0); // migrationTarget
+    return buffer.array();
+  }
+
+  private static byte[] discriminator(String preimage) {
+    try {
+      final byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(preimage.getBytes(StandardCharsets.UTF_8));
+      return Arrays.copyOf(hash, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void tipFloor(HttpExchange exchange) throws IOException {
+    count("tip_floor");
+    if (!admit(exchange)) {
+      return;
+    }
+    write(exchange, 200, TIP_FLOOR);
+  }
+
+  private void jsonRpc(HttpExchange exchange) throws IOException {
+    final JsonNode request;
+    try (InputStream body = exchange.getRequestBody()) {
+      request = objectMapper.readTree(body);
+    }
+    final JsonNode id = request.get("id");
+    final String method = request.path("method").asText();
+    count(method);
+    if (!admit(exchange)) {
+      return;
+    }
+    if (options.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate) {
+      write(exchange, 200, error(id, -32005, "Node is behind by 42 slots"));
+      return;
+    }
+    final JsonNode params = request.path("params");
+    final String result =
+        switch (method) {
+          case "getAccountInfo" -> accountInfo(params.path(0).asText());
+          case "getLatestBlockhash" ->
+              context("{\"blockhash\":\"%s\",\"lastValidBlockHeight\":%d}"
+                  .formatted(BLOCK_HASH, slot.get() + 150));
+          case "getSignatureStatuses" -> signatureStatuses(params.path(0));
+          case "sendTransaction" -> sendTransaction(params.path(0).asText());
+          case "sendBundle" -> sendBundle(params.path(0));
+          case "getTokenAccountBalance" -> tokenAccountBalance(params.path(0).asText());
+          case "getHealth" -> "\"ok\"";
+          case "getSlot", "getBlockHeight" -> String.valueOf(slot.get());
+          default -> null;
+        };
+    if (result == null) {
+      write(exchange, 200, error(id, -32601, "Method not found"));
+      return;
+    }
+    write(exchange, 200, "{\"jsonrpc\":\"2.0\",\"result\":" + result + ",\"id\":" + id + "}");
+  }
+
+  private String accountInfo(String address) {
+    final Account account = accounts.get(address);
+    if (account == null) {
+      return context("null");
+    }
+    return context(
+        "{\"data\":[\"%s\",\"base64\"],\"executable\":false,\"lamports\":%d,\"owner\":\"%s\",\"rentEpoch\":18446744073709551615,\"space\":%d}"
+            .formatted(
+                Base64.getEncoder().encodeToString(account.data),
+                account.lamports,
+                account.owner,
+                account.data.length));
+  }
+
+  private String signatureStatuses(JsonNode signatureList) {
+    final long now = System.nanoTime();
+    final StringBuilder value = new StringBuilder("[");
+    for (int i = 0; i < signatureList.size(); i++) {
+      if (i > 0) {
+        value.append(',');
+      }
+      final Long received = signatures.get(signatureList.get(i).asText());
+      if (received == null || now - received < options.confirmDelay.toNanos()) {
+        value.append("null");
+      } else {
+        value.append(
+            "{\"slot\":%d,\"confirmations\":null,\"err\":null,\"status\":{\"Ok\":null},\"confirmationStatus\":\"confirmed\"}"
+                .formatted(slot.get()));
+      }
+    }
+    return context(value.append(']').toString());
+  }
+
+  private String sendTransaction(String base64Tx) {
+    final byte[] data = Base64.getDecoder().decode(base64Tx);
+    final String signature = Base58.encode(data, 1, 1 + 64);
+    signatures.putIfAbsent(signature, System.nanoTime());
+    slot.incrementAndGet();
+    return '"' + signature + '"';
+  }
+
+  private String sendBundle(JsonNode transactions) {
+    for (JsonNode transaction : transactions) {
+      sendTransaction(transaction.asText());
+    }
+    return "\"" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + "\"";
+  }
+
+  private String tokenAccountBalance(String address) {
+    final long amount = tokenBalances.getOrDefault(address, 0L);
+    return context(
+        "{\"amount\":\"%d\",\"decimals\":9,\"uiAmount\":%s,\"uiAmountString\":\"%s\"}"
+            .formatted(amount, amount / 1e9, amount / 1e9));
+  }
+
+  private String context(String value) {
+    return "{\"context\":{\"apiVersion\":\"2.0.18\",\"slot\":%d},\"value\":%s}"
+        .formatted(slot.get(), value);
+  }
+
+  private static String error(JsonNode id, int code, String message) {
+    return "{\"jsonrpc\":\"2.0\",\"error\":{\"code\":%d,\"message\":\"%s\"},\"id\":%s}"
+        .formatted(code, message, id);
+  }
+
+  private void count(String method) {
+    requestCounts.computeIfAbsent(method, _ -> new LongAdder()).increment();
+  }
+
+  /** 模拟延迟与限流，返回 false 表示已回 429 */
+  private boolean admit(HttpExchange exchange) throws IOException {
+    final long delayNanos =
+        options.latency.toNanos()
+            + (options.jitter.isZero()
+                ? 0
+                : ThreadLocalRandom.current().nextLong(options.jitter.toNanos()));
+    if (delayNanos > 0) {
+      try {
+        Thread.sleep(Duration.ofNanos(delayNanos));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (options.requestsPerSecond > 0) {
+      final long second = System.nanoTime() / 1_000_000_000L;
+      final long current = windowStart.get();
+      if (current != second && windowStart.compareAndSet(current, second)) {
+        windowCount.set(0);
+      }
+      if (windowCount.incrementAndGet() > options.requestsPerSecond) {
+        count("rate_limited");
+        write(
+            exchange,
+            429,
+            "{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-32097,\"message\":\"Rate limit exceeded\"},\"id\":null}");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void write(HttpExchange exchange, int status, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(bytes);
+    }
+  }
+}
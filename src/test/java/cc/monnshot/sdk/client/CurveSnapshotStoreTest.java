@@ -0,0 +1,128 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** 线性探测、墓碑删除与 seqlock 读取 */
+class CurveSnapshotStoreTest {
+
+  // 最小容量 32
+  private static final int CAPACITY = 32;
+
+  private final CurveSnapshotStore store = new CurveSnapshotStore(1);
+
+  private final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+
+  @Test
+  void olderSlotIgnored() {
+    final byte[] mint = key(1, 0);
+    assertTrue(store.put(mint, 0, 1_000, 400, 1, 10));
+    assertFalse(store.put(mint, 0, 1_000, 300, 1, 9));
+    assertTrue(store.read(mint, 0, snapshot));
+    assertEquals(600, snapshot.curvePosition());
+    assertEquals(10, snapshot.getSlot());
+    assertTrue(store.put(mint, 0, 1_000, 300, 1, 10));
+    assertTrue(store.read(mint, 0, snapshot));
+    assertEquals(700, snapshot.curvePosition());
+    assertEquals(1, store.getSize());
+  }
+
+  @Test
+  void probesPastTombstone() {
+    // k0 ^ k2 相同，落在同一个起始槽位
+    final byte[] first = key(7, 1);
+    final byte[] second = key(7, 2);
+    final byte[] third = key(7, 3);
+    store.put(first, 0, 100, 10, 1, 1);
+    store.put(second, 0, 200, 20, 1, 1);
+    store.put(third, 0, 300, 30, 1, 1);
+    assertEquals(3, store.getSize());
+
+    assertTrue(store.remove(second, 0));
+    assertFalse(store.remove(second, 0));
+    assertFalse(store.read(second, 0, snapshot));
+    assertTrue(store.read(third, 0, snapshot));
+    assertEquals(300, snapshot.getTotalSupply());
+    assertEquals(2, store.getSize());
+
+    // 删除后重新写入不受旧 slot 限制
+    assertTrue(store.put(second, 0, 250, 25, 1, 0));
+    assertTrue(store.read(second, 0, snapshot));
+    assertEquals(250, snapshot.getTotalSupply());
+    assertEquals(3, store.getSize());
+  }
+
+  @Test
+  void fullTableRejectsPut() {
+    for (int i = 0; i < CAPACITY; i++) {
+      assertTrue(store.put(key(i, i), 0, 100, i, 1, 1));
+    }
+    assertFalse(store.put(key(CAPACITY, CAPACITY), 0, 100, 0, 1, 1));
+    assertTrue(store.remove(key(3, 3), 0));
+    assertTrue(store.put(key(CAPACITY, CAPACITY), 0, 100, 0, 1, 1));
+    for (int i = 0; i <= CAPACITY; i++) {
+      assertEquals(i != 3, store.read(key(i, i), 0, snapshot));
+    }
+  }
+
+  @Test
+  void churnReusesTombstones() {
+    for (int i = 0; i < CAPACITY * 100; i++) {
+      final byte[] mint = key(i, i * 31);
+      assertTrue(store.put(mint, 0, 100, 1, 1, i));
+      if (i >= 8) {
+        assertTrue(store.remove(key(i - 8, (i - 8) * 31), 0));
+      }
+    }
+    assertEquals(8, store.getSize());
+    assertTrue(store.read(key(CAPACITY * 100 - 1, (CAPACITY * 100 - 1) * 31), 0, snapshot));
+  }
+
+  @Test
+  void readerSeesConsistentSnapshot() throws InterruptedException {
+    final byte[] mint = key(5, 5);
+    store.put(mint, 0, 0, 0, 1, 0);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicLong torn = new AtomicLong();
+    final Thread reader =
+        Thread.ofPlatform()
+            .start(
+                () -> {
+                  final CurveSnapshotStore.Snapshot read = new CurveSnapshotStore.Snapshot();
+                  while (running.get()) {
+                    if (store.read(mint, 0, read)
+                        && (read.getTotalSupply() != read.getSlot() * 2
+                            || read.getCurveAmount() != read.getSlot())) {
+                      torn.incrementAndGet();
+                    }
+                  }
+                });
+    for (long slot = 1; slot <= 1_000_000; slot++) {
+      store.put(mint, 0, slot * 2, slot, 1, slot);
+    }
+    running.set(false);
+    reader.join();
+    assertEquals(0, torn.get());
+  }
+
+  /**
+   * @param home 决定起始槽位 (k0 与 k2)
+   * @param id 区分同一起始槽位的 key (k1)
+   */
+  private static byte[] key(long home, long id) {
+    return ByteBuffer.allocate(32)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putLong(home)
+        .putLong(id)
+        .putLong(0)
+        .putLong(id)
+        .array();
+  }
+}
@@ -0,0 +1,173 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import cc.monnshot.sdk.client.ExitRuleEngine.ExitRule;
+import cc.monnshot.sdk.client.ExitRuleEngine.Fired;
+import cc.monnshot.sdk.client.ExitRuleEngine.Trigger;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.sava.core.accounts.PublicKey;
+
+/** 规则索引：触发边界、移动止损最高价合并、删除 */
+class ExitRuleEngineTest {
+
+  private static final long TOTAL_SUPPLY = 1_000_000_000_000_000_000L;
+
+  // CurveType.ConstantProductV1
+  private static final int CONSTANT_PRODUCT = 1;
+
+  private static final SellOptions SELL_ALL = new SellOptions(BigDecimal.ONE, 5, "medium", null);
+
+  private final byte[] mintBytes = key(1);
+
+  private final PublicKey mint = PublicKey.createPubKey(mintBytes);
+
+  private final PublicKey owner = PublicKey.createPubKey(key(2));
+
+  private final MonnShotTrade monnShotTrade = mock(MonnShotTrade.class);
+
+  private final MoonshotQuoteService quoteService = mock(MoonshotQuoteService.class);
+
+  private final ExitRuleEngine engine = new ExitRuleEngine(monnShotTrade, quoteService);
+
+  @AfterEach
+  void close() {
+    engine.close();
+  }
+
+  @Test
+  void takeProfitAtOrAboveThreshold() {
+    final long low = add(Trigger.TAKE_PROFIT, 2.0);
+    final long high = add(Trigger.TAKE_PROFIT, 3.0);
+    assertTrue(price(1, 1.9).isEmpty());
+    assertEquals(List.of(low), ids(price(2, 2.0)));
+    assertEquals(List.of(high), ids(price(3, 3.5)));
+    assertEquals(0, engine.size());
+    verify(monnShotTrade, timeout(1000).times(2)).sell(mint, owner, SELL_ALL, false);
+  }
+
+  @Test
+  void stopLossAtOrBelowThreshold() {
+    final long high = add(Trigger.STOP_LOSS, 1.0);
+    final long low = add(Trigger.STOP_LOSS, 0.5);
+    assertTrue(price(1, 1.1).isEmpty());
+    assertEquals(List.of(high), ids(price(2, 1.0)));
+    assertEquals(List.of(low), ids(price(3, 0.4)));
+  }
+
+  @Test
+  void progressAtOrAboveThreshold() {
+    final long half = add(Trigger.PROGRESS, 50.0);
+    // 799820983207404442 为 100% 进度
+    assertTrue(onCurve(1, 1.0, 399_910_491_603_702_221L / 5 * 4).isEmpty());
+    final List<Fired> fired = onCurve(2, 1.0, 399_910_491_603_702_221L);
+    assertEquals(List.of(half), ids(fired));
+    assertEquals(50.0, fired.getFirst().progress(), 1e-9);
+  }
+
+  @Test
+  void trailingStopFollowsPeak() {
+    final long wide = add(Trigger.TRAILING_STOP, 0.3);
+    // 注册时没有价格，第一次更新把最高价提到当前价
+    assertTrue(price(1, 1.0).isEmpty());
+    final long narrow = add(Trigger.TRAILING_STOP, 0.1);
+    // 两个规则的最高价合并到 2.0
+    assertTrue(price(2, 2.0).isEmpty());
+    assertEquals(List.of(narrow), ids(price(3, 1.5)));
+    // 回撤按合并后的最高价计算，回升不到 2.0 时最高价不变
+    assertTrue(price(4, 1.8).isEmpty());
+    assertEquals(List.of(wide), ids(price(5, 1.2)));
+  }
+
+  @Test
+  void trailingStopAddedAtLastPrice() {
+    add(Trigger.TAKE_PROFIT, 10.0);
+    price(1, 4.0);
+    final long trailing = add(Trigger.TRAILING_STOP, 0.25);
+    assertTrue(price(2, 3.5).isEmpty());
+    assertEquals(List.of(trailing), ids(price(3, 3.0)));
+  }
+
+  @Test
+  void removeAfterPeakMerge() {
+    final long removed = add(Trigger.TRAILING_STOP, 0.2);
+    final long kept = add(Trigger.TRAILING_STOP, 0.2);
+    price(1, 1.0);
+    price(2, 2.0);
+    assertTrue(engine.remove(removed));
+    assertFalse(engine.remove(removed));
+    assertEquals(List.of(kept), ids(price(3, 1.0)));
+    // 已触发的规则不能再删除
+    assertFalse(engine.remove(kept));
+  }
+
+  @Test
+  void removeSameThreshold() {
+    final long first = add(Trigger.TAKE_PROFIT, 2.0);
+    final long second = add(Trigger.TAKE_PROFIT, 2.0);
+    final long stopLoss = add(Trigger.STOP_LOSS, 1.0);
+    assertTrue(engine.remove(first));
+    assertEquals(2, engine.size());
+    assertEquals(List.of(second), ids(price(1, 2.0)));
+    assertTrue(engine.remove(stopLoss));
+    assertTrue(price(2, 0.5).isEmpty());
+    assertEquals(0, engine.size());
+  }
+
+  @Test
+  void staleSlotIgnored() {
+    final long takeProfit = add(Trigger.TAKE_PROFIT, 2.0);
+    assertTrue(price(10, 1.0).isEmpty());
+    assertTrue(price(9, 2.5).isEmpty());
+    // 同一 slot 的更新仍然评估
+    assertEquals(List.of(takeProfit), ids(price(10, 2.5)));
+  }
+
+  private long add(Trigger trigger, double threshold) {
+    return engine.add(owner, new ExitRule(mint, trigger, threshold, SELL_ALL, false));
+  }
+
+  private List<Fired> price(long slot, double price) {
+    return onCurve(slot, price, 0);
+  }
+
+  /**
+   * @param price 1 个整 token 的卖出报价折算的单价
+   */
+  private List<Fired> onCurve(long slot, double price, long curvePosition) {
+    when(quoteService.quote(eq(mint), any(), any(), anyLong(), any(), any()))
+        .thenReturn(BigInteger.valueOf(Math.round(price * 1_000_000_000D)));
+    // 每次新建快照表，才能构造比上次旧的 slot
+    final CurveSnapshotStore curveSnapshotStore = new CurveSnapshotStore(1);
+    curveSnapshotStore.put(
+        mintBytes, 0, TOTAL_SUPPLY, TOTAL_SUPPLY - curvePosition, CONSTANT_PRODUCT, slot);
+    final CurveSnapshotStore.Snapshot snapshot = new CurveSnapshotStore.Snapshot();
+    assertTrue(curveSnapshotStore.read(mintBytes, 0, snapshot));
+    return engine.onCurve(mint, snapshot);
+  }
+
+  private static List<Long> ids(List<Fired> fired) {
+    return fired.stream().map(Fired::ruleId).toList();
+  }
+
+  private static byte[] key(int seed) {
+    final byte[] key = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+    key[0] = (byte) seed;
+    key[31] = (byte) (seed * 7);
+    return key;
+  }
+}
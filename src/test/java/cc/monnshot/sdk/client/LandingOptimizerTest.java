@@ -0,0 +1,96 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import cc.monnshot.sdk.JitoApi.TipFloor.TipTypeEnum;
+import cc.monnshot.sdk.client.LandingOptimizer.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** 档位选择：最便宜的达标档位、样本不足时升级、定期试探低一档 */
+class LandingOptimizerTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(300);
+
+  private final LandingOptimizer optimizer = new LandingOptimizer();
+
+  @AfterEach
+  void close() {
+    optimizer.close();
+  }
+
+  @Test
+  void startsFromRequestedLevel() {
+    assertEquals(TipTypeEnum.MEDIUM, optimizer.choose(Path.RPC, TipTypeEnum.MEDIUM));
+    assertEquals("MEDIUM", optimizer.choose(Path.RPC, LandingOptimizer.AUTO));
+    assertEquals("MEDIUM", optimizer.choose(Path.RPC, (String) null));
+    // 指定档位时原样返回
+    assertEquals("high", optimizer.choose(Path.RPC, "high"));
+  }
+
+  @Test
+  void escalatesPastFailingLevels() {
+    record(Path.RPC, TipTypeEnum.MEDIUM, false, 10);
+    assertEquals(TipTypeEnum.MEDIUM_HIGH, optimizer.choose(Path.RPC, TipTypeEnum.MEDIUM));
+    record(Path.RPC, TipTypeEnum.MEDIUM_HIGH, false, 10);
+    record(Path.RPC, TipTypeEnum.HIGH, false, 10);
+    record(Path.RPC, TipTypeEnum.EXTREMELY_HIGH, false, 10);
+    // 都已证明不达标时用最高档
+    assertEquals(TipTypeEnum.EXTREMELY_HIGH, optimizer.choose(Path.RPC, TipTypeEnum.MEDIUM));
+    // 路径之间互不影响
+    assertEquals(TipTypeEnum.MEDIUM, optimizer.choose(Path.JITO, TipTypeEnum.MEDIUM));
+  }
+
+  @Test
+  void choosesCheapestQualifiedLevel() {
+    record(Path.JITO, TipTypeEnum.HIGH, true, 10);
+    record(Path.JITO, TipTypeEnum.LOW, true, 10);
+    // 达标档位低于请求档位时同样选用
+    assertEquals(TipTypeEnum.LOW, optimizer.choose(Path.JITO, TipTypeEnum.MEDIUM));
+  }
+
+  @Test
+  void slowLevelIsNotQualified() {
+    for (int i = 0; i < 10; i++) {
+      optimizer.record(Path.RPC, TipTypeEnum.LOW, true, TimeUnit.SECONDS.toNanos(3));
+    }
+    assertFalse(optimizer.stats(Path.RPC, TipTypeEnum.LOW).qualified());
+    assertEquals(TipTypeEnum.MEDIUM, optimizer.choose(Path.RPC, TipTypeEnum.MEDIUM));
+  }
+
+  @Test
+  void probesOneLevelLower() {
+    record(Path.RPC, TipTypeEnum.MEDIUM, true, 10);
+    for (int i = 1; i < 20; i++) {
+      assertEquals(TipTypeEnum.MEDIUM, optimizer.choose(Path.RPC, TipTypeEnum.LOW));
+    }
+    assertEquals(TipTypeEnum.LOW, optimizer.choose(Path.RPC, TipTypeEnum.LOW));
+    assertEquals(TipTypeEnum.MEDIUM, optimizer.choose(Path.RPC, TipTypeEnum.LOW));
+  }
+
+  @Test
+  void decayedStats() {
+    record(Path.RPC, TipTypeEnum.MEDIUM, true, 10);
+    LandingOptimizer.LevelStats stats = optimizer.stats(Path.RPC, TipTypeEnum.MEDIUM);
+    assertEquals(10, stats.samples());
+    assertEquals(1D, stats.landRate(), 1e-9);
+    assertEquals(300D, stats.latencyMs(), 1e-9);
+
+    // 样本足够后按 0.1 衰减，未落地不计入耗时
+    record(Path.RPC, TipTypeEnum.MEDIUM, false, 2);
+    stats = optimizer.stats(Path.RPC, TipTypeEnum.MEDIUM);
+    assertEquals(12, stats.samples());
+    assertEquals(0.81D, stats.landRate(), 1e-9);
+    assertEquals(300D, stats.latencyMs(), 1e-9);
+    assertFalse(stats.qualified());
+    assertEquals(TipTypeEnum.MEDIUM_HIGH, optimizer.choose(Path.RPC, TipTypeEnum.MEDIUM));
+  }
+
+  private void record(Path path, TipTypeEnum level, boolean landed, int times) {
+    for (int i = 0; i < times; i++) {
+      optimizer.record(path, level, landed, FAST);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import cc.monnshot.sdk.client.ComputeUnitLimits.Shape;
+import cc.monnshot.sdk.client.MonnShotTrade.TradeAccounts;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import software.sava.anchor.programs.moonshot.anchor.types.TradeParams;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.Signer;
+import software.sava.core.accounts.lookup.AddressLookupTable;
+import software.sava.core.tx.Instruction;
+import software.sava.core.tx.Transaction;
+
+/** 装箱使用的交易大小估算 */
+class PortfolioTradeTest {
+
+  private static final TradeParams TRADE_PARAMS =
+      new TradeParams(1_000_000_000L, 100_000_000L, FixedSide.IN.getValue(), 500L);
+
+  private final PublicKey owner = newKey();
+
+  @Test
+  void legacyMatchesSerializedSize() {
+    final PortfolioTrade portfolioTrade =
+        new PortfolioTrade(mock(MonnShotTrade.class), new LookupTableManager(null));
+    for (int legs = 1; legs <= 4; legs++) {
+      final List<Instruction> instructions = instructions(legs);
+      final Transaction transaction = Transaction.createTx(owner, instructions);
+      transaction.setRecentBlockHash(owner.toBase58());
+      assertEquals(
+          transaction.serialized().length, portfolioTrade.estimateSize(owner, instructions));
+    }
+  }
+
+  @Test
+  void lookupTableAccounts() {
+    final List<Instruction> instructions = instructions(3);
+    final int legacy =
+        new PortfolioTrade(mock(MonnShotTrade.class), new LookupTableManager(null))
+            .estimateSize(owner, instructions);
+
+    final LookupTableManager lookupTableManager = mock(LookupTableManager.class);
+    when(lookupTableManager.table()).thenReturn(mock(AddressLookupTable.class));
+    final PortfolioTrade portfolioTrade =
+        new PortfolioTrade(mock(MonnShotTrade.class), lookupTableManager);
+    // 没有账户在表中：版本前缀 + 空的 lookup 列表
+    assertEquals(legacy + 2, portfolioTrade.estimateSize(owner, instructions));
+
+    // 每个表中的账户由 32 字节地址变为 1 字节索引，另加一张表的地址与两个索引长度
+    contains(lookupTableManager, LookupTableManager.STATIC_ACCOUNTS::contains);
+    final int withStatic = portfolioTrade.estimateSize(owner, instructions);
+    assertEquals(
+        legacy + 2 + 32 + 2 - LookupTableManager.STATIC_ACCOUNTS.size() * 31, withStatic);
+
+    // 签名者与被调用的程序即使在表中也必须是静态账户
+    contains(lookupTableManager, _ -> true);
+    final int all = portfolioTrade.estimateSize(owner, instructions);
+    contains(
+        lookupTableManager,
+        publicKey -> !publicKey.equals(owner) && !publicKey.equals(MonnshotProgram.MOONSHOT));
+    assertEquals(all, portfolioTrade.estimateSize(owner, instructions));
+    assertTrue(all < withStatic);
+  }
+
+  /** 一条优先费指令，之后交替为 buy 与带 closeAccount 的 sell */
+  private List<Instruction> instructions(int legs) {
+    final List<Instruction> instructions = new ArrayList<>();
+    instructions.add(MonnShotTrade.feeInstruction(owner, false, "medium", null));
+    for (int i = 0; i < legs; i++) {
+      final TradeAccounts accounts = TradeAccounts.of(newKey(), owner);
+      if (i % 2 == 0) {
+        instructions.add(MonnShotTrade.buyInstruction(accounts, owner, TRADE_PARAMS));
+      } else {
+        instructions.addAll(
+            MonnShotTrade.sellLegInstructions(accounts, owner, Shape.SELL_CLOSE, TRADE_PARAMS));
+      }
+    }
+    return instructions;
+  }
+
+  private static void contains(
+      LookupTableManager lookupTableManager, Predicate<PublicKey> inTable) {
+    when(lookupTableManager.contains(any()))
+        .thenAnswer(invocation -> inTable.test(invocation.getArgument(0)));
+  }
+
+  private static PublicKey newKey() {
+    return Signer.createFromKeyPair(Signer.generatePrivateKeyPairBytes()).publicKey();
+  }
+}
@@ -0,0 +1,130 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import cc.monnshot.sdk.client.PositionTracker.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.sava.core.accounts.PublicKey;
+
+/** 本地成交与链上余额按 slot 合并 */
+class PositionTrackerTest {
+
+  private final PublicKey owner = PublicKey.createPubKey(key(1));
+
+  private final PublicKey mint = PublicKey.createPubKey(key(2));
+
+  private final PositionTracker tracker = new PositionTracker(null, null);
+
+  @AfterEach
+  void close() {
+    tracker.close();
+  }
+
+  @Test
+  void fillsWithoutBalance() {
+    assertNull(tracker.position(owner, mint));
+    tracker.onFill(owner, mint, true, 1_000, 100, 10);
+    tracker.onFill(owner, mint, true, 1_000, 300, 11);
+    final Position sold = tracker.onFill(owner, mint, false, 500, 150, 12);
+    assertEquals(1_500, sold.tokenAmount());
+    assertEquals(300, sold.costLamports());
+    assertEquals(50, sold.realizedLamports());
+    assertEquals(12, sold.slot());
+    assertEquals(100D / 500, sold.averageCost(), 1e-12);
+  }
+
+  @Test
+  void buyAlreadyInBalance() {
+    tracker.onBalance(owner, mint, 1_000, 20);
+    // 成交 slot 不晚于余额 slot，数量已包含在余额中
+    final Position position = tracker.onFill(owner, mint, true, 1_000, 400, 20);
+    assertEquals(1_000, position.tokenAmount());
+    assertEquals(400, position.costLamports());
+    assertEquals(20, position.slot());
+  }
+
+  @Test
+  void buyAfterBalance() {
+    tracker.onBalance(owner, mint, 1_000, 20);
+    final Position position = tracker.onFill(owner, mint, true, 1_000, 400, 21);
+    assertEquals(2_000, position.tokenAmount());
+    assertEquals(400, position.costLamports());
+    assertEquals(21, position.slot());
+  }
+
+  @Test
+  void sellAlreadyInBalance() {
+    tracker.onFill(owner, mint, true, 1_000, 400, 10);
+    // 卖出 750 后的余额先到，扣减的成本先记为亏损
+    tracker.onBalance(owner, mint, 250, 15);
+    assertEquals(-300, tracker.position(owner, mint).realizedLamports());
+    final Position position = tracker.onFill(owner, mint, false, 750, 500, 15);
+    assertEquals(250, position.tokenAmount());
+    assertEquals(100, position.costLamports());
+    assertEquals(200, position.realizedLamports());
+  }
+
+  @Test
+  void sellAllAlreadyInBalance() {
+    tracker.onFill(owner, mint, true, 1_000, 400, 10);
+    tracker.onBalance(owner, mint, 0, 15);
+    final Position position = tracker.onFill(owner, mint, false, 1_000, 450, 15);
+    assertEquals(0, position.tokenAmount());
+    assertEquals(0, position.costLamports());
+    assertEquals(50, position.realizedLamports());
+  }
+
+  @Test
+  void fillThenBalanceMatchesBalanceThenFill() {
+    tracker.onFill(owner, mint, true, 1_000, 400, 10);
+    tracker.onFill(owner, mint, false, 750, 500, 15);
+    tracker.onBalance(owner, mint, 250, 15);
+    final Position position = tracker.position(owner, mint);
+    assertEquals(250, position.tokenAmount());
+    assertEquals(100, position.costLamports());
+    assertEquals(200, position.realizedLamports());
+  }
+
+  @Test
+  void olderBalanceIgnored() {
+    tracker.onFill(owner, mint, true, 1_000, 400, 30);
+    tracker.onBalance(owner, mint, 0, 29);
+    final Position position = tracker.position(owner, mint);
+    assertEquals(1_000, position.tokenAmount());
+    assertEquals(400, position.costLamports());
+    assertEquals(30, position.slot());
+  }
+
+  @Test
+  void balanceDecreaseReducesCost() {
+    tracker.onFill(owner, mint, true, 1_000, 400, 10);
+    tracker.onBalance(owner, mint, 250, 11);
+    Position position = tracker.position(owner, mint);
+    assertEquals(250, position.tokenAmount());
+    assertEquals(100, position.costLamports());
+    assertEquals(-300, position.realizedLamports());
+    // 余额增加时成本不变
+    tracker.onBalance(owner, mint, 600, 12);
+    position = tracker.position(owner, mint);
+    assertEquals(600, position.tokenAmount());
+    assertEquals(100, position.costLamports());
+    assertEquals(12, position.slot());
+  }
+
+  @Test
+  void sellMoreThanHeld() {
+    tracker.onBalance(owner, mint, 100, 5);
+    final Position position = tracker.onFill(owner, mint, false, 300, 90, 6);
+    assertEquals(0, position.tokenAmount());
+    assertEquals(0, position.costLamports());
+    assertEquals(90, position.realizedLamports());
+  }
+
+  private static byte[] key(int seed) {
+    final byte[] key = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+    key[0] = (byte) seed;
+    return key;
+  }
+}
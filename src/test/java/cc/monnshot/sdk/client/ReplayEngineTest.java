@@ -0,0 +1,164 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cc.monnshot.sdk.client.MonnShotTrade.BuyOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.CurveAdapter;
+import cc.monnshot.sdk.client.MonnShotTrade.GetCollateralAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.GetTokenAmountSyncOptions;
+import cc.monnshot.sdk.client.MonnShotTrade.SellOptions;
+import cc.monnshot.sdk.client.ReplayEngine.CurveEvent;
+import cc.monnshot.sdk.client.ReplayEngine.Event;
+import cc.monnshot.sdk.client.ReplayEngine.Fill;
+import cc.monnshot.sdk.client.ReplayEngine.MintReport;
+import cc.monnshot.sdk.client.ReplayEngine.Order;
+import cc.monnshot.sdk.client.ReplayEngine.Strategy;
+import cc.monnshot.sdk.client.ReplayEngine.TradeEvent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import software.sava.anchor.programs.moonshot.anchor.types.CurveType;
+import software.sava.core.accounts.PublicKey;
+
+/** 回放成交：按成交时的曲线状态计算数量、滑点拒绝、成本分摊与 PnL */
+class ReplayEngineTest {
+
+  private static final long TOTAL_SUPPLY = 1_000_000_000_000_000_000L;
+
+  private static final long START_POSITION = 200_000_000_000_000_000L;
+
+  private static final long MARKET_BUY = 100_000_000_000_000_000L;
+
+  private static final long ONE_SOL = 1_000_000_000L;
+
+  private static final CurveAdapter CURVE =
+      MoonshotQuoteService.curveAdapter(CurveType.ConstantProductV1);
+
+  private final PublicKey mint = PublicKey.createPubKey(new byte[PublicKey.PUBLIC_KEY_LENGTH]);
+
+  @Test
+  void buyThenSellAll() {
+    final MintReport report = replay(0, sellAt(2, "1"), 50);
+    final long tokens = tokens(START_POSITION, ONE_SOL);
+    // 自己买入的数量计入之后的曲线位置
+    final long lamports = lamports(START_POSITION + MARKET_BUY + tokens, tokens);
+    assertEquals(2, report.fills().size());
+    final Fill buy = report.fills().getFirst();
+    assertEquals("buy", buy.side());
+    assertEquals(tokens, buy.tokenAmount());
+    assertEquals(ONE_SOL, buy.collateralAmount());
+    assertEquals(0D, buy.slippageBps(), 1e-9);
+    final Fill sell = report.fills().getLast();
+    assertEquals("sell", sell.side());
+    assertEquals(tokens, sell.tokenAmount());
+    assertEquals(lamports, sell.collateralAmount());
+    assertFalse(sell.rejected());
+    assertEquals(0, report.tokenAmount());
+    assertEquals(0, report.costLamports());
+    assertEquals(lamports - ONE_SOL, report.realizedLamports());
+    assertEquals(0, report.markLamports());
+    assertEquals(lamports - ONE_SOL, report.pnlLamports());
+    assertTrue(report.pnlLamports() > 0);
+  }
+
+  @Test
+  void partialSellSplitsCost() {
+    final MintReport report = replay(0, sellAt(2, "0.5"), 50);
+    final long tokens = tokens(START_POSITION, ONE_SOL);
+    final long sold = tokens / 2;
+    final long position = START_POSITION + MARKET_BUY + tokens;
+    final long lamports = lamports(position, sold);
+    final long soldCost =
+        BigInteger.valueOf(ONE_SOL)
+            .multiply(BigInteger.valueOf(sold))
+            .divide(BigInteger.valueOf(tokens))
+            .longValue();
+    assertEquals(tokens - sold, report.tokenAmount());
+    assertEquals(ONE_SOL - soldCost, report.costLamports());
+    assertEquals(lamports - soldCost, report.realizedLamports());
+    // 剩余持仓按回放结束时的曲线位置估值
+    final long mark = lamports(position - sold, tokens - sold);
+    assertEquals(mark, report.markLamports());
+    assertEquals(lamports + mark - ONE_SOL, report.pnlLamports());
+  }
+
+  @Test
+  void latencyFillsAtLaterCurve() {
+    final MintReport report = replay(2, (_, _) -> null, 50);
+    final Fill buy = report.fills().getFirst();
+    assertEquals(1, buy.orderSlot());
+    assertEquals(3, buy.fillSlot());
+    assertEquals(tokens(START_POSITION, ONE_SOL), buy.expected());
+    assertEquals(tokens(START_POSITION + MARKET_BUY, ONE_SOL), buy.tokenAmount());
+    assertTrue(buy.slippageBps() > 100D);
+    assertFalse(buy.rejected());
+    assertEquals(buy.tokenAmount(), report.tokenAmount());
+    assertEquals(ONE_SOL, report.costLamports());
+  }
+
+  @Test
+  void slippageRejectsFill() {
+    final MintReport report = replay(2, (_, _) -> null, 1);
+    final Fill buy = report.fills().getFirst();
+    assertTrue(buy.rejected());
+    assertEquals(0, report.tokenAmount());
+    assertEquals(0, report.costLamports());
+    assertEquals(0, report.pnlLamports());
+  }
+
+  /**
+   * slot 1 曲线快照时买入 1 SOL，slot 2 市场买入，slot 3 曲线快照
+   *
+   * @param later slot 1 之后的决策
+   */
+  private MintReport replay(long latencySlots, Strategy later, int buySlippage) {
+    final List<Event> events =
+        List.of(
+            new CurveEvent(
+                1, mint, CurveType.ConstantProductV1, TOTAL_SUPPLY, TOTAL_SUPPLY - START_POSITION),
+            new TradeEvent(2, mint, true, MARKET_BUY, 0),
+            new CurveEvent(
+                3,
+                mint,
+                CurveType.ConstantProductV1,
+                TOTAL_SUPPLY,
+                TOTAL_SUPPLY - START_POSITION - MARKET_BUY));
+    final Strategy strategy =
+        (event, view) ->
+            event.slot() == 1
+                ? Order.buy(new BuyOptions(BigDecimal.ONE, buySlippage, "medium", null))
+                : later.onEvent(event, view);
+    final ReplayEngine.Report report =
+        new ReplayEngine(ForkJoinPool.commonPool(), latencySlots).replay(events, () -> strategy);
+    assertEquals(1, report.mints().size());
+    assertEquals(3, report.events());
+    return report.mints().getFirst();
+  }
+
+  private static Strategy sellAt(long slot, String ratio) {
+    return (event, _) ->
+        event.slot() == slot
+            ? Order.sell(new SellOptions(new BigDecimal(ratio), 50, "medium", null))
+            : null;
+  }
+
+  private static long tokens(long curvePosition, long lamports) {
+    return CURVE
+        .getTokenAmountByCollateralSync(
+            new GetTokenAmountSyncOptions(
+                BigInteger.valueOf(curvePosition), BigInteger.valueOf(lamports), true))
+        .longValue();
+  }
+
+  private static long lamports(long curvePosition, long tokens) {
+    return CURVE
+        .getCollateralAmountByTokensSync(
+            new GetCollateralAmountSyncOptions(
+                BigInteger.valueOf(curvePosition), BigInteger.valueOf(tokens), false))
+        .longValue();
+  }
+}
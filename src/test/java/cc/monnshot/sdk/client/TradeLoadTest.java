@@ -0,0 +1,133 @@
+package cc.monnshot.sdk.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cc.monnshot.sdk.SolanaStubServer;
+import cc.monnshot.sdk.SolanaStubServer.StubOptions;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.sava.core.accounts.PublicKey;
+import software.sava.core.accounts.Signer;
+
+/**
+ * 对本地 stub 压测 MonnShotTrade.buy，统计吞吐与尾延迟
+ *
+ * <p>{@code ./gradlew loadTest -Dload.trades=5000 -Dload.concurrency=500}
+ */
+@Slf4j
+@Tag("load")
+class TradeLoadTest {
+
+  private static final int TRADES = Integer.getInteger("load.trades", 2000);
+
+  private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 200);
+
+  private static SolanaStubServer stub;
+
+  @BeforeAll
+  static void startStub() throws IOException {
+    stub =
+        new SolanaStubServer(
+            new StubOptions(
+                Duration.ofMillis(2), Duration.ofMillis(8), 0.01D, 0, Duration.ofMillis(50)));
+    // 必须在 HttpRpcApi / JitoApi 类初始化之前设置
+    System.setProperty("MONNSHOT_RPC_ENDPOINTS", stub.endpoint());
+    System.setProperty("MONNSHOT_JITO_ENDPOINTS", stub.endpoint());
+    System.setProperty(
+        "MONNSHOT_JITO_TIP_FLOOR_URL", stub.endpoint() + "/api/v1/bundles/tip_floor");
+  }
+
+  @AfterAll
+  static void stopStub() {
+    stub.close();
+  }
+
+  @Test
+  void buyThroughput() throws InterruptedException {
+    final PublicKey mint =
+        Signer.createFromKeyPair(Signer.generatePrivateKeyPairBytes()).publicKey();
+    final PublicKey curveKey =
+        MonnshotPDAs.bondingCurvePDA(MonnshotProgram.MOONSHOT, mint).publicKey();
+    stub.putAccount(
+        curveKey,
+        SolanaStubServer.curveAccountData(
+            mint, 1_000_000_000_000_000_000L, 900_000_000_000_000_000L),
+        MonnshotProgram.MOONSHOT);
+
+    final MonnShotTrade monnShotTrade = new MonnShotTrade();
+    final PublicKey signer =
+        monnShotTrade
+            .signingService()
+            .register(Signer.createFromKeyPair(Signer.generatePrivateKeyPairBytes()));
+    final MonnShotTrade.BuyOptions buyOptions =
+        new MonnShotTrade.BuyOptions(BigDecimal.valueOf(0.001d), 5, "medium", "medium");
+
+    final AtomicLongArray latencies = new AtomicLongArray(TRADES);
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    final Semaphore inFlight = new Semaphore(CONCURRENCY);
+
+    final long start = System.nanoTime();
+    try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < TRADES; i++) {
+        final int trade = i;
+        inFlight.acquire();
+        executorService.submit(
+            () -> {
+              final long tradeStart = System.nanoTime();
+              try {
+                monnShotTrade.buy(mint, signer, buyOptions, trade % 2 == 0);
+              } catch (Exception e) {
+                failures.incrementAndGet();
+                log.debug("trade {} failed", trade, e);
+              } finally {
+                latencies.set(trade, System.nanoTime() - tradeStart);
+                completed.incrementAndGet();
+                inFlight.release();
+              }
+            });
+      }
+    }
+    final long elapsed = System.nanoTime() - start;
+
+    final long[] sorted = new long[TRADES];
+    for (int i = 0; i < TRADES; i++) {
+      sorted[i] = latencies.get(i);
+    }
+    Arrays.sort(sorted);
+    log.info(
+        "trades:{}, concurrency:{}, failures:{}, throughput:{} trades/s",
+        TRADES,
+        CONCURRENCY,
+        failures.get(),
+        String.format("%.1f", TRADES / (elapsed / 1e9)));
+    log.info(
+        "latency ms p50:{}, p90:{}, p99:{}, max:{}",
+        percentile(sorted, 0.50),
+        percentile(sorted, 0.90),
+        percentile(sorted, 0.99),
+        percentile(sorted, 1.0));
+    log.info("stub requests:{}", stub.requestCounts());
+
+    assertEquals(TRADES, completed.get());
+    assertTrue(failures.get() < TRADES / 10, "failures:" + failures.get());
+  }
+
+  private static String percentile(long[] sorted, double p) {
+    final int index = Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1);
+    return String.format("%.2f", sorted[Math.max(0, index)] / 1e6);
+  }
+}